@@ -0,0 +1,222 @@
+package com.dgl114.colormatch;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.GestureDetector;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
+import android.view.View;
+
+//****************************************************************************************
+//BoardView.java            Author: zakacat
+//
+//This is the view of the board: one View that draws every cell of the ColorMatchGame on a
+//single Canvas, instead of one inflated Button per cell. The number of views (and the
+//time to inflate them) stays the same however big the board is.
+//The geometry lives in a BoardViewport. A tap is turned into a cell with arithmetic
+//(BoardViewport.hitTest()) and handed to the OnCellClickListener. Only the rows and
+//columns that overlap the view are drawn, so a frame costs about as much as the number of
+//cells on screen. Boards bigger than the view can be scrolled with a drag and zoomed with
+//a pinch.
+//The colors and selection are read straight from the game when drawing, so nothing is
+//copied and onDraw() does not allocate. A selected cell is delineated with a large 'X',
+//like the buttons used to be.
+//When metrics are on, the time from a tap to the end of the frame that shows it is
+//recorded as Metrics.TAP_TO_RENDER.
+//This class includes:
+// - setGame()  The game to draw
+// - setOnCellClickListener()  Who to tell when a cell is tapped
+// - onCellsChanged()  Redraw if any of the changed cells are on screen
+//****************************************************************************************
+
+public class BoardView extends View {
+
+    //****************************************************************************************
+    //OnCellClickListener is told which cell was tapped.
+    //****************************************************************************************
+    public interface OnCellClickListener {
+        void onCellClick(int row, int col);
+    }
+
+    private static final float CELL_SIZE_DP = 90.0f;
+    private static final float GAP_DP = 8.0f;
+    private static final float MARK_TEXT_SP = 30.0f;
+    private static final String MARK = "X";
+    private final BoardViewport mViewport;
+    private final Paint mCellPaint = new Paint();
+    private final Paint mMarkPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final float mMarkTextSize;
+    private final GestureDetector mGestureDetector;
+    private final ScaleGestureDetector mScaleDetector;
+    private ColorMatchGame mGame;
+    private OnCellClickListener mListener;
+    private long mTapNanos;
+
+    public BoardView(Context context) {
+        this(context, null);
+    }
+
+    public BoardView(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        float cellSize = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, CELL_SIZE_DP,
+                getResources().getDisplayMetrics());
+        float gap = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, GAP_DP,
+                getResources().getDisplayMetrics());
+        mViewport = new BoardViewport(ColorMatchGame.NUM_ROWS, ColorMatchGame.NUM_COLS, cellSize, gap);
+        mMarkTextSize = TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, MARK_TEXT_SP,
+                getResources().getDisplayMetrics());
+        mMarkPaint.setColor(Color.WHITE);
+        mMarkPaint.setTextAlign(Paint.Align.CENTER);
+        mGestureDetector = new GestureDetector(context, new GestureListener());
+        mScaleDetector = new ScaleGestureDetector(context, new ScaleListener());
+    }
+
+    //****************************************************************************************
+    //setGame() sets the game to draw and sizes the board to it.
+    //****************************************************************************************
+    public void setGame(ColorMatchGame game) {
+        mGame = game;
+        mViewport.setBoardSize(game.getNumRows(), game.getNumCols());
+        requestLayout();
+        invalidate();
+    }
+
+    public void setOnCellClickListener(OnCellClickListener listener) {
+        mListener = listener;
+    }
+
+    public BoardViewport getViewport() {
+        return mViewport;
+    }
+
+    //****************************************************************************************
+    //onCellsChanged() takes the game's change set and redraws the view if any changed cell
+    //is on screen. Changes to cells that are scrolled away cost nothing.
+    //****************************************************************************************
+    public void onCellsChanged() {
+        int changed = mGame.getChangedCellCount();
+        for (int i = 0; i < changed; i++) {
+            if (mViewport.isCellVisible(mGame.getChangedCell(i))) {
+                invalidate();
+                return;
+            }
+        }
+        recordTapToRender();
+    }
+
+    //****************************************************************************************
+    //onMeasure() asks for room for the whole board at a scale of one, and takes what the
+    //parent allows.
+    //****************************************************************************************
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int width = (int) Math.ceil(mViewport.getContentWidth());
+        int height = (int) Math.ceil(mViewport.getContentHeight());
+        setMeasuredDimension(resolveSize(width, widthMeasureSpec), resolveSize(height, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onSizeChanged(int width, int height, int oldWidth, int oldHeight) {
+        super.onSizeChanged(width, height, oldWidth, oldHeight);
+        mViewport.setViewSize(width, height);
+    }
+
+    //****************************************************************************************
+    //onDraw() draws the visible cells, and an 'X' on each visible selected cell.
+    //****************************************************************************************
+    @Override
+    protected void onDraw(Canvas canvas) {
+        if (mGame == null) {
+            return;
+        }
+        float size = mViewport.getScaledCellSize();
+        mMarkPaint.setTextSize(mMarkTextSize * mViewport.getScale());
+        float markOffset = (mMarkPaint.descent() + mMarkPaint.ascent()) / 2;
+        int lastRow = mViewport.getLastVisibleRow();
+        int lastCol = mViewport.getLastVisibleCol();
+        for (int row = mViewport.getFirstVisibleRow(); row <= lastRow; row++) {
+            float top = mViewport.getCellTop(row);
+            for (int col = mViewport.getFirstVisibleCol(); col <= lastCol; col++) {
+                float left = mViewport.getCellLeft(col);
+                mCellPaint.setColor(mGame.getColor(row, col));
+                canvas.drawRect(left, top, left + size, top + size, mCellPaint);
+                if (mGame.isButtonSelected(row, col)) {
+                    canvas.drawText(MARK, left + size / 2, top + size / 2 - markOffset, mMarkPaint);
+                }
+            }
+        }
+        recordTapToRender();
+    }
+
+    //****************************************************************************************
+    //recordTapToRender() records the time since the last tap, once, when the tap has been
+    //drawn (or turned out to need no drawing).
+    //****************************************************************************************
+    private void recordTapToRender() {
+        if (mTapNanos != 0) {
+            Metrics.record(Metrics.TAP_TO_RENDER, System.nanoTime() - mTapNanos);
+            mTapNanos = 0;
+        }
+    }
+
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        boolean handled = mScaleDetector.onTouchEvent(event);
+        handled |= mGestureDetector.onTouchEvent(event);
+        return handled || super.onTouchEvent(event);
+    }
+
+    //****************************************************************************************
+    //performClick() is called for a tap so that accessibility services see it as a click.
+    //****************************************************************************************
+    @Override
+    public boolean performClick() {
+        return super.performClick();
+    }
+
+    private class GestureListener extends GestureDetector.SimpleOnGestureListener {
+
+        @Override
+        public boolean onDown(MotionEvent event) {
+            return true;
+        }
+
+        @Override
+        public boolean onSingleTapUp(MotionEvent event) {
+            int cell = mViewport.hitTest(event.getX(), event.getY());
+            if (cell < 0 || mGame == null) {
+                return false;
+            }
+            performClick();
+            if (Metrics.isEnabled()) {
+                Metrics.increment(Metrics.TAPS);
+                mTapNanos = System.nanoTime();
+            }
+            if (mListener != null) {
+                mListener.onCellClick(cell / mGame.getNumCols(), cell % mGame.getNumCols());
+            }
+            return true;
+        }
+
+        @Override
+        public boolean onScroll(MotionEvent down, MotionEvent move, float distanceX, float distanceY) {
+            mViewport.panBy(distanceX, distanceY);
+            invalidate();
+            return true;
+        }
+    }
+
+    private class ScaleListener extends ScaleGestureDetector.SimpleOnScaleGestureListener {
+
+        @Override
+        public boolean onScale(ScaleGestureDetector detector) {
+            mViewport.zoomBy(detector.getScaleFactor(), detector.getFocusX(), detector.getFocusY());
+            invalidate();
+            return true;
+        }
+    }
+}
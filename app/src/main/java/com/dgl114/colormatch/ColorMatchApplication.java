@@ -0,0 +1,22 @@
+package com.dgl114.colormatch;
+
+import android.app.Application;
+
+//****************************************************************************************
+//ColorMatchApplication.java            Author: zakacat
+//
+//This is the app's Application. onCreate() runs once per process, before any activity is
+//created, so it is where process wide settings go. Activities are recreated on every
+//rotation; this is not.
+//This class includes:
+// - onCreate()  Turns the metrics on in debug builds (see Metrics.setEnabled())
+//****************************************************************************************
+
+public class ColorMatchApplication extends Application {
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        Metrics.setEnabled(BuildConfig.DEBUG);
+    }
+}
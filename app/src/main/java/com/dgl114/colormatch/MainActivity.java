@@ -2,14 +2,25 @@ package com.dgl114.colormatch;
 
 import androidx.annotation.NonNull;
 import androidx.appcompat.app.AppCompatActivity;
-import android.graphics.Color;
 import android.os.Bundle;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
 import android.view.View;
 import android.widget.Button;
-import android.widget.GridLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
 //****************************************************************************************
 //MainActivity.java         Author: zakacat
 //
@@ -17,44 +28,91 @@ import android.widget.Toast;
 //interaction of the View with the Model.
 //This class includes:
 // - onCreate() Aligns the Model information with the view fields in View. Also has a
-//              condition for new game or restarting from a saved state.
+//              condition for new game or restarting from a saved state or the journal.
+// - load() Loads the player's stats and replays the journal on DISK_IO.
 // - startGame() Calls methods from both the Controller and Model needed to start game.
-// - onColorButtonClick() addresses a click event by calling methods needed to select the
-//                          buttons.
-// - buttonDelineater() delineates an 'X' on the a button that is selected.
-// - setButtonColors() assigns the Button object color attribute as the background of the
-//                      button in layout.
-// - blendButtonColors() get the colors associated with the winning combination, blends
-//                      them together, and sets that blend to the viewButton.
+//               The round itself is normally already generated by mRoundProducer.
+// - onCellClick() addresses a tap on a cell of mBoardView by toggling its selection.
+// - applyChanges() redraws the board (only if a changed cell is on screen) and the blended
+//                  view (only if the target color changed).
 // - onPlayClick() Calls startGame()
 // - onCheckClick() Calls mGame.isGameOver() to verify if the round has been won. Increments
-//                  winning and losing guesses.
+//                  winning and losing guesses. During a time attack a win goes straight on
+//                  to the next round.
+// - onTimeAttackClick() Starts a time attack (see TimeAttack): as many rounds as possible
+//                       before the countdown runs out.
+// - onTimeAttackFrame() Runs every display frame during a time attack, from the
+//                       Choreographer, to count down and show the live timer and score.
 // - setOutputText() updates the output text in layout with the current amount of winning
-//                   and losing guesses.
+//                   and losing guesses, and the median and p95 time to solve a round.
 // - onSaveInstanceState() Calls static outState methods and saves game information
 //                          (somewhere magically)
+// - onResume() / onPause() Start and stop the time attack's frame callback. onPause() also
+//                          saves the player's stats, and in debug builds logs the metrics
+//                          and exports them to a JSON file, both on DISK_IO.
+// - onDestroy() Stops the background round producer and the journal.
+//Every round, toggle and check is also recorded in mJournal (see GameJournal), so the
+//score survives the process being killed. The journal is cut back to a checkpoint of the
+//game whenever the state is saved. How long each round took to solve, how many checks it
+//took and at what difficulty go into mStats (see PlayerStats), which are kept across
+//sessions in a fixed size file.
+//The UI thread never touches the disk itself. Loading the stats, replaying the journal,
+//saving the stats and exporting the metrics all run on DISK_IO, one background thread
+//shared by every activity of the process, so they happen in order: a new activity loads
+//the stats only after the activity before it has saved them. The game only takes input
+//once it is loaded.
 //****************************************************************************************
 
-public class MainActivity extends AppCompatActivity {
+public class MainActivity extends AppCompatActivity implements BoardView.OnCellClickListener {
 
       private ColorMatchGame mGame;
-      private Button[][] mButtons;
+      private RoundProducer mRoundProducer;
+      private GameJournal mJournal;
+      private BoardView mBoardView;
       private Button viewButton;
-      private TextView correct, failure;
-      private int mCorrect, mFailure, mBlendedColor;
-      private final String GAME_STATE = "game state";
-      private final String CORRECT_STATE = "correct state";
-      private final String FAIL_STATE = "fail stare";
-      private final String SELECT_STATE = "select state";
-      private final String BLEND_STATE = "blended state";
+      private TextView correct, failure, solveTimes, timeAttackText;
+      private final Score mScore = new Score();
+      //Empty until load() has read the saved stats.
+      private PlayerStats mStats = new PlayerStats();
+      private PlayerStatsStore mStatsStore;
+      private boolean mLoaded;
+      private long mRoundStartMillis;
+      private int mAttempts;
+      private boolean mRoundSolved;
+      private ByteBuffer mSnapshotBuffer;
+      private TimeAttack mTimeAttack;
+      private final Choreographer.FrameCallback mFrameCallback = new Choreographer.FrameCallback() {
+          @Override
+          public void doFrame(long frameTimeNanos) {
+              onTimeAttackFrame(frameTimeNanos);
+          }
+      };
+      private final String SNAPSHOT_STATE = "snapshot state";
+      private final String ROUND_STATE = "round state";
+      private final String TIME_ATTACK_STATE = "time attack state";
+      private final String STATS_FILE = "player.stats";
+      private final String STATS_TAG = "PlayerStats";
+      private final String JOURNAL_FILE = "session.journal";
+      private final String JOURNAL_TAG = "GameJournal";
+      private final String METRICS_FILE = "metrics.json";
+      private final String METRICS_TAG = "Metrics";
+      private static final ExecutorService DISK_IO = Executors.newSingleThreadExecutor(new ThreadFactory() {
+          @Override
+          public Thread newThread(Runnable task) {
+              Thread thread = new Thread(task, "DiskIO");
+              thread.setDaemon(true);
+              return thread;
+          }
+      });
 
     //****************************************************************************************
     //onCreate() is called every time the app is booted up for the first time, or if the
     // screen is rotated and the layout has changes.
     // It aligns the View information with the Model information. Object types must match.
-    //This method also includes a conditional for starting. If there is no save state, a new game
-    //is started. If there is a Save State, the method will load and re-assign that data
-    //accordingly.
+    //This method also includes a conditional for starting. If there is a Save State, the
+    //method will load and re-assign that data accordingly. If there is none (or it can't be
+    //read), the game is picked up from the journal, or a new game is started, once load()
+    //is done.
     //****************************************************************************************
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -62,152 +120,389 @@ public class MainActivity extends AppCompatActivity {
         setContentView(R.layout.activity_main);
         correct= findViewById(R.id.correct_guesses);
         failure= findViewById(R.id.absolute_failures);
+        solveTimes = findViewById(R.id.solve_times);
+        timeAttackText = findViewById(R.id.time_attack_text);
+        mTimeAttack = new TimeAttack(getString(R.string.timeAttackLabel));
         viewButton = findViewById(R.id.blended_view);
-        mButtons = new Button[ColorMatchGame.NUM_ROWS][ColorMatchGame.NUM_COLS];
+        mGame = new ColorMatchGame();
+        mSnapshotBuffer = ByteBuffer.allocate(GameSnapshotCodec.getMaxSize(mGame));
+        mRoundProducer = new RoundProducer(mGame.getNumRows(), mGame.getNumCols());
+        mRoundProducer.start();
+        mBoardView = findViewById(R.id.color_selection_grid);
+        mBoardView.setGame(mGame);
+        mBoardView.setOnCellClickListener(this);
+        mStatsStore = new PlayerStatsStore(new File(getFilesDir(), STATS_FILE));
 
-        GridLayout gridLayout = findViewById(R.id.color_selection_grid);
-        int childIndex = 0;
-        for (int row = 0; row < ColorMatchGame.NUM_ROWS; row++) {
-            for (int col = 0; col < ColorMatchGame.NUM_COLS; col++) {
-                mButtons[row][col] = (Button) gridLayout.getChildAt(childIndex);
-                childIndex++;
-            }
+        byte[] snapshot = savedInstanceState == null ? null : savedInstanceState.getByteArray(SNAPSHOT_STATE);
+        boolean restored = snapshot != null && GameSnapshotCodec.decode(ByteBuffer.wrap(snapshot), mGame, mScore);
+        if (restored) {
+            startJournal();
+            mJournal.checkpoint(mGame, mScore);
+            startRoundClock(savedInstanceState.getLongArray(ROUND_STATE));
+            resumeTimeAttack(savedInstanceState.getLongArray(TIME_ATTACK_STATE));
+            applyChanges();
         }
+        load(restored);
+    }
 
-        mGame = new ColorMatchGame();
+    //****************************************************************************************
+    //load() reads the player's stats on DISK_IO and, unless the game was restored from the
+    //saved state, plays the journal back into a game and score of its own. It then hands
+    //them to onLoaded() on the UI thread. Until then taps are ignored. If the stats can't be
+    //read they start over, and so does the score if the journal can't be.
+    //****************************************************************************************
+    private void load(final boolean restored) {
+        final PlayerStatsStore statsStore = mStatsStore;
+        final File journalFile = new File(getFilesDir(), JOURNAL_FILE);
+        final ColorMatchGame replayed = new ColorMatchGame(mGame.getNumRows(), mGame.getNumCols());
+        final Score replayedScore = new Score();
+        DISK_IO.execute(new Runnable() {
+            @Override
+            public void run() {
+                final PlayerStats stats = new PlayerStats();
+                try {
+                    statsStore.load(stats);
+                }
+                catch (IOException e) {
+                    stats.reset();
+                    Log.w(STATS_TAG, "Could not load stats", e);
+                }
+                boolean resumed = false;
+                if (!restored) {
+                    GameJournalReplayer replayer = new GameJournalReplayer(replayed.getNumCells());
+                    try {
+                        resumed = replayer.replay(journalFile, replayed, replayedScore)
+                                && replayer.getRoundCount() + replayer.getCheckpointCount() > 0;
+                    }
+                    catch (IOException e) {
+                        Log.w(JOURNAL_TAG, "Could not replay the journal", e);
+                    }
+                }
+                final boolean replayedRound = resumed;
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        onLoaded(stats, replayedRound ? replayed : null, replayedScore);
+                    }
+                });
+            }
+        });
+    }
 
-        if (savedInstanceState == null) {
-            startGame();
+    //****************************************************************************************
+    //onLoaded() takes the loaded stats. A game restored from the saved state already has its
+    //journal; otherwise it carries on with the replayed game and score, copied in through a
+    //snapshot, or starts a new game if the journal had no round, and starts the journal.
+    //****************************************************************************************
+    private void onLoaded(PlayerStats stats, ColorMatchGame replayed, Score replayedScore) {
+        if (isDestroyed()) {
+            return;
         }
-        else {
-            int [] gameState = savedInstanceState.getIntArray(GAME_STATE);
-            mGame.setState(gameState);
-            mCorrect = savedInstanceState.getInt(CORRECT_STATE);
-            mFailure = savedInstanceState.getInt(FAIL_STATE);
-            boolean[] selectState = savedInstanceState.getBooleanArray(SELECT_STATE);
-            mGame.setStateSelected(selectState);
-            buttonDelineater();
-            setButtonColors();
-            mBlendedColor = savedInstanceState.getInt(BLEND_STATE);
-            viewButton.setBackgroundColor(mBlendedColor);
+        mStats = stats;
+        mLoaded = true;
+        if (mJournal != null) {
             setOutputText();
+            return;
         }
+        if (replayed == null) {
+            startJournal();
+            startGame();
+            return;
+        }
+        mSnapshotBuffer.clear();
+        GameSnapshotCodec.encode(replayed, replayedScore, mSnapshotBuffer);
+        mSnapshotBuffer.flip();
+        GameSnapshotCodec.decode(mSnapshotBuffer, mGame, mScore);
+        startJournal();
+        mJournal.checkpoint(mGame, mScore);
+        startRoundClock(null);
+        applyChanges();
+        setOutputText();
     }
 
     //****************************************************************************************
-    //startGame() calls the methods needed for a new game to appear on screen.
+    //startJournal() starts a new journal, which replaces the old one; a game carried over
+    //goes into it as a checkpoint. The writer thread waits for the previous activity's
+    //writer, if it is still finishing, before it opens the file.
+    //****************************************************************************************
+    private void startJournal() {
+        mJournal = new GameJournal(new File(getFilesDir(), JOURNAL_FILE), mGame.getNumRows(), mGame.getNumCols(), 0);
+        mJournal.start();
+    }
+    //****************************************************************************************
+    //startGame() calls the methods needed for a new game to appear on screen. The next round
+    //is taken from the round producer, and is only generated here if none is ready yet. A
+    //round left without a correct check goes into mStats as unsolved.
     //****************************************************************************************
     private void startGame() {
-        mGame.newGame();
-        setOutputText();
-        setButtonColors();
-        buttonDelineater();
-        blendButtonColors();
+        if (mRoundStartMillis != 0 && !mRoundSolved) {
+            mStats.recordUnsolved(mGame.getDifficulty(), mAttempts);
+        }
+        if (!mRoundProducer.takeRound(mGame)) {
+            mGame.newGame();
+        }
         mGame.resetSelection();
+        mJournal.recordRound(mGame);
+        startRoundClock(null);
+        setOutputText();
+        applyChanges();
     }
     //****************************************************************************************
-    //OnColorButtonClick() iterates through Button array and identifies which button matches
-    //with the button that was selected by the user then it calls buttonDelineater() to mark
-    // the button as selected or not. (It looks like the only thing that the buttonFound does
-    // is stop the loop from continuing once the button is found. This probably doesn't matter
-    //for this small of a loop, but on larger numbers of objects or variables, this might save
-    //some processing power)
-    //****************************************************************************************
-    public void onColorButtonClick(View gameButton) {
-        boolean buttonFound = false;
-        for (int row = 0; row < ColorMatchGame.NUM_ROWS && !buttonFound; row++) {
-            for (int col = 0; col < ColorMatchGame.NUM_COLS && !buttonFound; col++) {
-                if (gameButton == mButtons[row][col]) {
-                    mGame.toggleButtonSelection(row, col);
-                    buttonFound = true;
-                }
-            }
+    //startRoundClock() starts timing the round on screen. A round carried over from before a
+    //rotation keeps the start time, checks and result saved in onSaveInstanceState() (the
+    //clock is SystemClock.elapsedRealtime(), which keeps counting across activities).
+    //****************************************************************************************
+    private void startRoundClock(long[] savedRound) {
+        if (savedRound != null && savedRound.length == 3) {
+            mRoundStartMillis = savedRound[0];
+            mAttempts = (int) savedRound[1];
+            mRoundSolved = savedRound[2] != 0;
         }
-        buttonDelineater();
+        else {
+            mRoundStartMillis = SystemClock.elapsedRealtime();
+            mAttempts = 0;
+            mRoundSolved = false;
         }
+    }
     //****************************************************************************************
-    //buttonDelineater() iterates through the buttons and if any are selected, it will delinieate
-    //the button visually with a large letter 'X'.
+    //resumeTimeAttack() carries on a time attack saved in onSaveInstanceState(), with the
+    //time it had left and the rounds solved so far. onResume() starts its frame callback.
     //****************************************************************************************
-    private void buttonDelineater(){
-        for (int row = 0; row < ColorMatchGame.NUM_ROWS; row++) {
-            for (int col = 0; col < ColorMatchGame.NUM_COLS; col++) {
-                if (mGame.isButtonSelected(row, col)) {
-                    mButtons[row][col].setText("X");
-                }
-                else{
-                    mButtons[row][col].setText("");
-                }
-            }
+    private void resumeTimeAttack(long[] savedTimeAttack) {
+        if (savedTimeAttack != null && savedTimeAttack.length == 2 && savedTimeAttack[0] > 0
+                && savedTimeAttack[0] <= TimeAttack.MAX_DURATION_NANOS) {
+            mTimeAttack.resume(System.nanoTime(), savedTimeAttack[0], (int) savedTimeAttack[1]);
+            timeAttackText.setVisibility(View.VISIBLE);
         }
     }
     //****************************************************************************************
-    //setButtonColor() iterates through the buttons and assigns the background color of the
-    //View button with the color value of the Button.java object (thru mGame.getColor()).
+    //onCellClick() is called by mBoardView with the cell that was tapped. It toggles the cell
+    //and redraws whatever the toggle changed.
     //****************************************************************************************
-    private void setButtonColors() {
-        for (int row = 0; row < ColorMatchGame.NUM_ROWS; row++) {
-            for (int col = 0; col < ColorMatchGame.NUM_COLS; col++) {
-                    mButtons[row][col].setBackgroundColor(mGame.getColor(row,col));
-            }
+    @Override
+    public void onCellClick(int row, int col) {
+        if (!mLoaded) {
+            return;
         }
+        mGame.toggleButtonSelection(row, col);
+        mJournal.recordToggle(row, col);
+        applyChanges();
     }
     //****************************************************************************************
-    //blendButtonColors() retrieves the color values as ints from the buttons of the
-    //winning combination and uses the static method from ColorUtilies.java to blend them
-    //together. It then assigns that new color to the background of viewButton.
+    //applyChanges() hands the model's change set to mBoardView, which only redraws if a
+    //changed cell is on screen, and then clears it. The blended view is only set when the
+    //target color changed.
     //****************************************************************************************
-    private void blendButtonColors(){
-        int local1 = mGame.getColor(mGame.getWinRow1(), mGame.getWinCol1());
-        int local2 = mGame.getColor(mGame.getWinRow2(), mGame.getWinCol2());
-        mBlendedColor = ColorUtilities.blend(Color.valueOf(local1), Color.valueOf(local2));
-        viewButton.setBackgroundColor(mBlendedColor);
+    private void applyChanges() {
+        mBoardView.onCellsChanged();
+        if (mGame.isBlendedColorChanged()) {
+            viewButton.setBackgroundColor(mGame.getBlendedColor());
+        }
+        mGame.clearChanges();
     }
     //****************************************************************************************
     //onPlayClick() calls startGame() and starts a new game.
     //****************************************************************************************
     public void onPlayClick(View button_new_game) {
+        if (!mLoaded) {
+            return;
+        }
         startGame();
     }
 
+    //****************************************************************************************
+    //onTimeAttackClick() starts a time attack with a new round. The countdown and score are
+    //shown in timeAttackText, updated from a Choreographer frame callback, until time is up.
+    //****************************************************************************************
+    public void onTimeAttackClick(View button_time_attack) {
+        if (!mLoaded) {
+            return;
+        }
+        mTimeAttack.start(System.nanoTime(), TimeAttack.DEFAULT_DURATION_NANOS);
+        timeAttackText.setVisibility(View.VISIBLE);
+        startGame();
+        Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+        Choreographer.getInstance().postFrameCallback(mFrameCallback);
+    }
+    //****************************************************************************************
+    //onTimeAttackFrame() runs once per display frame while a time attack is on. The text is
+    //only set when the tenth of a second or the score shown has changed, and it is set from
+    //TimeAttack's char array (TextView keeps one wrapper for it), so a frame allocates
+    //nothing. The callback posts itself again until the countdown ends.
+    //****************************************************************************************
+    private void onTimeAttackFrame(long frameTimeNanos) {
+        long start = Metrics.isEnabled() ? System.nanoTime() : 0;
+        if (mTimeAttack.onFrame(frameTimeNanos)) {
+            timeAttackText.setText(mTimeAttack.getText(), 0, mTimeAttack.getTextLength());
+        }
+        if (mTimeAttack.isRunning()) {
+            Choreographer.getInstance().postFrameCallback(mFrameCallback);
+        }
+        else {
+            Toast.makeText(this, getString(R.string.timeAttackOver, mTimeAttack.getSolved()), Toast.LENGTH_LONG).show();
+            setOutputText();
+        }
+        if (Metrics.isEnabled()) {
+            Metrics.record(Metrics.FRAME_UPDATE, System.nanoTime() - start);
+        }
+    }
+
     //****************************************************************************************
     //onCheckClick() calls mGame.isGameOver() and if true is returned, then a toast is made and
-    //mCorrect is incremented by one. If false is returned, then a toast is made and
-    //mFailure is incremented by one. setOutputText() is then called to update the text output
-    //with the correct number of correct and incorrect guesses.
+    //a correct guess is added to mScore. If false is returned, then a toast is made and
+    //a failure is added to mScore. setOutputText() is then called to update the text output
+    //with the correct number of correct and incorrect guesses. The first correct check of a
+    //round records how long the round took to solve in mStats.
+    //During a time attack a correct check skips the toast and goes straight to the next
+    //round, which mRoundProducer has ready, so there is no wait between rounds.
     //****************************************************************************************
     public void onCheckClick(View button_check) {
-        if (mGame.isGameOver()) {
+        if (!mLoaded) {
+            return;
+        }
+        long start = Metrics.isEnabled() ? System.nanoTime() : 0;
+        boolean isCorrect = mGame.isGameOver();
+        mJournal.recordCheck(isCorrect);
+        mAttempts++;
+        if (isCorrect && !mRoundSolved) {
+            mRoundSolved = true;
+            mStats.recordSolved(mGame.getDifficulty(), SystemClock.elapsedRealtime() - mRoundStartMillis, mAttempts);
+        }
+        if (isCorrect && mTimeAttack.isRunning()) {
+            mScore.recordCorrect();
+            mTimeAttack.recordSolved();
+            startGame();
+        }
+        else if (isCorrect) {
             Toast.makeText(this, R.string.correct, Toast.LENGTH_SHORT).show();
-            mCorrect++;
+            mScore.recordCorrect();
         }
         else{//
             Toast.makeText(this, R.string.failure, Toast.LENGTH_SHORT).show();
-            mFailure++;
+            mScore.recordFailure();
         }
         setOutputText();
+        if (Metrics.isEnabled()) {
+            Metrics.record(Metrics.CHECK, System.nanoTime() - start);
+        }
     }
     //****************************************************************************************
     //setOutputText() updates the text field views with the current amount of correct and
     //incorrect guesses. (I tried to refer to strings.xml and concatenate the number of guesses,
     //but it was adding that value to the string reference and calling different resources... or
     //it would crash the app.)
+    //During a time attack the live timer and score in timeAttackText stand in for these, so
+    //rounds don't format new Strings mid-countdown; they are brought up to date at the end.
     //****************************************************************************************
     private void setOutputText() {
-        correct.setText(getString(R.string.correctGuesses, mCorrect));
-        failure.setText(getString(R.string.absoluteFailures, mFailure));
+        if (mTimeAttack.isRunning()) {
+            return;
+        }
+        correct.setText(getString(R.string.correctGuesses, mScore.getCorrect()));
+        failure.setText(getString(R.string.absoluteFailures, mScore.getFailure()));
+        Histogram times = mStats.getSolveTimes(PlayerStats.ALL_LEVELS);
+        if (times.getCount() == 0) {
+            solveTimes.setText(R.string.noSolveTimes);
+        }
+        else {
+            solveTimes.setText(getString(R.string.solveTimes,
+                    times.getPercentile(50) / 1000.0, times.getPercentile(95) / 1000.0));
+        }
     }
     //****************************************************************************************
-    //onSaveInstanceState() stores the various information needed to restore the
-    //game in outState.
+    //onSaveInstanceState() stores a snapshot of the game and the score (see
+    //GameSnapshotCodec) in outState. The snapshot is encoded into a reused buffer; the only
+    //copy made is the byte array that the Bundle keeps. The round's clock is saved too.
+    //The journal is checkpointed here as well, which keeps it short. Nothing is saved while
+    //the journal is still being replayed; the next activity replays it again.
     //****************************************************************************************
     @Override
     protected void onSaveInstanceState(@NonNull Bundle outState) {
         super.onSaveInstanceState(outState);
-        outState.putInt(CORRECT_STATE, mCorrect);
-        outState.putInt(FAIL_STATE, mFailure);
-        outState.putIntArray(GAME_STATE, mGame.getState());
-        outState.putBooleanArray(SELECT_STATE, mGame.getStateSelected());
-        outState.putInt(BLEND_STATE, mBlendedColor);
+        if (mJournal == null) {
+            return;
+        }
+        mJournal.checkpoint(mGame, mScore);
+        mSnapshotBuffer.clear();
+        GameSnapshotCodec.encode(mGame, mScore, mSnapshotBuffer);
+        outState.putByteArray(SNAPSHOT_STATE, Arrays.copyOf(mSnapshotBuffer.array(), mSnapshotBuffer.position()));
+        outState.putLongArray(ROUND_STATE, new long[] {mRoundStartMillis, mAttempts, mRoundSolved ? 1 : 0});
+        if (mTimeAttack.isRunning()) {
+            outState.putLongArray(TIME_ATTACK_STATE,
+                    new long[] {mTimeAttack.getRemainingNanos(), mTimeAttack.getSolved()});
+        }
+    }
+
+    //****************************************************************************************
+    //onResume() starts the time attack's frame callback again if one is on. The countdown
+    //keeps running while the app is in the background.
+    //****************************************************************************************
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (mTimeAttack.isRunning()) {
+            Choreographer.getInstance().postFrameCallback(mFrameCallback);
+        }
+    }
+
+    //****************************************************************************************
+    //onPause() stops the time attack's frame callback and saves the player's stats whenever
+    //the app goes into the background. The stats are encoded here, as they are now, and
+    //written on DISK_IO; stats that haven't been loaded yet are not saved over the file. It
+    //also dumps the metrics to the log and exports them to files/metrics.json (for
+    //regression tracking), on DISK_IO too. Metrics are only turned on in debug builds.
+    //****************************************************************************************
+    @Override
+    protected void onPause() {
+        super.onPause();
+        Choreographer.getInstance().removeFrameCallback(mFrameCallback);
+        if (mLoaded) {
+            final PlayerStatsStore statsStore = mStatsStore;
+            final ByteBuffer stats = ByteBuffer.allocate(PlayerStatsStore.SIZE);
+            PlayerStatsStore.encode(mStats, stats);
+            stats.flip();
+            DISK_IO.execute(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        statsStore.save(stats);
+                    }
+                    catch (IOException e) {
+                        Log.w(STATS_TAG, "Could not save stats", e);
+                    }
+                }
+            });
+        }
+        if (!Metrics.isEnabled()) {
+            return;
+        }
+        final File metricsFile = new File(getFilesDir(), METRICS_FILE);
+        DISK_IO.execute(new Runnable() {
+            @Override
+            public void run() {
+                try (Writer out = new FileWriter(metricsFile)) {
+                    StringBuilder dump = new StringBuilder();
+                    Metrics.dump(dump);
+                    Log.d(METRICS_TAG, "\n" + dump);
+                    Metrics.writeJson(out);
+                }
+                catch (IOException e) {
+                    Log.w(METRICS_TAG, "Could not export metrics", e);
+                }
+            }
+        });
+    }
+
+    //****************************************************************************************
+    //onDestroy() stops the round producer thread and the journal along with the activity.
+    //It does not wait for the journal's writer; the next journal or replay waits for it.
+    //****************************************************************************************
+    @Override
+    protected void onDestroy() {
+        mRoundProducer.stop();
+        if (mJournal != null) {
+            mJournal.stop();
+        }
+        super.onDestroy();
     }
 }
\ No newline at end of file
@@ -0,0 +1,103 @@
+package com.dgl114.colormatch;
+
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.View;
+
+import androidx.test.core.app.ApplicationProvider;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+
+import static org.junit.Assert.*;
+
+/**
+ * Robolectric tests for {@link BoardView}: tap hit-testing and drawing only what is on screen.
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28)
+public class BoardViewTest {
+
+    @Test
+    public void tap_reportsTheCellUnderIt() {
+        BoardView view = layOut(new ColorMatchGame(), 400, 400);
+        final int[] tapped = {-1, -1};
+        view.setOnCellClickListener(new BoardView.OnCellClickListener() {
+            @Override
+            public void onCellClick(int row, int col) {
+                tapped[0] = row;
+                tapped[1] = col;
+            }
+        });
+        BoardViewport viewport = view.getViewport();
+        float half = viewport.getScaledCellSize() / 2;
+
+        tap(view, viewport.getCellLeft(2) + half, viewport.getCellTop(1) + half);
+        assertArrayEquals(new int[] {1, 2}, tapped);
+
+        tapped[0] = tapped[1] = -1;
+        tap(view, viewport.getCellLeft(1) - 1, viewport.getCellTop(1) + half);
+        assertArrayEquals(new int[] {-1, -1}, tapped);
+    }
+
+    @Test
+    public void draw_onlyVisibleCellsOfALargeBoard() {
+        ColorMatchGame game = new ColorMatchGame(128, 128);
+        game.newGame();
+        game.toggleButtonSelection(0, 0);
+        BoardView view = layOut(game, 480, 800);
+        BoardViewport viewport = view.getViewport();
+        int visible = (viewport.getLastVisibleRow() - viewport.getFirstVisibleRow() + 1)
+                * (viewport.getLastVisibleCol() - viewport.getFirstVisibleCol() + 1);
+
+        CountingCanvas canvas = new CountingCanvas();
+        view.draw(canvas);
+        assertEquals(visible, canvas.mRects);
+        assertEquals(1, canvas.mTexts);
+        assertTrue(canvas.mRects < game.getNumCells() / 100);
+
+        viewport.panBy(5000, 5000);
+        canvas = new CountingCanvas();
+        view.draw(canvas);
+        assertTrue(canvas.mRects <= visible * 2);
+        assertEquals(0, canvas.mTexts);
+    }
+
+    private static BoardView layOut(ColorMatchGame game, int width, int height) {
+        BoardView view = new BoardView(ApplicationProvider.getApplicationContext());
+        view.setGame(game);
+        view.measure(View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.AT_MOST),
+                View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.AT_MOST));
+        view.layout(0, 0, view.getMeasuredWidth(), view.getMeasuredHeight());
+        return view;
+    }
+
+    private static void tap(View view, float x, float y) {
+        long time = SystemClock.uptimeMillis();
+        MotionEvent down = MotionEvent.obtain(time, time, MotionEvent.ACTION_DOWN, x, y, 0);
+        MotionEvent up = MotionEvent.obtain(time, time + 50, MotionEvent.ACTION_UP, x, y, 0);
+        view.dispatchTouchEvent(down);
+        view.dispatchTouchEvent(up);
+        down.recycle();
+        up.recycle();
+    }
+
+    private static class CountingCanvas extends Canvas {
+
+        int mRects, mTexts;
+
+        @Override
+        public void drawRect(float left, float top, float right, float bottom, Paint paint) {
+            mRects++;
+        }
+
+        @Override
+        public void drawText(String text, float x, float y, Paint paint) {
+            mTexts++;
+        }
+    }
+}
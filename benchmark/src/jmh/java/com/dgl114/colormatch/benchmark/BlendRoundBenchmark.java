@@ -0,0 +1,55 @@
+package com.dgl114.colormatch.benchmark;
+
+import com.dgl114.colormatch.ColorMatchGame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+//****************************************************************************************
+//BlendRoundBenchmark.java          Author: zakacat
+//
+//JMH benchmark for generating rounds whose target is a blend of more than two cells, where
+//most of the time goes to SubsetUniquenessChecker. It reports the average time per round,
+//which for k = 4 on an 8x8 board should stay well under 100 ms, and sampled times per round
+//(percentiles up to the slowest), since a slow round is a visible stall.
+//Each round parameter is a board size and a blend size, "size:blend". Blends of 5 and 6
+//cells are only allowed on boards of up to 37 cells (see ColorMatchGame.getMaxBlendSize()),
+//so the 8x8 board only goes up to 4.
+//Run with: ./gradlew :benchmark:jmh
+//****************************************************************************************
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class BlendRoundBenchmark {
+
+    @Param({"6:2", "6:3", "6:4", "6:6", "8:2", "8:3", "8:4"})
+    public String round;
+
+    @Param({"0", "0.5", "1"})
+    public float difficulty;
+
+    private ColorMatchGame mGame;
+
+    @Setup
+    public void setUp() {
+        int size = Integer.parseInt(round.substring(0, round.indexOf(':')));
+        mGame = new ColorMatchGame(size, size);
+        mGame.setBlendSize(Integer.parseInt(round.substring(round.indexOf(':') + 1)));
+        mGame.setDifficulty(difficulty);
+    }
+
+    @Benchmark
+    public int newGame() {
+        mGame.newGame();
+        return mGame.getBlendedColor();
+    }
+}
@@ -0,0 +1,82 @@
+package com.dgl114.colormatch.benchmark;
+
+import com.dgl114.colormatch.ColorMatchGame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+//****************************************************************************************
+//ColorMatchGameBenchmark.java          Author: zakacat
+//
+//JMH benchmarks for the hot paths of the game model. Every benchmark is run once per
+//board size, and the gc profiler configured in build.gradle reports the allocation rate
+//next to the throughput.
+//Run with: ./gradlew :benchmark:jmh
+//****************************************************************************************
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ColorMatchGameBenchmark {
+
+    @Param({"3", "16", "64", "256"})
+    public int size;
+
+    private ColorMatchGame mGame;
+    private int[] mSavedColors;
+    private boolean[] mSavedSelection;
+    private int mLastRow, mLastCol;
+
+    @Setup
+    public void setUp() {
+        mGame = new ColorMatchGame(size, size);
+        mGame.newGame();
+        mGame.toggleButtonSelection(mGame.getWinRow1(), mGame.getWinCol1());
+        mSavedColors = mGame.getState();
+        mSavedSelection = mGame.getStateSelected();
+        mLastRow = size - 1;
+        mLastCol = size - 1;
+    }
+
+    @Benchmark
+    public int newGame() {
+        mGame.newGame();
+        return mGame.getWinRow1();
+    }
+
+    //****************************************************************************************
+    //toggleButtonSelection() is called twice on the last cell so the selection count stays
+    //the same from one invocation to the next.
+    //****************************************************************************************
+    @Benchmark
+    public boolean toggleButtonSelection() {
+        mGame.toggleButtonSelection(mLastRow, mLastCol);
+        mGame.toggleButtonSelection(mLastRow, mLastCol);
+        return mGame.isButtonSelected(mLastRow, mLastCol);
+    }
+
+    @Benchmark
+    public boolean isGameOver() {
+        return mGame.isGameOver();
+    }
+
+    @Benchmark
+    public void stateRoundTrip() {
+        mGame.setState(mGame.getState());
+        mGame.setStateSelected(mGame.getStateSelected());
+    }
+
+    @Benchmark
+    public void setState() {
+        mGame.setState(mSavedColors);
+        mGame.setStateSelected(mSavedSelection);
+    }
+}
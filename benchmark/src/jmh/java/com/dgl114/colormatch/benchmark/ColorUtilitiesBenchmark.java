@@ -0,0 +1,103 @@
+package com.dgl114.colormatch.benchmark;
+
+import com.dgl114.colormatch.ColorUtilities;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+//****************************************************************************************
+//ColorUtilitiesBenchmark.java          Author: zakacat
+//
+//JMH benchmarks for ColorUtilities.blend() and blendLinear(). Each invocation blends one
+//pair per cell of a size x size board, either one pair at a time or with the bulk array
+//version. blendLinearPow() is the linear light blend done the textbook way, with
+//Math.pow() for every channel, to show what the LinearLight tables save.
+//Run with: ./gradlew :benchmark:jmh
+//****************************************************************************************
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ColorUtilitiesBenchmark {
+
+    @Param({"3", "16", "64", "256"})
+    public int size;
+
+    private int[] mColors0, mColors1, mOut;
+
+    @Setup
+    public void setUp() {
+        int count = size * size;
+        Random random = new Random(114);
+        mColors0 = new int[count];
+        mColors1 = new int[count];
+        mOut = new int[count];
+        for (int i = 0; i < count; i++) {
+            mColors0[i] = 0xFF000000 | random.nextInt(0x1000000);
+            mColors1[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+    }
+
+    @Benchmark
+    public int blendPairs() {
+        int hash = 0;
+        for (int i = 0; i < mColors0.length; i++) {
+            hash += ColorUtilities.blend(mColors0[i], mColors1[i]);
+        }
+        return hash;
+    }
+
+    @Benchmark
+    public int[] blendBulk() {
+        ColorUtilities.blend(mColors0, mColors1, mOut, mOut.length);
+        return mOut;
+    }
+
+    @Benchmark
+    public int blendLinearPairs() {
+        int hash = 0;
+        for (int i = 0; i < mColors0.length; i++) {
+            hash += ColorUtilities.blendLinear(mColors0[i], mColors1[i]);
+        }
+        return hash;
+    }
+
+    @Benchmark
+    public int[] blendLinearBulk() {
+        ColorUtilities.blendLinear(mColors0, mColors1, mOut, mOut.length);
+        return mOut;
+    }
+
+    @Benchmark
+    public int blendLinearPow() {
+        int hash = 0;
+        for (int i = 0; i < mColors0.length; i++) {
+            int c0 = mColors0[i], c1 = mColors1[i];
+            int color = 0xFF000000;
+            for (int shift = 0; shift < 24; shift += 8) {
+                double linear = (toLinear((c0 >> shift) & 0xFF) + toLinear((c1 >> shift) & 0xFF)) / 2;
+                color |= (int) Math.round(255.0 * toEncoded(linear)) << shift;
+            }
+            hash += color;
+        }
+        return hash;
+    }
+
+    private static double toLinear(int value) {
+        double encoded = value / 255.0;
+        return encoded <= 0.04045 ? encoded / 12.92 : Math.pow((encoded + 0.055) / 1.055, 2.4);
+    }
+
+    private static double toEncoded(double linear) {
+        return linear <= 0.0031308 ? linear * 12.92 : 1.055 * Math.pow(linear, 1 / 2.4) - 0.055;
+    }
+}
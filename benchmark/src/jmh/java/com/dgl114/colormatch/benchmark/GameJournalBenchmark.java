@@ -0,0 +1,92 @@
+package com.dgl114.colormatch.benchmark;
+
+import com.dgl114.colormatch.ColorMatchGame;
+import com.dgl114.colormatch.GameJournal;
+import com.dgl114.colormatch.GameJournalReplayer;
+import com.dgl114.colormatch.Score;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+//****************************************************************************************
+//GameJournalBenchmark.java          Author: zakacat
+//
+//JMH benchmark for replaying a session journal. The journal holds ROUNDS rounds played the
+//way MainActivity records them (a round, a few toggles and a check), about four events a
+//round, and each invocation replays the whole file.
+//Run with: ./gradlew :benchmark:jmh
+//****************************************************************************************
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GameJournalBenchmark {
+
+    private static final int ROUNDS = 100_000;
+
+    @Param({"3", "8"})
+    public int size;
+
+    private File mFile;
+    private ColorMatchGame mReplayed;
+    private Score mScore;
+    private GameJournalReplayer mReplayer;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        mFile = File.createTempFile("session", ".journal");
+        ColorMatchGame game = new ColorMatchGame(size, size, 10L);
+        SplittableRandom player = new SplittableRandom(11);
+        GameJournal journal = new GameJournal(mFile, size, size, 0);
+        journal.start();
+        for (int round = 0; round < ROUNDS; round++) {
+            game.newGame();
+            game.resetSelection();
+            journal.recordRound(game);
+            int toggles = player.nextInt(4);
+            for (int toggle = 0; toggle < toggles; toggle++) {
+                int row = player.nextInt(size);
+                int col = player.nextInt(size);
+                game.toggleButtonSelection(row, col);
+                journal.recordToggle(row, col);
+            }
+            journal.recordCheck(game.isGameOver());
+        }
+        journal.stop();
+        IOException error = journal.awaitWritten();
+        if (error != null) {
+            throw error;
+        }
+        //Generating rounds is far slower than writing them, so the writer keeps up.
+        if (journal.getDroppedCount() > 0) {
+            throw new IllegalStateException("The journal dropped " + journal.getDroppedCount() + " events");
+        }
+        mReplayed = new ColorMatchGame(size, size);
+        mScore = new Score();
+        mReplayer = new GameJournalReplayer(mReplayed.getNumCells());
+    }
+
+    @TearDown
+    public void tearDown() {
+        mFile.delete();
+    }
+
+    @Benchmark
+    public long replay() throws IOException {
+        mScore.reset();
+        mReplayer.replay(mFile, mReplayed, mScore);
+        return mReplayer.getEventCount();
+    }
+}
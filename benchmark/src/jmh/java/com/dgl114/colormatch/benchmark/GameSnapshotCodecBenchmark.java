@@ -0,0 +1,62 @@
+package com.dgl114.colormatch.benchmark;
+
+import com.dgl114.colormatch.ColorMatchGame;
+import com.dgl114.colormatch.GameSnapshotCodec;
+import com.dgl114.colormatch.Score;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+//****************************************************************************************
+//GameSnapshotCodecBenchmark.java           Author: zakacat
+//
+//JMH benchmark for saving and restoring a snapshot through one reused ByteBuffer.
+//Run with: ./gradlew :benchmark:jmh
+//****************************************************************************************
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GameSnapshotCodecBenchmark {
+
+    @Param({"3", "16", "64", "256"})
+    public int size;
+
+    private ColorMatchGame mGame;
+    private ColorMatchGame mRestored;
+    private Score mScore;
+    private ByteBuffer mBuffer;
+
+    @Setup
+    public void setUp() {
+        mGame = new ColorMatchGame(size, size);
+        mGame.newGame();
+        mRestored = new ColorMatchGame(size, size);
+        mScore = new Score();
+        mBuffer = ByteBuffer.allocate(GameSnapshotCodec.getSize(mGame));
+    }
+
+    @Benchmark
+    public int encode() {
+        mBuffer.clear();
+        GameSnapshotCodec.encode(mGame, mScore, mBuffer);
+        return mBuffer.position();
+    }
+
+    @Benchmark
+    public boolean roundTrip() {
+        mBuffer.clear();
+        GameSnapshotCodec.encode(mGame, mScore, mBuffer);
+        mBuffer.flip();
+        return GameSnapshotCodec.decode(mBuffer, mRestored, mScore);
+    }
+}
@@ -0,0 +1,91 @@
+package com.dgl114.colormatch.benchmark;
+
+import com.dgl114.colormatch.ColorMatchGame;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+//****************************************************************************************
+//GuessEvaluatorBenchmark.java          Author: zakacat
+//
+//JMH benchmarks for scoring guesses. toggleAndCheck() scores them the way a player would,
+//toggling each guess into the game and calling isGameOver(); evaluatePairs() and
+//evaluateMasks() score the same guesses as one batch with GuessEvaluator. Results are
+//guesses per second.
+//Run with: ./gradlew :benchmark:jmh
+//****************************************************************************************
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class GuessEvaluatorBenchmark {
+
+    private static final int GUESSES = 4096;
+
+    @Param({"3", "8", "64"})
+    public int size;
+
+    private ColorMatchGame mGame;
+    private int[] mGuesses;
+    private long[] mMasks;
+    private int mWords;
+    private boolean[] mCorrect;
+
+    @Setup
+    public void setUp() {
+        mGame = new ColorMatchGame(size, size);
+        mGame.newGame();
+        mWords = mGame.getSelectionWordCount();
+        mGuesses = new int[2 * GUESSES];
+        mMasks = new long[GUESSES * mWords];
+        mCorrect = new boolean[GUESSES];
+        SplittableRandom random = new SplittableRandom(21);
+        for (int i = 0; i < GUESSES; i++) {
+            int cell1 = random.nextInt(mGame.getNumCells());
+            int cell2 = random.nextInt(mGame.getNumCells() - 1);
+            if (cell2 >= cell1) {
+                cell2++;
+            }
+            mGuesses[2 * i] = cell1;
+            mGuesses[2 * i + 1] = cell2;
+            mMasks[i * mWords + (cell1 >>> 6)] |= 1L << cell1;
+            mMasks[i * mWords + (cell2 >>> 6)] |= 1L << cell2;
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GUESSES)
+    public int toggleAndCheck() {
+        int found = 0;
+        for (int i = 0; i < GUESSES; i++) {
+            mGame.resetSelection();
+            mGame.toggleButtonSelection(mGuesses[2 * i] / size, mGuesses[2 * i] % size);
+            mGame.toggleButtonSelection(mGuesses[2 * i + 1] / size, mGuesses[2 * i + 1] % size);
+            found += mGame.isGameOver() ? 1 : 0;
+        }
+        mGame.clearChanges();
+        return found;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GUESSES)
+    public int evaluatePairs() {
+        return mGame.evaluateGuesses(mGuesses, GUESSES, mCorrect);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(GUESSES)
+    public int evaluateMasks() {
+        return mGame.evaluateSelections(mMasks, GUESSES, mCorrect);
+    }
+}
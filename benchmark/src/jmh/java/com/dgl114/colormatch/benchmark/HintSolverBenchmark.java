@@ -0,0 +1,49 @@
+package com.dgl114.colormatch.benchmark;
+
+import com.dgl114.colormatch.ColorMatchGame;
+import com.dgl114.colormatch.HintSolver;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+//****************************************************************************************
+//HintSolverBenchmark.java          Author: zakacat
+//
+//JMH benchmark for HintSolver.solve(), finding the ten closest pairs on one board.
+//Run with: ./gradlew :benchmark:jmh
+//****************************************************************************************
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class HintSolverBenchmark {
+
+    private static final int RESULTS = 10;
+
+    @Param({"3", "16", "64", "256"})
+    public int size;
+
+    private ColorMatchGame mGame;
+    private HintSolver mSolver;
+
+    @Setup
+    public void setUp() {
+        mGame = new ColorMatchGame(size, size);
+        mGame.newGame();
+        mSolver = new HintSolver(mGame.getNumCells(), RESULTS);
+    }
+
+    @Benchmark
+    public int solve() {
+        mSolver.solve(mGame, RESULTS);
+        return mSolver.getFirstCell(0);
+    }
+}
@@ -0,0 +1,86 @@
+package com.dgl114.colormatch.benchmark;
+
+import com.dgl114.colormatch.ColorMatchGame;
+import com.dgl114.colormatch.RoundProducer;
+import com.dgl114.colormatch.TimeAttack;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.TimeUnit;
+
+//****************************************************************************************
+//TimeAttackBenchmark.java          Author: zakacat
+//
+//JMH benchmark for one frame of a time attack, driven the way MainActivity drives it at
+//120 fps: onFrame() advances the clock and the text is copied out when it changed, and
+//every 90th frame the round is solved and the next one is taken from a RoundProducer.
+//A 120 Hz frame is 8.3 ms; a frame here should be a tiny part of that, even at the p99
+//of the sampled times.
+//Run with: ./gradlew :benchmark:jmh
+//****************************************************************************************
+
+@State(Scope.Thread)
+@BenchmarkMode({Mode.AverageTime, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TimeAttackBenchmark {
+
+    private static final long FRAME_120_FPS = 1_000_000_000L / 120;
+
+    private ColorMatchGame mGame;
+    private RoundProducer mProducer;
+    private TimeAttack mAttack;
+    private final char[] mShown = new char[64];
+    private long mFrameTime;
+    private int mFrames;
+
+    @Setup
+    public void setUp() {
+        mGame = new ColorMatchGame(ColorMatchGame.NUM_ROWS, ColorMatchGame.NUM_COLS);
+        mProducer = new RoundProducer(mGame.getNumRows(), mGame.getNumCols());
+        mProducer.start();
+        mAttack = new TimeAttack("Solved: ");
+        nextRound();
+    }
+
+    @TearDown
+    public void tearDown() {
+        mProducer.stop();
+    }
+
+    @Benchmark
+    public int frame() {
+        if (!mAttack.isRunning()) {
+            mAttack.start(mFrameTime, TimeAttack.MAX_DURATION_NANOS);
+        }
+        if (mFrames++ % 90 == 0) {
+            for (int i = 0; i < mGame.getWinCount(); i++) {
+                int cell = mGame.getWinIndex(i);
+                mGame.toggleButtonSelection(cell / mGame.getNumCols(), cell % mGame.getNumCols());
+            }
+            if (mGame.isGameOver()) {
+                mAttack.recordSolved();
+                nextRound();
+            }
+        }
+        if (mAttack.onFrame(mFrameTime)) {
+            System.arraycopy(mAttack.getText(), 0, mShown, 0, mAttack.getTextLength());
+        }
+        mFrameTime += FRAME_120_FPS;
+        return mShown[mAttack.getTextLength() - 1];
+    }
+
+    private void nextRound() {
+        if (!mProducer.takeRound(mGame)) {
+            mGame.newGame();
+        }
+        mGame.resetSelection();
+        mGame.clearChanges();
+    }
+}
@@ -0,0 +1,251 @@
+package com.dgl114.colormatch;
+
+//****************************************************************************************
+//BlendUniquenessChecker.java           Author: zakacat
+//
+//This class finds "rival" pairs on a board: pairs of cells, other than the winning pair,
+//whose blend is within a Delta E threshold of the target color. A round with a rival pair
+//has more than one answer that looks right, which is not fair to the player.
+//Checking every pair is O(n^2). Instead, the cells are put into a ColorGridIndex and each
+//cell only looks for partners near its mirror color. The blend is a per channel average,
+//so blend(c1, c2) = target means c2 = 2 * target - c1. The set of colors within the
+//threshold of the target is a small Lab sphere; its extent in each sRGB channel is worked
+//out once per round from the local Jacobian of the sRGB to Lab conversion (with a safety
+//margin, and widened where the conversion flattens out), and the search box around each
+//mirror color is twice that extent. Only the cells in that box have their blend converted
+//to Lab and checked exactly. The extent is an estimate, not a bound: the margin covers
+//every rival the all pairs scans in the tests find, but a rival outside the box would be
+//missed without any sign, so a clean board is very likely, not certain, to have no rival.
+//In linear light mode (see ColorUtilities.blendLinear()) the mirror is taken in linear
+//light instead: the box the blend must be in is decoded, mirrored there and encoded back
+//into a (lopsided) sRGB box for the partner, see partnerBox().
+//This class includes:
+// - reset()  Index a board and its target for checking
+// - findRival()  Find a rival partner for one cell
+// - hasRival()  Check the whole board
+// - colorChanged()  Keep the index up to date when a cell is given a new color
+//****************************************************************************************
+
+public class BlendUniquenessChecker {
+
+    public static final float DEFAULT_THRESHOLD = 5.0f;
+    private static final float SAFETY_MARGIN = 1.5f;
+    private static final int JACOBIAN_STEP = 8;
+    private static final int REACH_PASSES = 2;
+    static final int REACH_SCRATCH_SIZE = 15;
+    //A mirror color can be anywhere from -255 to 510, so this reach always covers the cube.
+    static final int MAX_REACH = 510;
+    private final ColorGridIndex mIndex;
+    private final int[] mCandidates;
+    private final float[] mLab = new float[6];
+    private final float[] mScratch = new float[REACH_SCRATCH_SIZE];
+    private final int[] mReach = new int[3];
+    private final int[] mBox = new int[6];
+    private int[] mColors;
+    private int mCount, mWinIndex1, mWinIndex2, mTargetColor;
+    private float mThreshold = DEFAULT_THRESHOLD;
+    private boolean mLinear;
+
+    public BlendUniquenessChecker(int maxCells) {
+        mIndex = new ColorGridIndex(maxCells);
+        mCandidates = new int[maxCells];
+    }
+
+    //****************************************************************************************
+    //setThreshold() sets the Delta E under which a rival blend counts as the same color as
+    //the target.
+    //****************************************************************************************
+    public void setThreshold(float deltaE) {
+        mThreshold = deltaE;
+    }
+
+    public float getThreshold() {
+        return mThreshold;
+    }
+
+    //****************************************************************************************
+    //setLinear() says whether pairs are blended in linear light (ColorUtilities.blendLinear())
+    //rather than with ColorUtilities.blend().
+    //****************************************************************************************
+    public void setLinear(boolean linear) {
+        mLinear = linear;
+    }
+
+    public boolean isLinear() {
+        return mLinear;
+    }
+
+    //****************************************************************************************
+    //reset() indexes the first count colors and works out the search box for the target.
+    //The colors array is referenced, not copied.
+    //****************************************************************************************
+    public void reset(int[] colors, int count, int winIndex1, int winIndex2, int targetColor) {
+        mColors = colors;
+        mCount = count;
+        mWinIndex1 = winIndex1;
+        mWinIndex2 = winIndex2;
+        mTargetColor = targetColor;
+        mIndex.build(colors, count);
+        CieLab.toLab(targetColor, mLab, 0);
+        computeReach(targetColor, mThreshold, mScratch, mReach);
+    }
+
+    //****************************************************************************************
+    //colorChanged() must be called after the color of a cell is replaced.
+    //****************************************************************************************
+    public void colorChanged(int cell, int oldColor) {
+        mIndex.update(cell, oldColor);
+    }
+
+    //****************************************************************************************
+    //findRival() returns a cell that makes a rival pair with the given cell, or -1 if there
+    //is none.
+    //****************************************************************************************
+    public int findRival(int cell) {
+        int color = mColors[cell];
+        partnerBox(color, mTargetColor, mReach, mLinear, mBox);
+        int found = mIndex.query(mBox[0], mBox[1], mBox[2], mBox[3], mBox[4], mBox[5], mCandidates);
+
+        float thresholdSquared = mThreshold * mThreshold;
+        for (int i = 0; i < found; i++) {
+            int partner = mCandidates[i];
+            if (partner == cell || isWinningPair(cell, partner)) {
+                continue;
+            }
+            CieLab.toLab(ColorUtilities.blend(color, mColors[partner], mLinear), mLab, 3);
+            if (CieLab.deltaESquared(mLab, 0, mLab, 3) < thresholdSquared) {
+                return partner;
+            }
+        }
+        return -1;
+    }
+
+    //****************************************************************************************
+    //hasRival() checks every cell on the board.
+    //****************************************************************************************
+    public boolean hasRival() {
+        for (int cell = 0; cell < mCount; cell++) {
+            if (findRival(cell) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public boolean isWinningCell(int cell) {
+        return cell == mWinIndex1 || cell == mWinIndex2;
+    }
+
+    private boolean isWinningPair(int cell1, int cell2) {
+        return (cell1 == mWinIndex1 && cell2 == mWinIndex2) || (cell1 == mWinIndex2 && cell2 == mWinIndex1);
+    }
+
+    //****************************************************************************************
+    //partnerBox() writes the sRGB box a partner of color must be in for the pair to blend to
+    //within reach (see computeReach()) of the target, as red, green and blue minimum and
+    //maximum. Plain blends use the mirror color plus or minus reach. In linear light the
+    //blend must be within half the reach of the target (one more step for the rounding), so
+    //that range is decoded, mirrored around the color in linear light (one more unit for
+    //the rounding of the average) and encoded back.
+    //****************************************************************************************
+    static void partnerBox(int color, int targetColor, int[] reach, boolean linear, int[] box) {
+        for (int channel = 0; channel < 3; channel++) {
+            int shift = 16 - 8 * channel;
+            int target = (targetColor >> shift) & 0xFF;
+            int value = (color >> shift) & 0xFF;
+            if (!linear) {
+                int mirror = 2 * target - value;
+                box[2 * channel] = mirror - reach[channel];
+                box[2 * channel + 1] = mirror + reach[channel];
+                continue;
+            }
+            int half = (reach[channel] + 1) / 2 + 1;
+            int low = target - half <= 0 ? Integer.MIN_VALUE / 4 : LinearLight.toLinear(target - half);
+            int high = target + half >= 255 ? Integer.MAX_VALUE / 4 : LinearLight.toLinear(target + half);
+            int linearValue = LinearLight.toLinear(value);
+            box[2 * channel] = LinearLight.ceilEncoded(2 * low - linearValue - 1);
+            box[2 * channel + 1] = LinearLight.floorEncoded(2 * high - linearValue + 1);
+        }
+    }
+
+    //****************************************************************************************
+    //computeReach() finds how far each sRGB channel of a partner may be from the mirror color
+    //(2 * target - color) for the pair to blend to within deltaE of the target, and writes
+    //the red, green and blue reach into reach. scratch must hold REACH_SCRATCH_SIZE floats.
+    //The reach is first estimated from the Jacobian at the target (see jacobianReach()).
+    //sRGB to Lab is far from linear near the dark end of a channel, where a channel moves Lab
+    //much less than it does at the target, so the Jacobian is also taken half a reach either
+    //side of the target along each channel (as far as the blend itself can move) and the
+    //largest reach is kept. This is repeated REACH_PASSES times so the box can grow into the
+    //flat regions it finds.
+    //****************************************************************************************
+    static void computeReach(int targetColor, float deltaE, float[] scratch, int[] reach) {
+        jacobianReach(targetColor, deltaE, scratch, reach);
+        for (int pass = 0; pass < REACH_PASSES; pass++) {
+            int red = reach[0], green = reach[1], blue = reach[2];
+            int maxRed = red, maxGreen = green, maxBlue = blue;
+            for (int channel = 0; channel < 3; channel++) {
+                int half = ((channel == 0 ? red : channel == 1 ? green : blue) + 1) / 2;
+                for (int sign = -1; sign <= 1; sign += 2) {
+                    jacobianReach(moveChannel(targetColor, channel, sign * half), deltaE, scratch, reach);
+                    maxRed = Math.max(maxRed, reach[0]);
+                    maxGreen = Math.max(maxGreen, reach[1]);
+                    maxBlue = Math.max(maxBlue, reach[2]);
+                }
+            }
+            reach[0] = maxRed;
+            reach[1] = maxGreen;
+            reach[2] = maxBlue;
+        }
+    }
+
+    //****************************************************************************************
+    //jacobianReach() estimates the reach from the Jacobian of sRGB to Lab at one color. The
+    //Jacobian is estimated with finite differences and inverted; each row of the inverse
+    //gives how far that channel can move for a Delta E of one. The blend only moves half as
+    //far as the partner does, and the rounding of the blend adds one more step.
+    //****************************************************************************************
+    private static void jacobianReach(int targetColor, float deltaE, float[] scratch, int[] reach) {
+        int maxReach = MAX_REACH;
+        CieLab.toLab(targetColor, scratch, 9);
+        for (int channel = 0; channel < 3; channel++) {
+            int shift = 16 - 8 * channel;
+            int value = (targetColor >> shift) & 0xFF;
+            int step = value + JACOBIAN_STEP <= 255 ? JACOBIAN_STEP : -JACOBIAN_STEP;
+            int stepped = (targetColor & ~(0xFF << shift)) | ((value + step) << shift);
+            CieLab.toLab(stepped, scratch, 12);
+            for (int row = 0; row < 3; row++) {
+                scratch[row * 3 + channel] = (scratch[12 + row] - scratch[9 + row]) / step;
+            }
+        }
+
+        float[] j = scratch;
+        float c00 = j[4] * j[8] - j[5] * j[7];
+        float c01 = j[5] * j[6] - j[3] * j[8];
+        float c02 = j[3] * j[7] - j[4] * j[6];
+        float determinant = j[0] * c00 + j[1] * c01 + j[2] * c02;
+        if (Math.abs(determinant) < 1e-9f) {
+            reach[0] = reach[1] = reach[2] = maxReach;
+            return;
+        }
+        float scale = 2.0f * SAFETY_MARGIN * deltaE / Math.abs(determinant);
+        //Rows of the inverse are the rows of the adjugate divided by the determinant.
+        reach[0] = reach(c00, j[2] * j[7] - j[1] * j[8], j[1] * j[5] - j[2] * j[4], scale, maxReach);
+        reach[1] = reach(c01, j[0] * j[8] - j[2] * j[6], j[2] * j[3] - j[0] * j[5], scale, maxReach);
+        reach[2] = reach(c02, j[1] * j[6] - j[0] * j[7], j[0] * j[4] - j[1] * j[3], scale, maxReach);
+    }
+
+    //****************************************************************************************
+    //moveChannel() moves one channel (0 red, 1 green, 2 blue) of a color, clamped to 0..255.
+    //****************************************************************************************
+    private static int moveChannel(int color, int channel, int amount) {
+        int shift = 16 - 8 * channel;
+        int value = Math.max(0, Math.min(255, ((color >> shift) & 0xFF) + amount));
+        return (color & ~(0xFF << shift)) | (value << shift);
+    }
+
+    private static int reach(float x, float y, float z, float scale, int maxReach) {
+        double reach = Math.ceil(Math.sqrt(x * x + y * y + z * z) * scale) + 1;
+        return (int) Math.min(reach, maxReach);
+    }
+}
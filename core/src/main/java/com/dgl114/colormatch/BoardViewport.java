@@ -0,0 +1,206 @@
+package com.dgl114.colormatch;
+
+//****************************************************************************************
+//BoardViewport.java            Author: zakacat
+//
+//This class holds the geometry of the board on screen for BoardView: how big a cell and
+//the gap between cells are, how far the board is zoomed, and how far it is scrolled. It
+//has no Android dependencies so the arithmetic can be tested on its own.
+//Cells are laid out on a regular grid with a pitch of cellSize + gap, so both finding the
+//cell under a point and finding the cells on screen are a few divisions, whatever the
+//size of the board.
+//The board can be zoomed from "the whole board fits in the view" up to MAX_SCALE, and
+//scrolled as far as the board reaches past the view. A board smaller than the view is
+//centered instead.
+//This class includes:
+// - setBoardSize(), setCellSize(), setViewSize()  Set up the geometry
+// - hitTest()  Find the cell under a point on the screen
+// - getFirstVisibleRow() / getLastVisibleRow() (and columns)  The cells that need drawing
+// - panBy(), zoomBy()  Move the board in response to gestures
+//****************************************************************************************
+
+public class BoardViewport {
+
+    public static final float MAX_SCALE = 4.0f;
+    private int mNumRows, mNumCols;
+    private float mCellSize, mGap;
+    private int mViewWidth, mViewHeight;
+    private float mScale = 1.0f;
+    private float mScrollX, mScrollY;
+
+    public BoardViewport(int numRows, int numCols, float cellSize, float gap) {
+        setCellSize(cellSize, gap);
+        setBoardSize(numRows, numCols);
+    }
+
+    public void setBoardSize(int numRows, int numCols) {
+        mNumRows = numRows;
+        mNumCols = numCols;
+        clamp();
+    }
+
+    public void setCellSize(float cellSize, float gap) {
+        mCellSize = cellSize;
+        mGap = gap;
+        clamp();
+    }
+
+    public void setViewSize(int width, int height) {
+        mViewWidth = width;
+        mViewHeight = height;
+        clamp();
+    }
+
+    //****************************************************************************************
+    //getContentWidth() and getContentHeight() are the size of the whole board at a scale of
+    //one: every cell, with a gap between cells and around the edge.
+    //****************************************************************************************
+    public float getContentWidth() {
+        return mNumCols * getPitch() + mGap;
+    }
+
+    public float getContentHeight() {
+        return mNumRows * getPitch() + mGap;
+    }
+
+    public float getPitch() {
+        return mCellSize + mGap;
+    }
+
+    public float getScale() {
+        return mScale;
+    }
+
+    //****************************************************************************************
+    //getMinScale() is the scale at which the whole board fits in the view. Boards that
+    //already fit are never shrunk.
+    //****************************************************************************************
+    public float getMinScale() {
+        if (mViewWidth <= 0 || mViewHeight <= 0) {
+            return 1.0f;
+        }
+        float fit = Math.min(mViewWidth / getContentWidth(), mViewHeight / getContentHeight());
+        return Math.min(1.0f, fit);
+    }
+
+    //****************************************************************************************
+    //getLeft() and getTop() are the screen position of the board's top left corner.
+    //****************************************************************************************
+    public float getLeft() {
+        return -mScrollX;
+    }
+
+    public float getTop() {
+        return -mScrollY;
+    }
+
+    public float getCellLeft(int col) {
+        return getLeft() + (mGap + col * getPitch()) * mScale;
+    }
+
+    public float getCellTop(int row) {
+        return getTop() + (mGap + row * getPitch()) * mScale;
+    }
+
+    public float getScaledCellSize() {
+        return mCellSize * mScale;
+    }
+
+    //****************************************************************************************
+    //hitTest() returns the cell (as row * numCols + col) under the screen point x, y, or -1
+    //if the point is in a gap or off the board.
+    //****************************************************************************************
+    public int hitTest(float x, float y) {
+        int col = cellAt((x - getLeft()) / mScale, mNumCols);
+        int row = cellAt((y - getTop()) / mScale, mNumRows);
+        return col < 0 || row < 0 ? -1 : row * mNumCols + col;
+    }
+
+    private int cellAt(float position, int count) {
+        float offset = position - mGap;
+        if (offset < 0) {
+            return -1;
+        }
+        int cell = (int) (offset / getPitch());
+        if (cell >= count || offset - cell * getPitch() >= mCellSize) {
+            return -1;
+        }
+        return cell;
+    }
+
+    //****************************************************************************************
+    //The first and last visible row and column bound the cells that overlap the view, so
+    //drawing only ever looks at about as many cells as fit on the screen.
+    //****************************************************************************************
+    public int getFirstVisibleRow() {
+        return firstVisible(getTop(), mNumRows);
+    }
+
+    public int getLastVisibleRow() {
+        return lastVisible(getTop(), mViewHeight, mNumRows);
+    }
+
+    public int getFirstVisibleCol() {
+        return firstVisible(getLeft(), mNumCols);
+    }
+
+    public int getLastVisibleCol() {
+        return lastVisible(getLeft(), mViewWidth, mNumCols);
+    }
+
+    private int firstVisible(float start, int count) {
+        int cell = (int) Math.floor((-start / mScale - mGap - mCellSize) / getPitch()) + 1;
+        return Math.max(0, Math.min(cell, count - 1));
+    }
+
+    private int lastVisible(float start, int viewSize, int count) {
+        int cell = (int) Math.floor(((viewSize - start) / mScale - mGap) / getPitch());
+        return Math.max(-1, Math.min(cell, count - 1));
+    }
+
+    public boolean isCellVisible(int index) {
+        int row = index / mNumCols;
+        int col = index % mNumCols;
+        return row >= getFirstVisibleRow() && row <= getLastVisibleRow()
+                && col >= getFirstVisibleCol() && col <= getLastVisibleCol();
+    }
+
+    //****************************************************************************************
+    //panBy() scrolls the board by dx, dy screen pixels (positive moves the board left/up).
+    //****************************************************************************************
+    public void panBy(float dx, float dy) {
+        mScrollX += dx;
+        mScrollY += dy;
+        clamp();
+    }
+
+    //****************************************************************************************
+    //zoomBy() multiplies the scale by factor, keeping the point under focusX, focusY still.
+    //****************************************************************************************
+    public void zoomBy(float factor, float focusX, float focusY) {
+        float scale = Math.max(getMinScale(), Math.min(mScale * factor, MAX_SCALE));
+        float contentX = (focusX + mScrollX) / mScale;
+        float contentY = (focusY + mScrollY) / mScale;
+        mScale = scale;
+        mScrollX = contentX * scale - focusX;
+        mScrollY = contentY * scale - focusY;
+        clamp();
+    }
+
+    //****************************************************************************************
+    //clamp() keeps the scale in range and the board on screen. Along an axis where the
+    //board is smaller than the view, it is centered.
+    //****************************************************************************************
+    private void clamp() {
+        mScale = Math.max(getMinScale(), Math.min(mScale, MAX_SCALE));
+        mScrollX = clampScroll(mScrollX, getContentWidth() * mScale, mViewWidth);
+        mScrollY = clampScroll(mScrollY, getContentHeight() * mScale, mViewHeight);
+    }
+
+    private static float clampScroll(float scroll, float content, int view) {
+        if (content <= view) {
+            return -(view - content) / 2;
+        }
+        return Math.max(0, Math.min(scroll, content - view));
+    }
+}
@@ -0,0 +1,134 @@
+package com.dgl114.colormatch;
+
+//****************************************************************************************
+//CieLab.java           Author: zakacat
+//
+//This class converts packed sRGB colors into CIELAB (D65 white point) so that colors can be
+//compared the way people see them. The distance between two Lab colors is the CIE76
+//Delta E; a Delta E of about 2.3 is the smallest difference most people can notice.
+//The sRGB to Lab conversion is table driven. Each 8 bit channel is looked up in
+//precomputed tables that already hold its linearized contribution to X, Y and Z, so a
+//conversion is nine table reads, a few adds and three cube roots, with no Math.pow().
+//Lab values are written into a caller supplied float array as L, a, b so that nothing is
+//allocated. The powers and cube roots come from StrictMath rather than Math, which may
+//differ in the last bit between JVMs and Android versions; boards are generated from
+//these values, so a seed has to give the same ones everywhere.
+//toColor() goes the other way, for generating colors in Lab space. Lab colors outside the
+//sRGB gamut are clipped to it, and the sRGB transfer function is a table lookup as well.
+//****************************************************************************************
+
+public final class CieLab {
+
+    private static final double WHITE_X = 0.95047;
+    private static final double WHITE_Z = 1.08883;
+    private static final float EPSILON = 216.0f / 24389.0f;
+    private static final float KAPPA = 24389.0f / 27.0f;
+    private static final int ENCODE_BITS = 12;
+    private static final int ENCODE_MAX = (1 << ENCODE_BITS) - 1;
+
+    //Per channel contributions to X / Xn, Y and Z / Zn, indexed by the 8 bit channel value.
+    private static final float[] RED_X = new float[256], RED_Y = new float[256], RED_Z = new float[256];
+    private static final float[] GREEN_X = new float[256], GREEN_Y = new float[256], GREEN_Z = new float[256];
+    private static final float[] BLUE_X = new float[256], BLUE_Y = new float[256], BLUE_Z = new float[256];
+    //The 8 bit sRGB value of a linear channel, indexed by the linear value * ENCODE_MAX.
+    private static final byte[] ENCODE = new byte[ENCODE_MAX + 1];
+
+    static {
+        for (int value = 0; value < 256; value++) {
+            double linear = toLinear(value / 255.0);
+            RED_X[value] = (float) (0.4124564 * linear / WHITE_X);
+            RED_Y[value] = (float) (0.2126729 * linear);
+            RED_Z[value] = (float) (0.0193339 * linear / WHITE_Z);
+            GREEN_X[value] = (float) (0.3575761 * linear / WHITE_X);
+            GREEN_Y[value] = (float) (0.7151522 * linear);
+            GREEN_Z[value] = (float) (0.1191920 * linear / WHITE_Z);
+            BLUE_X[value] = (float) (0.1804375 * linear / WHITE_X);
+            BLUE_Y[value] = (float) (0.0721750 * linear);
+            BLUE_Z[value] = (float) (0.9503041 * linear / WHITE_Z);
+        }
+        for (int index = 0; index <= ENCODE_MAX; index++) {
+            ENCODE[index] = (byte) Math.round(255.0 * toEncoded((double) index / ENCODE_MAX));
+        }
+    }
+
+    private CieLab() {
+    }
+
+    //****************************************************************************************
+    //toLab() converts an sRGB color (alpha is ignored) and writes L, a and b into
+    //lab[offset], lab[offset + 1] and lab[offset + 2].
+    //****************************************************************************************
+    public static void toLab(int color, float[] lab, int offset) {
+        int red = ColorUtilities.red(color);
+        int green = ColorUtilities.green(color);
+        int blue = ColorUtilities.blue(color);
+
+        float fx = f(RED_X[red] + GREEN_X[green] + BLUE_X[blue]);
+        float fy = f(RED_Y[red] + GREEN_Y[green] + BLUE_Y[blue]);
+        float fz = f(RED_Z[red] + GREEN_Z[green] + BLUE_Z[blue]);
+
+        lab[offset] = 116.0f * fy - 16.0f;
+        lab[offset + 1] = 500.0f * (fx - fy);
+        lab[offset + 2] = 200.0f * (fy - fz);
+    }
+
+    //****************************************************************************************
+    //toColor() converts L, a and b at lab[offset] onwards into an opaque sRGB color. Each
+    //linear channel is clipped to 0..1, so a Lab color outside the gamut comes back as a
+    //nearby color that is inside it.
+    //****************************************************************************************
+    public static int toColor(float[] lab, int offset) {
+        float fy = (lab[offset] + 16.0f) / 116.0f;
+        float fx = fy + lab[offset + 1] / 500.0f;
+        float fz = fy - lab[offset + 2] / 200.0f;
+        float x = (float) WHITE_X * fInverse(fx);
+        float y = fInverse(fy);
+        float z = (float) WHITE_Z * fInverse(fz);
+
+        int red = encode(3.2404542f * x - 1.5371385f * y - 0.4985314f * z);
+        int green = encode(-0.9692660f * x + 1.8760108f * y + 0.0415560f * z);
+        int blue = encode(0.0556434f * x - 0.2040259f * y + 1.0572252f * z);
+        return ColorUtilities.rgb(red, green, blue);
+    }
+
+    //****************************************************************************************
+    //deltaESquared() is the squared CIE76 distance between two Lab colors. Comparing squared
+    //distances against a squared threshold saves a square root per comparison.
+    //****************************************************************************************
+    public static float deltaESquared(float[] lab1, int offset1, float[] lab2, int offset2) {
+        float dl = lab1[offset1] - lab2[offset2];
+        float da = lab1[offset1 + 1] - lab2[offset2 + 1];
+        float db = lab1[offset1 + 2] - lab2[offset2 + 2];
+        return dl * dl + da * da + db * db;
+    }
+
+    public static float deltaE(float[] lab1, int offset1, float[] lab2, int offset2) {
+        return (float) Math.sqrt(deltaESquared(lab1, offset1, lab2, offset2));
+    }
+
+    //****************************************************************************************
+    //toLinear() is the sRGB transfer function, used to fill the tables (here and in
+    //LinearLight).
+    //****************************************************************************************
+    static double toLinear(double encoded) {
+        return encoded <= 0.04045 ? encoded / 12.92 : StrictMath.pow((encoded + 0.055) / 1.055, 2.4);
+    }
+
+    static double toEncoded(double linear) {
+        return linear <= 0.0031308 ? linear * 12.92 : 1.055 * StrictMath.pow(linear, 1 / 2.4) - 0.055;
+    }
+
+    private static int encode(float linear) {
+        int index = Math.round(linear * ENCODE_MAX);
+        return ENCODE[Math.max(0, Math.min(ENCODE_MAX, index))] & 0xFF;
+    }
+
+    private static float fInverse(float t) {
+        float cube = t * t * t;
+        return cube > EPSILON ? cube : (116.0f * t - 16.0f) / KAPPA;
+    }
+
+    private static float f(float t) {
+        return t > EPSILON ? (float) StrictMath.cbrt(t) : (KAPPA * t + 16.0f) / 116.0f;
+    }
+}
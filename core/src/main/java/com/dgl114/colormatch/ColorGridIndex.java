@@ -0,0 +1,137 @@
+package com.dgl114.colormatch;
+
+import java.util.Arrays;
+
+//****************************************************************************************
+//ColorGridIndex.java           Author: zakacat
+//
+//This is a spatial index over the cells of a board, keyed on their sRGB color. The RGB
+//cube is cut into a uniform grid of buckets and each bucket holds a linked list of the
+//cells whose color falls into it, so finding the cells inside a color box only looks at
+//the buckets that overlap the box instead of at every cell.
+//The grid gets finer as the board gets bigger (about one cell per bucket, from 2 up to
+//16 buckets per axis). All arrays are allocated up front for the largest board the index
+//was created for (so a 3x3 board only gets 64 buckets, not 4096), and cells can be moved
+//when their color changes, so rebuilding and updating the index never allocates.
+//****************************************************************************************
+
+public class ColorGridIndex {
+
+    private static final int MAX_BITS = 4;
+    private static final int NONE = -1;
+    private final int[] mHead;
+    private final int[] mNext;
+    private final int mMaxBits;
+    private int[] mColors;
+    private int mCount;
+    private int mBits, mShift;
+
+    public ColorGridIndex(int maxCells) {
+        mMaxBits = bitsFor(maxCells);
+        mHead = new int[1 << (3 * mMaxBits)];
+        mNext = new int[maxCells];
+    }
+
+    //****************************************************************************************
+    //build() indexes the first count colors. The index keeps a reference to the array, so
+    //update() must be called whenever one of those colors changes.
+    //****************************************************************************************
+    public void build(int[] colors, int count) {
+        mColors = colors;
+        mCount = count;
+        int bits = Math.min(bitsFor(count), mMaxBits);
+        mBits = bits;
+        mShift = 8 - bits;
+        Arrays.fill(mHead, 0, 1 << (3 * bits), NONE);
+        for (int cell = 0; cell < count; cell++) {
+            insert(cell, colors[cell]);
+        }
+    }
+
+    //****************************************************************************************
+    //update() moves a cell to its new bucket. oldColor is the color the cell was indexed with.
+    //****************************************************************************************
+    public void update(int cell, int oldColor) {
+        int bucket = bucketOf(oldColor);
+        int previous = NONE;
+        for (int current = mHead[bucket]; current != NONE; current = mNext[current]) {
+            if (current == cell) {
+                if (previous == NONE) {
+                    mHead[bucket] = mNext[current];
+                }
+                else {
+                    mNext[previous] = mNext[current];
+                }
+                break;
+            }
+            previous = current;
+        }
+        insert(cell, mColors[cell]);
+    }
+
+    //****************************************************************************************
+    //query() writes every cell whose color lies inside the box (bounds inclusive, per
+    //channel) into out and returns how many were written. out must have room for every
+    //indexed cell.
+    //****************************************************************************************
+    public int query(int minRed, int maxRed, int minGreen, int maxGreen, int minBlue, int maxBlue,
+                     int[] out) {
+        minRed = Math.max(minRed, 0);
+        minGreen = Math.max(minGreen, 0);
+        minBlue = Math.max(minBlue, 0);
+        maxRed = Math.min(maxRed, 255);
+        maxGreen = Math.min(maxGreen, 255);
+        maxBlue = Math.min(maxBlue, 255);
+        if (minRed > maxRed || minGreen > maxGreen || minBlue > maxBlue) {
+            return 0;
+        }
+
+        int found = 0;
+        for (int r = minRed >> mShift; r <= maxRed >> mShift; r++) {
+            for (int g = minGreen >> mShift; g <= maxGreen >> mShift; g++) {
+                for (int b = minBlue >> mShift; b <= maxBlue >> mShift; b++) {
+                    int bucket = (((r << mBits) | g) << mBits) | b;
+                    for (int cell = mHead[bucket]; cell != NONE; cell = mNext[cell]) {
+                        int color = mColors[cell];
+                        int red = ColorUtilities.red(color);
+                        int green = ColorUtilities.green(color);
+                        int blue = ColorUtilities.blue(color);
+                        if (red >= minRed && red <= maxRed && green >= minGreen && green <= maxGreen
+                                && blue >= minBlue && blue <= maxBlue) {
+                            out[found++] = cell;
+                        }
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    public int getCount() {
+        return mCount;
+    }
+
+    //****************************************************************************************
+    //bitsFor() is the number of bits per axis that gives about one bucket per cell.
+    //****************************************************************************************
+    private static int bitsFor(int count) {
+        int bits = 1;
+        while (bits < MAX_BITS && (1 << (3 * bits)) < count) {
+            bits++;
+        }
+        return bits;
+    }
+
+    private void insert(int cell, int color) {
+        int bucket = bucketOf(color);
+        mNext[cell] = mHead[bucket];
+        mHead[bucket] = cell;
+    }
+
+    private int bucketOf(int color) {
+        int r = ColorUtilities.red(color) >> mShift;
+        int g = ColorUtilities.green(color) >> mShift;
+        int b = ColorUtilities.blue(color) >> mShift;
+        return (((r << mBits) | g) << mBits) | b;
+    }
+}
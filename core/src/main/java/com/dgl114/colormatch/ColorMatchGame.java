@@ -0,0 +1,774 @@
+package com.dgl114.colormatch;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+//****************************************************************************************
+//ColorMatchGame.java           Author: zakacat
+//
+//This is the model portion of the app and it contains most of the game logic.
+//The board is stored as a flat int array of packed ARGB colors (row-major, so the cell at
+//row, col lives at index row * numCols + col) and the selection is stored as a bitset
+//with one bit per cell. Both are allocated once and reused for every round, and a single
+//RoundRandom is kept for the life of the game, so starting a round, restoring state and
+//toggling cells do not create any garbage.
+//Rounds are deterministic. Round k of a game is generated from its round key,
+//RoundRandom.roundKey(seed, k), and the same key always gives the same board (for the
+//same board size, uniqueness threshold and difficulty). newGame(roundKey) regenerates any
+//round directly, without playing the rounds before it.
+//The winning colors are uniform random colors. The difficulty (0 to 1) sets how close the
+//other cells look to the winning colors and the target (see DistractorSampler).
+//Boards can be anywhere from MIN_SIZE x MIN_SIZE to MAX_SIZE x MAX_SIZE. The number of
+//selected cells is kept up to date on every toggle, so toggling and checking a selection
+//cost the same on a 256x256 board as on the default 3x3 one.
+//Every new round is checked with a BlendUniquenessChecker so that no other pair of cells
+//blends to within the uniqueness threshold (a CIELAB Delta E) of the target color. This is
+//done for boards of up to MAX_UNIQUE_CELLS cells. It is a best effort, not a proof: the
+//checker only looks for partners in a search box estimated with a safety margin (see
+//BlendUniquenessChecker.computeReach()), and the re-rolls are capped so that a round is
+//always made in bounded time. A round whose re-rolls ran out with a rival still on the
+//board is handed out anyway and counted in Metrics.UNIQUE_GIVE_UPS.
+//The target can also be the blend of more cells, from MIN_BLEND_SIZE to MAX_BLEND_SIZE
+//(see setBlendSize()), and the player then has to select that many. Those rounds are
+//checked with a SubsetUniquenessChecker instead, so that no other subset of that many cells
+//blends to the target. The checker can only handle so many subsets, so the larger blends
+//are only allowed on boards small enough to check (see getMaxBlendSize()). The blend of k uniform random colors lands near mid grey, right
+//where the blends of the many other subsets crowd together, so the winning colors of these
+//rounds are drawn from a box at a random corner of the RGB cube (CORNER_WIDTH wide) instead,
+//which puts the target where few other subsets can reach.
+//Targets are normally blended by averaging the sRGB values (ColorUtilities.blend()). With
+//setLinearBlend() they are blended in linear light instead (ColorUtilities.blendLinear()),
+//which is how the colors would really mix, and both checkers look for rivals the same way.
+//The game also keeps a change set: the cells whose color or selection changed since
+//clearChanges() was last called, and whether the target color changed. The view only
+//needs to redraw those cells, so a tap costs the same on any board size. A new round
+//marks the whole board as changed with a single flag instead of cell by cell.
+//This class includes:
+// - ColorMatchGame() Constructors for the default board and for a custom size
+// - newGame()  A way to generate the colors of the board, for the next round or from a
+//              round key
+// - chooseWinningCombination()  A way to randomly choose the winning cells
+// - setDifficulty()  How close the other colors are to the winning colors and the target
+// - setBlendSize()  How many cells the target is a blend of
+// - setLinearBlend()  Whether the target is blended in linear light
+// - ensureUniqueSolution()  A way to re-roll colors until the winning pair is the only
+//                           pair that blends to the target
+// - ensureUniqueBlend()  The same for rounds that blend more than two cells
+// - toggleButtonSelection()  A way to toggle the button selection on/off which also
+//                            includes code to inhibit selecting more buttons than the target
+//                            is a blend of
+// - resetSelection()   A way to reset the selection at the start of each new game
+// - isGameOver()  A way to check if the game is over or not by comparing the selected buttons
+//                  with the winning combination
+// - evaluateGuesses(), evaluateSelections()  Score a batch of guesses at once, for bots
+//                                            and replays
+// - Setters for - Game State and Selected State
+// - Getters for - Game State and Selected State
+//               - Winning selection and their corresponding spots in the 2d array
+//               - If button is selected.
+//               - Color value of button to be accessed by Main Activity
+// - getChangedCellCount(), getChangedCell(), getChangeFlags(), clearChanges()  The change set
+//****************************************************************************************
+
+public class ColorMatchGame {
+
+    public static final int NUM_ROWS = 3;
+    public static final int NUM_COLS = 3;
+    public static final int MIN_SIZE = 3;
+    public static final int MAX_SIZE = 256;
+    public static final int MAX_UNIQUE_CELLS = 64 * 64;
+    public static final int CHANGED_COLOR = 1;
+    public static final int CHANGED_SELECTION = 2;
+    public static final float MIN_DIFFICULTY = 0.0f;
+    public static final float MAX_DIFFICULTY = 1.0f;
+    public static final int MIN_BLEND_SIZE = 2;
+    public static final int MAX_BLEND_SIZE = SubsetUniquenessChecker.MAX_SUBSET_SIZE;
+    //Winning colors of rounds that blend more than two cells have every channel within this
+    //much of the same corner of the RGB cube.
+    static final int CORNER_WIDTH = 32;
+    //Near distractors stay this many uniqueness thresholds from the winning colors and the
+    //target, and at least MIN_NEAR_DELTA_E (about the smallest difference people notice).
+    private static final float NEAR_THRESHOLDS = 2.5f;
+    private static final float MIN_NEAR_DELTA_E = 3.0f;
+    private static final int EXTRA_REROLLS = 64;
+    private final int mNumRows, mNumCols, mNumCells;
+    private final int[] mColors;
+    private final long[] mSelected;
+    private final RoundRandom mRandom = new RoundRandom();
+    private final DistractorSampler mSampler = new DistractorSampler();
+    private float mDifficulty = MIN_DIFFICULTY;
+    private boolean mLinearBlend;
+    private final long mSeed;
+    private long mNextRound;
+    private final BlendUniquenessChecker mUniqueness;
+    private final SubsetUniquenessChecker mSubsetUniqueness = new SubsetUniquenessChecker();
+    private int mSelectedCount;
+    private int mBlendSize = MIN_BLEND_SIZE;
+    //The winning cells of the round, in the order they were drawn, and how many there are.
+    private final int[] mWinCells = new int[MAX_BLEND_SIZE];
+    private int mWinCount = MIN_BLEND_SIZE;
+    private final int[] mSortedCells = new int[MAX_BLEND_SIZE];
+    //Rivals found in one pass of ensureUniqueBlend(), and the cells re-rolled in that pass.
+    private static final int MAX_RIVALS_PER_PASS = 64;
+    private final int[] mRivals = new int[MAX_RIVALS_PER_PASS * MAX_BLEND_SIZE];
+    private final long[] mRerolled;
+    private int mBlendedColor;
+    private final byte[] mChangeFlags;
+    private final int[] mChangedCells;
+    private int mChangedCount;
+    private boolean mAllChanged, mBlendedColorChanged;
+
+    public ColorMatchGame() {
+        this(NUM_ROWS, NUM_COLS);
+    }
+
+    public ColorMatchGame(int numRows, int numCols) {
+        this(numRows, numCols, new SplittableRandom().nextLong());
+    }
+
+    //****************************************************************************************
+    //This constructor lets the caller supply the random number generator, so headless code
+    //such as MonteCarloSimulator can give each worker thread its own split of one seed.
+    //****************************************************************************************
+    ColorMatchGame(int numRows, int numCols, SplittableRandom random) {
+        this(numRows, numCols, random.nextLong());
+    }
+
+    //****************************************************************************************
+    //This constructor plays the rounds of the given seed, starting from round 0. Two games
+    //with the same seed and board size play the same rounds.
+    //****************************************************************************************
+    public ColorMatchGame(int numRows, int numCols, long seed) {
+        checkBoardSize(numRows, numCols);
+        mNumRows = numRows;
+        mNumCols = numCols;
+        mNumCells = numRows * numCols;
+        mColors = new int[mNumCells];
+        mSelected = new long[(mNumCells + 63) >>> 6];
+        mRerolled = new long[mSelected.length];
+        mSeed = seed;
+        mUniqueness = new BlendUniquenessChecker(Math.min(mNumCells, MAX_UNIQUE_CELLS));
+        mChangeFlags = new byte[mNumCells];
+        mChangedCells = new int[mNumCells];
+        mAllChanged = true;
+        mBlendedColorChanged = true;
+    }
+    //****************************************************************************************
+    //checkBoardSize() throws an IllegalArgumentException if a game can't have that many rows
+    //and columns, so that classes sized for a board can check it without making a game.
+    //****************************************************************************************
+    public static void checkBoardSize(int numRows, int numCols) {
+        if (numRows < MIN_SIZE || numRows > MAX_SIZE || numCols < MIN_SIZE || numCols > MAX_SIZE) {
+            throw new IllegalArgumentException("Board must be between " + MIN_SIZE + "x" + MIN_SIZE
+                    + " and " + MAX_SIZE + "x" + MAX_SIZE + ": " + numRows + "x" + numCols);
+        }
+    }
+
+    //****************************************************************************************
+    //newGame() generates the next round of the game's seed.
+    //****************************************************************************************
+    public void newGame() {
+        newGame(RoundRandom.roundKey(mSeed, mNextRound++));
+    }
+
+    //****************************************************************************************
+    //newGame() with a round key chooses the winning combination (as many cells as the blend
+    //size) and gives its cells random colors, which are blended into the target color. Every
+    //other cell is then given a color from the DistractorSampler, at the game's difficulty.
+    //Swapping one winning color for another color moves the blend by only 1 / k of the
+    //difference, so near distractors are kept k / 2 times further away. Every random number
+    //is drawn from the round key, so the round is a pure function of it. When metrics are
+    //on, the time it takes is recorded (see Metrics).
+    //****************************************************************************************
+    public void newGame(long roundKey) {
+        boolean measured = Metrics.isEnabled();
+        long start = measured ? System.nanoTime() : 0;
+        mRandom.reset(roundKey);
+        mWinCount = mBlendSize;
+        chooseWinningCombination();
+        if (mWinCount == 2) {
+            mColors[mWinCells[0]] = DistractorSampler.uniformColor(mRandom.nextLong());
+            mColors[mWinCells[1]] = DistractorSampler.uniformColor(mRandom.nextLong());
+        }
+        else {
+            int corner = mRandom.nextInt(8);
+            for (int i = 0; i < mWinCount; i++) {
+                mColors[mWinCells[i]] = DistractorSampler.cornerColor(mRandom.nextLong(), corner, CORNER_WIDTH);
+            }
+        }
+        mBlendedColor = ColorUtilities.blend(mColors, mWinCells, mWinCount, mLinearBlend);
+        float near = Math.max(NEAR_THRESHOLDS * mUniqueness.getThreshold() * mWinCount / 2, MIN_NEAR_DELTA_E);
+        mSampler.reset(mRandom, mColors[mWinCells[0]], mColors[mWinCells[1]], mBlendedColor, mDifficulty, near);
+        for (int index = 0; index < mNumCells; index++) {
+            if (!isWinningCell(index)) {
+                mColors[index] = mSampler.next();
+            }
+        }
+        if (mWinCount == 2) {
+            ensureUniqueSolution();
+        }
+        else {
+            ensureUniqueBlend();
+        }
+        mAllChanged = true;
+        mBlendedColorChanged = true;
+        if (measured) {
+            Metrics.record(Metrics.NEW_GAME, System.nanoTime() - start);
+            Metrics.increment(Metrics.ROUNDS);
+        }
+    }
+
+    //****************************************************************************************
+    //newWinningCells() draws only the winning cells of the next round, exactly as newGame()
+    //would, and leaves the colors and the target alone. It is for MonteCarloSimulator, which
+    //measures how fair the choice of winning cells is and has no use for the colors.
+    //****************************************************************************************
+    void newWinningCells() {
+        mRandom.reset(RoundRandom.roundKey(mSeed, mNextRound++));
+        mWinCount = mBlendSize;
+        chooseWinningCombination();
+    }
+
+    //****************************************************************************************
+    //chooseWinningCombination() picks mWinCount different cells anywhere on the board, with
+    //every combination equally likely. The i-th cell is drawn from the numCells - i cells
+    //that are left, by skipping over the cells already chosen (kept sorted in mSortedCells).
+    //(This used to pick from the top left 2x2 cells only, and could keep the second cell of
+    //the previous round.)
+    //****************************************************************************************
+    private void chooseWinningCombination(){
+        for (int i = 0; i < mWinCount; i++) {
+            int cell = mRandom.nextInt(mNumCells - i);
+            int position = 0;
+            while (position < i && cell >= mSortedCells[position]) {
+                cell++;
+                position++;
+            }
+            System.arraycopy(mSortedCells, position, mSortedCells, position + 1, i - position);
+            mSortedCells[position] = cell;
+            mWinCells[i] = cell;
+        }
+    }
+
+    //****************************************************************************************
+    //ensureUniqueSolution() looks for rival pairs (see BlendUniquenessChecker) one cell at a
+    //time. The winning colors and the target never change, so a rival pair is broken up by
+    //giving its non-winning cell a new distractor color, and that cell is then re-checked until
+    //it is clean. The number of re-rolls is capped so a round is always produced in bounded
+    //time; boards of a few hundred cells never get near the cap. If the cap is reached, the
+    //whole board is checked once more and a rival left on it is counted as a give up (see
+    //Metrics.UNIQUE_GIVE_UPS). Boards over
+    //MAX_UNIQUE_CELLS are skipped: with that many cells the pair blends cover the color
+    //space too densely for any useful threshold to be met. A threshold of zero turns this off.
+    //****************************************************************************************
+    private void ensureUniqueSolution() {
+        if (mUniqueness.getThreshold() <= 0 || mNumCells > MAX_UNIQUE_CELLS) {
+            return;
+        }
+        mUniqueness.reset(mColors, mNumCells, mWinCells[0], mWinCells[1], mBlendedColor);
+        int maxRerolls = 8 * mNumCells + EXTRA_REROLLS;
+        int rerolls = maxRerolls;
+
+        for (int cell = 0; cell < mNumCells && rerolls > 0; cell++) {
+            int rival = mUniqueness.findRival(cell);
+            while (rival >= 0 && rerolls > 0) {
+                int reroll = mUniqueness.isWinningCell(cell) ? rival : cell;
+                do {
+                    int oldColor = mColors[reroll];
+                    mColors[reroll] = mSampler.next();
+                    mUniqueness.colorChanged(reroll, oldColor);
+                    rerolls--;
+                } while (reroll != cell && rerolls > 0 && mUniqueness.findRival(reroll) >= 0);
+                rival = mUniqueness.findRival(cell);
+            }
+        }
+        if (Metrics.isEnabled()) {
+            Metrics.add(Metrics.REROLLS, maxRerolls - rerolls);
+            if (rerolls == 0 && mUniqueness.hasRival()) {
+                Metrics.increment(Metrics.UNIQUE_GIVE_UPS);
+            }
+        }
+    }
+
+    //****************************************************************************************
+    //ensureUniqueBlend() does the same for rounds that blend more than two cells. Each pass
+    //asks the SubsetUniquenessChecker for up to MAX_RIVALS_PER_PASS rival subsets and breaks
+    //up every one that is still whole by giving one of its non-winning cells a new
+    //distractor color; the board is then checked again. A new color seldom makes a new
+    //rival, so a round takes a pass or two. The re-rolls are capped the same way, and a
+    //rival left when they run out is counted the same way. setBlendSize() only allows blend
+    //sizes the checker can handle on the board, so every round is checked.
+    //****************************************************************************************
+    private void ensureUniqueBlend() {
+        if (mSubsetUniqueness.getThreshold() <= 0) {
+            return;
+        }
+        mSubsetUniqueness.reset(mColors, mNumCells, mWinCells, 0, mWinCount, mBlendedColor);
+        int maxRerolls = 8 * mNumCells + EXTRA_REROLLS;
+        int rerolls = maxRerolls;
+        int found;
+        while (rerolls > 0 && (found = mSubsetUniqueness.findRivals(mRivals, MAX_RIVALS_PER_PASS)) > 0) {
+            Arrays.fill(mRerolled, 0L);
+            for (int rival = 0; rival < found && rerolls > 0; rival++) {
+                int reroll = -1;
+                for (int i = rival * mWinCount; i < (rival + 1) * mWinCount; i++) {
+                    int cell = mRivals[i];
+                    if ((mRerolled[cell >>> 6] & (1L << cell)) != 0) {
+                        reroll = -1;
+                        break;
+                    }
+                    if (reroll < 0 && !isWinningCell(cell)) {
+                        reroll = cell;
+                    }
+                }
+                if (reroll >= 0) {
+                    mColors[reroll] = mSampler.next();
+                    mRerolled[reroll >>> 6] |= 1L << reroll;
+                    rerolls--;
+                }
+            }
+        }
+        if (Metrics.isEnabled()) {
+            Metrics.add(Metrics.REROLLS, maxRerolls - rerolls);
+            if (rerolls == 0 && mSubsetUniqueness.findRivals(mRivals, 1) > 0) {
+                Metrics.increment(Metrics.UNIQUE_GIVE_UPS);
+            }
+        }
+    }
+
+    //****************************************************************************************
+    //toggleButtonSelection() takes the row and column numbers as parameters and as long
+    //as fewer buttons are selected than the target is a blend of, an unselected button can be
+    //selected. There are no constraints for changing a selected button to unselected.
+    //****************************************************************************************
+    public void toggleButtonSelection(int row, int col) {
+        int index = index(row, col);
+
+        if (isSelected(index)) {
+            mSelected[index >>> 6] &= ~(1L << index);
+            mSelectedCount--;
+            markChanged(index, CHANGED_SELECTION);
+        }
+        else {
+            if (mSelectedCount < mWinCount) {
+                mSelected[index >>> 6] |= 1L << index;
+                mSelectedCount++;
+                markChanged(index, CHANGED_SELECTION);
+            }
+        }
+    }
+    //****************************************************************************************
+    //resetSelection() clears the selection bitset. This is used every time a new game is
+    //started.
+    //****************************************************************************************
+    public void resetSelection() {
+        if (mSelectedCount > 0) {
+            for (int word = 0; word < mSelected.length; word++) {
+                markSelectionChanged(word, mSelected[word]);
+            }
+        }
+        Arrays.fill(mSelected, 0L);
+        mSelectedCount = 0;
+    }
+    //****************************************************************************************
+    //isGameOver() checks that exactly as many cells are selected as there are winning cells,
+    //and that all of them are the winning cells. Only the winning bits are looked at, never
+    //the rest of the board.
+    //****************************************************************************************
+    public boolean isGameOver() {
+        if (mSelectedCount != mWinCount) {
+            return false;
+        }
+        for (int i = 0; i < mWinCount; i++) {
+            if (!isSelected(mWinCells[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //****************************************************************************************
+    //evaluateGuesses() scores count guesses against this round without touching the
+    //selection, getWinCount() cells per guess, and evaluateSelections() does the same for
+    //bitmask guesses of getSelectionWordCount() longs each (see GuessEvaluator). correct[i]
+    //is what isGameOver() would say for guess i, and the number correct is returned.
+    //****************************************************************************************
+    public int evaluateGuesses(int[] guesses, int count, boolean[] correct) {
+        return GuessEvaluator.evaluate(mWinCells, 0, mWinCount, guesses, count, correct);
+    }
+
+    public int evaluateSelections(long[] masks, int count, boolean[] correct) {
+        return GuessEvaluator.evaluateMasks(mWinCells, 0, mWinCount, masks, mSelected.length, count, correct);
+    }
+    //****************************************************************************************
+    //Setters
+    //****************************************************************************************
+    //****************************************************************************************
+    //setState() copies the saved colors into the existing board.
+    //****************************************************************************************
+    public void setState(int[] colors) {
+        System.arraycopy(colors, 0, mColors, 0, mNumCells);
+        mAllChanged = true;
+    }
+
+    //****************************************************************************************
+    //loadRound() replaces the board with a round generated somewhere else (see RoundProducer).
+    //The colors are copied from colors[offset] onwards, the winCount winning cells from
+    //winCells[winOffset] onwards, and the selection is cleared. The round key is kept so that
+    //getRoundKey() still names the round.
+    //****************************************************************************************
+    void loadRound(int[] colors, int offset, int[] winCells, int winOffset, int winCount,
+                   int blendedColor, long roundKey) {
+        System.arraycopy(colors, offset, mColors, 0, mNumCells);
+        mRandom.reset(roundKey);
+        setWinningCells(winCells, winOffset, winCount, blendedColor);
+        resetSelection();
+        mAllChanged = true;
+    }
+
+    //****************************************************************************************
+    //setUniquenessThreshold() sets the Delta E that another pair's blend must stay away from
+    //the target by. Zero turns the check off.
+    //****************************************************************************************
+    public void setUniquenessThreshold(float deltaE) {
+        mUniqueness.setThreshold(deltaE);
+        mSubsetUniqueness.setThreshold(deltaE);
+    }
+
+    //****************************************************************************************
+    //setDifficulty() sets how close the other colors of the next rounds are to the winning
+    //colors and the target, from MIN_DIFFICULTY (uniform random colors) to MAX_DIFFICULTY.
+    //****************************************************************************************
+    public void setDifficulty(float difficulty) {
+        if (!(difficulty >= MIN_DIFFICULTY && difficulty <= MAX_DIFFICULTY)) {
+            throw new IllegalArgumentException("Difficulty must be between " + MIN_DIFFICULTY
+                    + " and " + MAX_DIFFICULTY + ": " + difficulty);
+        }
+        mDifficulty = difficulty;
+    }
+
+    //****************************************************************************************
+    //setBlendSize() sets how many cells the target of the next rounds is a blend of, from
+    //MIN_BLEND_SIZE (the classic pair) to getMaxBlendSize() for the board.
+    //****************************************************************************************
+    public void setBlendSize(int blendSize) {
+        checkBlendSize(blendSize);
+        int maxBlendSize = getMaxBlendSize(mNumCells);
+        if (blendSize > maxBlendSize) {
+            throw new IllegalArgumentException("A " + mNumRows + "x" + mNumCols + " board can blend at most "
+                    + maxBlendSize + " cells: " + blendSize);
+        }
+        mBlendSize = blendSize;
+    }
+
+    //****************************************************************************************
+    //getMaxBlendSize() is the largest blend size allowed on a board of numCells cells: the
+    //largest that the SubsetUniquenessChecker can check there (see canCheck()). That is
+    //MAX_BLEND_SIZE on boards of up to 37 cells, 4 on boards of up to 128 cells and
+    //MIN_BLEND_SIZE on larger ones.
+    //****************************************************************************************
+    public static int getMaxBlendSize(int numCells) {
+        for (int blendSize = MAX_BLEND_SIZE; blendSize > MIN_BLEND_SIZE; blendSize--) {
+            if (SubsetUniquenessChecker.canCheck(numCells, blendSize)) {
+                return blendSize;
+            }
+        }
+        return MIN_BLEND_SIZE;
+    }
+
+    //****************************************************************************************
+    //setLinearBlend() sets whether the targets of the next rounds are blended in linear light
+    //rather than by averaging the sRGB values.
+    //****************************************************************************************
+    public void setLinearBlend(boolean linear) {
+        mLinearBlend = linear;
+        mUniqueness.setLinear(linear);
+        mSubsetUniqueness.setLinear(linear);
+    }
+
+    //****************************************************************************************
+    //setWinningCombination() restores the winning pair (as flat indexes) and the target
+    //color of a saved round. setWinningCells() restores the winning cells of a round that
+    //blends any number of cells, from cells[offset] onwards.
+    //****************************************************************************************
+    public void setWinningCombination(int winIndex1, int winIndex2, int blendedColor) {
+        mWinCells[0] = winIndex1;
+        mWinCells[1] = winIndex2;
+        setWinCount(2, blendedColor);
+    }
+
+    public void setWinningCells(int[] cells, int offset, int count, int blendedColor) {
+        checkBlendSize(count);
+        System.arraycopy(cells, offset, mWinCells, 0, count);
+        setWinCount(count, blendedColor);
+    }
+
+    //****************************************************************************************
+    //setColorAt(), setSelectionWord(), setWinIndex() and setWinCount() let GameSnapshotCodec
+    //and GameJournalReplayer restore a board in place. A selection word holds the selection
+    //bits of cells 64 * word to 64 * word + 63. The winning cells are set one at a time and
+    //then setWinCount() says how many there are.
+    //****************************************************************************************
+    void setColorAt(int index, int color) {
+        if (mColors[index] != color) {
+            mColors[index] = color;
+            markChanged(index, CHANGED_COLOR);
+        }
+    }
+
+    void setWinIndex(int i, int index) {
+        mWinCells[i] = index;
+    }
+
+    void setWinCount(int count, int blendedColor) {
+        checkBlendSize(count);
+        mWinCount = count;
+        mBlendedColor = blendedColor;
+        mBlendedColorChanged = true;
+    }
+
+    void setSelectionWord(int word, long bits) {
+        markSelectionChanged(word, mSelected[word] ^ bits);
+        mSelectedCount += Long.bitCount(bits) - Long.bitCount(mSelected[word]);
+        mSelected[word] = bits;
+    }
+
+    public void setStateSelected(boolean[] selected){
+        resetSelection();
+        for (int index = 0; index < mNumCells; index++) {
+            if (selected[index]) {
+                mSelected[index >>> 6] |= 1L << index;
+                mSelectedCount++;
+                markChanged(index, CHANGED_SELECTION);
+            }
+        }
+    }
+
+    //****************************************************************************************
+    //clearChanges() empties the change set once the view has caught up with it. Only the
+    //cells in the change set are touched.
+    //****************************************************************************************
+    public void clearChanges() {
+        for (int i = 0; i < mChangedCount; i++) {
+            mChangeFlags[mChangedCells[i]] = 0;
+        }
+        mChangedCount = 0;
+        mAllChanged = false;
+        mBlendedColorChanged = false;
+    }
+    //****************************************************************************************
+    //Getters
+    //****************************************************************************************
+    //****************************************************************************************
+    //getState() copies all the color values into a new int array.
+    //getState() returns the int array to be used for Save State.
+    //****************************************************************************************
+    public int[] getState() {
+        int[] localColors = new int[mNumCells];
+        System.arraycopy(mColors, 0, localColors, 0, mNumCells);
+        return localColors;
+    }
+    //****************************************************************************************
+    //getState() with an array copies the colors into colors[offset] onwards without
+    //allocating.
+    //****************************************************************************************
+    public void getState(int[] colors, int offset) {
+        System.arraycopy(mColors, 0, colors, offset, mNumCells);
+    }
+    //****************************************************************************************
+    //getStateSelected() gathers all the selection info from the bitset and adds them to
+    //boolean array.
+    //getStateSelected() returns the boolean array to be used for Save State.
+    //****************************************************************************************
+    public boolean[] getStateSelected(){
+        boolean[] localBoo = new boolean[mNumCells];
+        for (int index = 0; index < mNumCells; index++) {
+            localBoo[index] = isSelected(index);
+        }
+        return localBoo;
+    }
+
+    //****************************************************************************************
+    //getChangedCellCount() and getChangedCell() list the cells (as flat indexes) that changed
+    //since clearChanges(). getChangeFlags() says what changed about a listed cell, as
+    //CHANGED_COLOR and/or CHANGED_SELECTION. After a new round every cell is listed with both.
+    //****************************************************************************************
+    public int getChangedCellCount() {
+        return mAllChanged ? mNumCells : mChangedCount;
+    }
+
+    public int getChangedCell(int i) {
+        return mAllChanged ? i : mChangedCells[i];
+    }
+
+    public int getChangeFlags(int index) {
+        return mAllChanged ? CHANGED_COLOR | CHANGED_SELECTION : mChangeFlags[index];
+    }
+
+    public boolean isBlendedColorChanged() {
+        return mBlendedColorChanged;
+    }
+
+    public long getSeed() {
+        return mSeed;
+    }
+
+    //****************************************************************************************
+    //getRoundKey() returns the key of the current round: newGame(getRoundKey()) on a game of
+    //the same size generates the same round again. getRoundKey() with a round number returns
+    //the key of any round of this game's seed.
+    //****************************************************************************************
+    public long getRoundKey() {
+        return mRandom.getKey();
+    }
+
+    public long getRoundKey(long round) {
+        return RoundRandom.roundKey(mSeed, round);
+    }
+
+    public float getDifficulty() {
+        return mDifficulty;
+    }
+
+    public int getBlendSize() {
+        return mBlendSize;
+    }
+
+    public boolean isLinearBlend() {
+        return mLinearBlend;
+    }
+
+    //****************************************************************************************
+    //getWinCount() is the number of winning cells of the round on the board, and
+    //getWinIndex() returns one of them as a flat index.
+    //****************************************************************************************
+    public int getWinCount() {
+        return mWinCount;
+    }
+
+    public int getWinIndex(int i) {
+        return mWinCells[i];
+    }
+
+    public float getUniquenessThreshold() {
+        return mUniqueness.getThreshold();
+    }
+
+    int getColorAt(int index) {
+        return mColors[index];
+    }
+
+    public int getSelectionWordCount() {
+        return mSelected.length;
+    }
+
+    long getSelectionWord(int word) {
+        return mSelected[word];
+    }
+
+    public int getNumRows() {
+        return mNumRows;
+    }
+
+    public int getNumCols() {
+        return mNumCols;
+    }
+
+    public int getNumCells() {
+        return mNumCells;
+    }
+
+    public int getSelectedCount() {
+        return mSelectedCount;
+    }
+
+    public int getWinIndex1() {
+        return mWinCells[0];
+    }
+
+    public int getWinIndex2() {
+        return mWinCells[1];
+    }
+
+    public int getWinRow1() {
+        return mWinCells[0] / mNumCols;
+    }
+
+    public int getWinCol1() {
+
+        return mWinCells[0] % mNumCols;
+    }
+
+    public int getWinRow2()
+    {
+        return mWinCells[1] / mNumCols;
+    }
+
+    public int getWinCol2() {
+
+        return mWinCells[1] % mNumCols;
+    }
+
+    //****************************************************************************************
+    //getBlendedColor() returns the target color of the round, the blend of the winning
+    //colors.
+    //****************************************************************************************
+    public int getBlendedColor() {
+        return mBlendedColor;
+    }
+
+    public boolean isButtonSelected(int row, int col) {
+        return isSelected(index(row, col));
+    }
+
+    public int getColor(int row, int col){
+        return mColors[index(row, col)];
+    }
+
+    //****************************************************************************************
+    //index() maps a row and column onto the flat board array.
+    //****************************************************************************************
+    private int index(int row, int col) {
+        return row * mNumCols + col;
+    }
+
+    private boolean isSelected(int index) {
+        return (mSelected[index >>> 6] & (1L << index)) != 0;
+    }
+
+    private boolean isWinningCell(int index) {
+        for (int i = 0; i < mWinCount; i++) {
+            if (mWinCells[i] == index) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void checkBlendSize(int blendSize) {
+        if (blendSize < MIN_BLEND_SIZE || blendSize > MAX_BLEND_SIZE) {
+            throw new IllegalArgumentException("Blend size must be between " + MIN_BLEND_SIZE
+                    + " and " + MAX_BLEND_SIZE + ": " + blendSize);
+        }
+    }
+
+    //****************************************************************************************
+    //markChanged() adds a cell to the change set, listing it only once.
+    //****************************************************************************************
+    private void markChanged(int index, int flags) {
+        if (mAllChanged) {
+            return;
+        }
+        if (mChangeFlags[index] == 0) {
+            mChangedCells[mChangedCount++] = index;
+        }
+        mChangeFlags[index] |= flags;
+    }
+
+    private void markSelectionChanged(int word, long bits) {
+        while (bits != 0) {
+            markChanged((word << 6) + Long.numberOfTrailingZeros(bits), CHANGED_SELECTION);
+            bits &= bits - 1;
+        }
+    }
+}
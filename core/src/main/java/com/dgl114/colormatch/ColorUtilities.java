@@ -0,0 +1,254 @@
+package com.dgl114.colormatch;
+
+//****************************************************************************************
+//ColorUtilities.java       Author: Unknown
+//
+//I modified this class to return an int instead of a color object. This class evaluates
+//the alpha, but it is not considered throughout the rest of the classes. Alpha = 100%
+//
+//Colors are packed ARGB ints and are blended with integer arithmetic, so no Color objects
+//are needed. Each channel is the alpha weighted average of the two inputs, rounded half up,
+//and the alpha is the larger of the two alphas. This matches the original float version
+//(Color.valueOf() + Color.argb(float...)) to within +/-1 per channel; the two only differ
+//when the exact average lands on .5 and float rounding pushes it the other way.
+//Rounds whose target is the blend of more than two cells use the subset blend(), which
+//averages any number of colors the same way.
+//blendLinear() is the gamma correct version: the channels are decoded to linear light,
+//averaged there and encoded again, all through the LinearLight tables. It is how light
+//actually mixes, so it doesn't darken and muddy the blend the way averaging the encoded
+//values does.
+//alpha(), red(), green(), blue(), rgb() and argb() pack and unpack the channels the same
+//way android.graphics.Color does, so the engine doesn't need Android to read a color.
+//****************************************************************************************
+public class ColorUtilities {
+
+    public static final int BLACK = 0xFF000000;
+    public static final int WHITE = 0xFFFFFFFF;
+
+    private static final int OPAQUE = 0xFF;
+    private static final int LOW_BITS_MASK = 0xFEFEFEFE;
+
+    //****************************************************************************************
+    //alpha(), red(), green() and blue() unpack one channel (0 to 255) of a packed ARGB color.
+    //****************************************************************************************
+    public static int alpha(int color) {
+        return color >>> 24;
+    }
+
+    public static int red(int color) {
+        return (color >> 16) & 0xFF;
+    }
+
+    public static int green(int color) {
+        return (color >> 8) & 0xFF;
+    }
+
+    public static int blue(int color) {
+        return color & 0xFF;
+    }
+
+    //****************************************************************************************
+    //rgb() packs an opaque color and argb() one with an alpha. Each channel is 0 to 255.
+    //****************************************************************************************
+    public static int rgb(int red, int green, int blue) {
+        return argb(OPAQUE, red, green, blue);
+    }
+
+    public static int argb(int alpha, int red, int green, int blue) {
+        return (alpha << 24) | (red << 16) | (green << 8) | blue;
+    }
+
+    //****************************************************************************************
+    //blend() blends two colors and counts the blend in Metrics (when they are on). When both
+    //colors are opaque it takes the SWAR path (see averageOpaque()), which averages all four
+    //bytes at once; otherwise it takes the alpha weighted path (see blendTranslucent()).
+    //****************************************************************************************
+    public static int blend(int c0, int c1) {
+        if (Metrics.isEnabled()) {
+            Metrics.increment(Metrics.BLENDS);
+        }
+        if ((c0 & c1) >>> 24 == OPAQUE) {
+            return averageOpaque(c0, c1);
+        }
+        return blendTranslucent(c0, c1);
+    }
+
+    //****************************************************************************************
+    //blendTranslucent() is blend() for two colors that are not both opaque, without
+    //counting the blend.
+    //****************************************************************************************
+    private static int blendTranslucent(int c0, int c1) {
+        int a0 = alpha(c0);
+        int a1 = alpha(c1);
+        int totalAlpha = a0 + a1;
+        if (totalAlpha == 0) {
+            return 0;
+        }
+        int half = totalAlpha >> 1;
+
+        int r = (a0 * red(c0) + a1 * red(c1) + half) / totalAlpha;
+        int g = (a0 * green(c0) + a1 * green(c1) + half) / totalAlpha;
+        int b = (a0 * blue(c0) + a1 * blue(c1) + half) / totalAlpha;
+        int a = Math.max(a0, a1);
+
+        return argb(a, r, g, b);
+    }
+
+    //****************************************************************************************
+    //blend() for a subset blends the colors of count cells, colors[cells[0]] to
+    //colors[cells[count - 1]], the same way: each channel is the alpha weighted average,
+    //rounded half up, and the alpha is the largest alpha. Two cells give exactly what
+    //blend(c0, c1) gives.
+    //****************************************************************************************
+    public static int blend(int[] colors, int[] cells, int count) {
+        if (count == 2) {
+            return blend(colors[cells[0]], colors[cells[1]]);
+        }
+        if (Metrics.isEnabled()) {
+            Metrics.increment(Metrics.BLENDS);
+        }
+        int totalAlpha = 0, maxAlpha = 0, r = 0, g = 0, b = 0;
+        for (int i = 0; i < count; i++) {
+            int color = colors[cells[i]];
+            int alpha = alpha(color);
+            totalAlpha += alpha;
+            maxAlpha = Math.max(maxAlpha, alpha);
+            r += alpha * red(color);
+            g += alpha * green(color);
+            b += alpha * blue(color);
+        }
+        if (totalAlpha == 0) {
+            return 0;
+        }
+        int half = totalAlpha >> 1;
+        return argb(maxAlpha, (r + half) / totalAlpha, (g + half) / totalAlpha, (b + half) / totalAlpha);
+    }
+
+    //****************************************************************************************
+    //blend() for whole arrays blends colors0[i] with colors1[i] into out[i] for the first
+    //count entries. out may be the same array as one of the inputs. Metrics are checked
+    //once for the whole array, not per blend.
+    //****************************************************************************************
+    public static void blend(int[] colors0, int[] colors1, int[] out, int count) {
+        boolean measured = Metrics.isEnabled();
+        long start = measured ? System.nanoTime() : 0;
+        for (int i = 0; i < count; i++) {
+            int c0 = colors0[i];
+            int c1 = colors1[i];
+            out[i] = ((c0 & c1) >>> 24) == OPAQUE ? averageOpaque(c0, c1) : blendTranslucent(c0, c1);
+        }
+        if (measured) {
+            Metrics.record(Metrics.BULK_BLEND, System.nanoTime() - start);
+            Metrics.add(Metrics.BLENDS, count);
+        }
+    }
+
+    //****************************************************************************************
+    //blendLinear() blends two colors in linear light. Each channel is the alpha weighted
+    //average of the two linear values, rounded half up, encoded to the nearest sRGB value;
+    //the alpha is the larger of the two alphas, as in blend().
+    //****************************************************************************************
+    public static int blendLinear(int c0, int c1) {
+        if (Metrics.isEnabled()) {
+            Metrics.increment(Metrics.BLENDS);
+        }
+        if ((c0 & c1) >>> 24 == OPAQUE) {
+            return averageOpaqueLinear(c0, c1);
+        }
+        return blendTranslucentLinear(c0, c1);
+    }
+
+    private static int blendTranslucentLinear(int c0, int c1) {
+        int a0 = alpha(c0);
+        int a1 = alpha(c1);
+        int totalAlpha = a0 + a1;
+        if (totalAlpha == 0) {
+            return 0;
+        }
+        int half = totalAlpha >> 1;
+
+        int r = (a0 * LinearLight.toLinear(red(c0)) + a1 * LinearLight.toLinear(red(c1))
+                + half) / totalAlpha;
+        int g = (a0 * LinearLight.toLinear(green(c0)) + a1 * LinearLight.toLinear(green(c1))
+                + half) / totalAlpha;
+        int b = (a0 * LinearLight.toLinear(blue(c0)) + a1 * LinearLight.toLinear(blue(c1)) + half) / totalAlpha;
+        return argb(Math.max(a0, a1), LinearLight.toEncoded(r), LinearLight.toEncoded(g), LinearLight.toEncoded(b));
+    }
+
+    //****************************************************************************************
+    //blendLinear() for a subset blends count cells in linear light, the same way.
+    //****************************************************************************************
+    public static int blendLinear(int[] colors, int[] cells, int count) {
+        if (count == 2) {
+            return blendLinear(colors[cells[0]], colors[cells[1]]);
+        }
+        if (Metrics.isEnabled()) {
+            Metrics.increment(Metrics.BLENDS);
+        }
+        int totalAlpha = 0, maxAlpha = 0;
+        long r = 0, g = 0, b = 0;
+        for (int i = 0; i < count; i++) {
+            int color = colors[cells[i]];
+            int alpha = alpha(color);
+            totalAlpha += alpha;
+            maxAlpha = Math.max(maxAlpha, alpha);
+            r += alpha * LinearLight.toLinear(red(color));
+            g += alpha * LinearLight.toLinear(green(color));
+            b += alpha * LinearLight.toLinear(blue(color));
+        }
+        if (totalAlpha == 0) {
+            return 0;
+        }
+        int half = totalAlpha >> 1;
+        return argb(maxAlpha, LinearLight.toEncoded((int) ((r + half) / totalAlpha)),
+                LinearLight.toEncoded((int) ((g + half) / totalAlpha)),
+                LinearLight.toEncoded((int) ((b + half) / totalAlpha)));
+    }
+
+    //****************************************************************************************
+    //blendLinear() for whole arrays blends colors0[i] with colors1[i] into out[i] in linear
+    //light for the first count entries. out may be the same array as one of the inputs.
+    //****************************************************************************************
+    public static void blendLinear(int[] colors0, int[] colors1, int[] out, int count) {
+        boolean measured = Metrics.isEnabled();
+        long start = measured ? System.nanoTime() : 0;
+        for (int i = 0; i < count; i++) {
+            int c0 = colors0[i];
+            int c1 = colors1[i];
+            out[i] = ((c0 & c1) >>> 24) == OPAQUE ? averageOpaqueLinear(c0, c1) : blendTranslucentLinear(c0, c1);
+        }
+        if (measured) {
+            Metrics.record(Metrics.BULK_BLEND, System.nanoTime() - start);
+            Metrics.add(Metrics.BLENDS, count);
+        }
+    }
+
+    //****************************************************************************************
+    //blend() and blendLinear() chosen by a flag, for code that works in either mode.
+    //****************************************************************************************
+    public static int blend(int c0, int c1, boolean linear) {
+        return linear ? blendLinear(c0, c1) : blend(c0, c1);
+    }
+
+    public static int blend(int[] colors, int[] cells, int count, boolean linear) {
+        return linear ? blendLinear(colors, cells, count) : blend(colors, cells, count);
+    }
+
+    //****************************************************************************************
+    //averageOpaqueLinear() averages two opaque colors in linear light with equal weights.
+    //****************************************************************************************
+    private static int averageOpaqueLinear(int c0, int c1) {
+        int r = (LinearLight.toLinear(red(c0)) + LinearLight.toLinear(red(c1)) + 1) >> 1;
+        int g = (LinearLight.toLinear(green(c0)) + LinearLight.toLinear(green(c1)) + 1) >> 1;
+        int b = (LinearLight.toLinear(blue(c0)) + LinearLight.toLinear(blue(c1)) + 1) >> 1;
+        return rgb(LinearLight.toEncoded(r), LinearLight.toEncoded(g), LinearLight.toEncoded(b));
+    }
+
+    //****************************************************************************************
+    //averageOpaque() averages all four bytes at once (rounding half up) for the common case
+    //where both colors are fully opaque and the weights are equal.
+    //****************************************************************************************
+    private static int averageOpaque(int c0, int c1) {
+        return (c0 | c1) - (((c0 ^ c1) & LOW_BITS_MASK) >>> 1);
+    }
+}
@@ -0,0 +1,188 @@
+package com.dgl114.colormatch;
+
+//****************************************************************************************
+//DistractorSampler.java            Author: zakacat
+//
+//This class picks the colors of the cells that are not part of the winning pair (the
+//distractors), with a difficulty from 0 to 1 that controls how close they look to the
+//winning colors and the target.
+// - At difficulty 0 every distractor is a uniform random sRGB color.
+// - Above that, a share of the distractors equal to the difficulty is "near": it is placed
+//   in Lab space a Delta E of between the near distance and a far distance away from one
+//   of the two winning colors or the target, in turn. The far distance shrinks towards the
+//   near distance as the difficulty goes up, so at difficulty 1 every distractor is as close
+//   as a fair round allows.
+//Near distractors are spread out with stratified sampling instead of being drawn until one
+//fits. Their directions are taken from a cone around an axis chosen once per round, and
+//the cone is split into STRATA cells (BANDS bands of equal area times SECTORS sectors)
+//that are visited in turn, with one random point inside each. Keeping every offset in one
+//cone means two near distractors can never sit on opposite sides of the target (or of
+//the winning colors) and blend into a second answer, as long as the near distance is
+//more than twice the uniqueness threshold.
+//A near point that falls outside the sRGB gamut is not clipped onto its surface, where it
+//would crowd together with the other clipped points and blend into rivals; that distractor
+//is a uniform random color instead. Every color costs at most two random draws and a fixed
+//amount of arithmetic, with no rejection loop, so a board of n cells always takes O(n) to
+//fill at any difficulty. The sines and cosines come from StrictMath, whose results are
+//the same on every JVM and Android version, so a seed always gives the same board.
+//****************************************************************************************
+
+public class DistractorSampler {
+
+    public static final float FAR_DELTA_E = 50.0f;
+    private static final int BANDS = 4;
+    private static final int SECTORS = 8;
+    private static final int STRATA = BANDS * SECTORS;
+    //Visits the strata in a scattered order; it must not share a factor with STRATA.
+    private static final int STRATUM_STRIDE = 11;
+    //Directions are within 60 degrees of the axis, so every offset points at least half its
+    //length along it.
+    private static final float CONE_COS = 0.5f;
+    private static final float FRACTION = 1.0f / (1 << 21);
+    private static final float MID_GREY_L = 50.0f;
+    private static final float INWARD_TILT = 1.5f;
+    //How far (as a squared Delta E) clipping to the gamut may move a point before the point
+    //counts as outside it. Rounding to 8 bit channels alone moves a point by less than this.
+    private static final float GAMUT_TOLERANCE_SQUARED = 1.5f * 1.5f;
+    private final float[] mAnchors = new float[9];
+    private final float[] mLab = new float[6];
+    private final float[] mAxes = new float[9];
+    private RoundRandom mRandom;
+    private float mDifficulty, mNear, mSpan;
+    private int mDrawn;
+
+    //****************************************************************************************
+    //reset() starts a round: the anchors are the two winning colors and the target, and
+    //nearDeltaE is the closest a near distractor may be to them.
+    //****************************************************************************************
+    public void reset(RoundRandom random, int winColor1, int winColor2, int targetColor,
+                      float difficulty, float nearDeltaE) {
+        mRandom = random;
+        mDifficulty = difficulty;
+        mNear = nearDeltaE;
+        mSpan = (1.0f - difficulty) * Math.max(FAR_DELTA_E - nearDeltaE, 0.0f);
+        mDrawn = 0;
+        if (difficulty <= 0) {
+            return;
+        }
+        CieLab.toLab(winColor1, mAnchors, 0);
+        CieLab.toLab(winColor2, mAnchors, 3);
+        CieLab.toLab(targetColor, mAnchors, 6);
+        chooseAxes(random.nextLong(), mAnchors[6], mAnchors[7], mAnchors[8]);
+    }
+
+    //****************************************************************************************
+    //next() returns the color of the next distractor.
+    //****************************************************************************************
+    public int next() {
+        int drawn = mDrawn++;
+        long bits = mRandom.nextLong();
+        if (!isNear(drawn)) {
+            return uniformColor(bits);
+        }
+        int anchor = 3 * (drawn % 3);
+        int stratum = (drawn / 3 * STRATUM_STRIDE) % STRATA;
+        float height = CONE_COS + (1.0f - CONE_COS) * (stratum / SECTORS + fraction(bits, 0)) / BANDS;
+        double angle = 2 * Math.PI * (stratum % SECTORS + fraction(bits, 21)) / SECTORS;
+        float radius = mNear + mSpan * fraction(bits, 42);
+
+        float across = (float) Math.sqrt(1.0f - height * height);
+        float cos = across * (float) StrictMath.cos(angle);
+        float sin = across * (float) StrictMath.sin(angle);
+        for (int i = 0; i < 3; i++) {
+            float direction = height * mAxes[i] + cos * mAxes[3 + i] + sin * mAxes[6 + i];
+            mLab[i] = mAnchors[anchor + i] + radius * direction;
+        }
+        int color = CieLab.toColor(mLab, 0);
+        CieLab.toLab(color, mLab, 3);
+        if (CieLab.deltaESquared(mLab, 0, mLab, 3) > GAMUT_TOLERANCE_SQUARED) {
+            return uniformColor(mRandom.nextLong());
+        }
+        return color;
+    }
+
+    //****************************************************************************************
+    //uniformColor() turns 24 random bits into an opaque color. Every channel value from 0 to
+    //255 is equally likely.
+    //****************************************************************************************
+    public static int uniformColor(long bits) {
+        return 0xFF000000 | (int) (bits >>> 40);
+    }
+
+    //****************************************************************************************
+    //cornerColor() turns 24 random bits into an opaque color with every channel less than
+    //width from the same corner of the RGB cube. Bit 0, 1 and 2 of corner choose whether
+    //blue, green and red are near 255 rather than near 0.
+    //****************************************************************************************
+    public static int cornerColor(long bits, int corner, int width) {
+        int color = 0xFF000000;
+        for (int channel = 0; channel < 3; channel++) {
+            int value = (int) (((bits >>> (40 + 8 * channel)) & 0xFF) * width >>> 8);
+            color |= ((corner >> channel & 1) != 0 ? 255 - value : value) << (8 * channel);
+        }
+        return color;
+    }
+
+    //****************************************************************************************
+    //isNear() spreads the near distractors evenly through the draws: draw j is near when
+    //floor((j + 1) * difficulty) steps past floor(j * difficulty).
+    //****************************************************************************************
+    private boolean isNear(int drawn) {
+        return mDifficulty > 0 && (long) ((drawn + 1) * (double) mDifficulty) > (long) (drawn * (double) mDifficulty);
+    }
+
+    //****************************************************************************************
+    //chooseAxes() picks the axis of the cone, and two more at right angles to it and each
+    //other. The axis is a uniformly random direction (from one random draw) tilted towards
+    //mid grey from the target, so that most of the cone points into the gamut rather than
+    //out of it.
+    //****************************************************************************************
+    private void chooseAxes(long bits, float targetL, float targetA, float targetB) {
+        float z = 2.0f * fraction(bits, 0) - 1.0f;
+        double angle = 2 * Math.PI * fraction(bits, 21);
+        float across = (float) Math.sqrt(1.0f - z * z);
+        float x = across * (float) StrictMath.cos(angle);
+        float y = across * (float) StrictMath.sin(angle);
+        float inL = MID_GREY_L - targetL, inA = -targetA, inB = -targetB;
+        float inward = (float) Math.sqrt(inL * inL + inA * inA + inB * inB);
+        if (inward > 0) {
+            x += INWARD_TILT * inL / inward;
+            y += INWARD_TILT * inA / inward;
+            z += INWARD_TILT * inB / inward;
+            float length = (float) Math.sqrt(x * x + y * y + z * z);
+            x /= length;
+            y /= length;
+            z /= length;
+        }
+        mAxes[0] = x;
+        mAxes[1] = y;
+        mAxes[2] = z;
+
+        //Cross the axis with whichever unit vector it is furthest from being parallel to.
+        float ux, uy, uz;
+        if (Math.abs(x) < 0.5f) {
+            ux = 0;
+            uy = z;
+            uz = -y;
+        }
+        else {
+            ux = -z;
+            uy = 0;
+            uz = x;
+        }
+        float length = (float) Math.sqrt(ux * ux + uy * uy + uz * uz);
+        mAxes[3] = ux / length;
+        mAxes[4] = uy / length;
+        mAxes[5] = uz / length;
+        mAxes[6] = y * mAxes[5] - z * mAxes[4];
+        mAxes[7] = z * mAxes[3] - x * mAxes[5];
+        mAxes[8] = x * mAxes[4] - y * mAxes[3];
+    }
+
+    //****************************************************************************************
+    //fraction() takes 21 bits of a draw, starting at shift, as a float from 0 to 1.
+    //****************************************************************************************
+    private static float fraction(long bits, int shift) {
+        return ((bits >>> shift) & ((1 << 21) - 1)) * FRACTION;
+    }
+}
@@ -0,0 +1,405 @@
+package com.dgl114.colormatch;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+//****************************************************************************************
+//GameJournal.java          Author: zakacat
+//
+//This class records everything that happens in a session (every round that is started,
+//every button that is toggled and the result of every check) in an append-only binary
+//file. Unlike the Bundle state, the journal survives the process being killed, and
+//GameJournalReplayer can rebuild the game and the score from it, on the device or offline.
+//The UI thread only copies each event into a byte ring buffer. A background thread writes
+//whatever is in the ring to the file through a FileChannel, so a burst of events goes out
+//in one write. The ring is single producer / single consumer and lock-free in the same way
+//as RoundProducer's: mTail counts bytes published and mHead counts bytes written. The ring
+//is sized to hold many rounds. The UI thread never waits for it: if storage stalls long
+//enough for the ring to fill, events are dropped from there on until the next checkpoint,
+//so the file always holds a prefix of the session that replays cleanly.
+//checkpoint() records the whole game and score as one event (a GameSnapshotCodec
+//snapshot). When the writer gets to it, it writes the header and the checkpoint to a
+//temporary file, syncs it and renames it over the journal, then carries on appending from
+//there, skipping anything before the checkpoint that was not written yet. The file only
+//ever holds the session since the last checkpoint, so replaying it stays quick, and a
+//process killed part way through a checkpoint leaves the previous journal whole.
+//The file starts with an 8 byte header (magic 'CJ', version, reserved, rows, columns) and
+//is followed by events, each a one byte type and a fixed payload (big-endian):
+// - EVENT_ROUND  number of winning cells k (1 byte), blended color, the k winning cells,
+//                then one color per cell
+// - EVENT_TOGGLE  the cell that was toggled (row * columns + column)
+// - EVENT_CHECK  1 if the check was correct, 0 if it was a failure
+// - EVENT_CHECKPOINT  number of winning cells k (1 byte), then a snapshot of the game
+//                     and score with k winning cells
+//Version 1 journals always had two winning cells, stored before the blended color; they
+//are not replayed. Version 2 journals are version 3 without checkpoints.
+//Only one journal file is open at a time in a process: a writer holds FILE_LOCK from
+//opening the file to closing it, and GameJournalReplayer takes it to read the file, so a
+//journal started right after another one was stopped (when the activity is recreated)
+//waits on its own thread for the old writer to finish.
+//This class includes:
+// - start() / stop()  Start and stop the writer thread
+// - recordRound(), recordToggle(), recordCheck()  Append an event
+// - checkpoint()  Append the whole game and score, and cut the file back to it
+// - getDroppedCount()  How many events were dropped because the ring was full
+//****************************************************************************************
+
+public class GameJournal implements Runnable {
+
+    public static final short MAGIC = 0x434A;
+    public static final byte VERSION = 3;
+    static final byte MIN_VERSION = 2;
+    static final int HEADER_SIZE = 8;
+    static final byte EVENT_ROUND = 1;
+    static final byte EVENT_TOGGLE = 2;
+    static final byte EVENT_CHECK = 3;
+    static final byte EVENT_CHECKPOINT = 4;
+    static final Object FILE_LOCK = new Object();
+    private static final int MIN_CAPACITY = 1 << 16;
+    private static final int ROUNDS_PER_RING = 8;
+    private final File mFile;
+    private final int mNumRows, mNumCols, mNumCells;
+    private final long mAppendPosition;
+    private final byte[] mRing;
+    private final int mMask;
+    private final ByteBuffer mSnapshot;
+    private final AtomicLong mHead = new AtomicLong();
+    private final AtomicLong mTail = new AtomicLong();
+    //Where the latest checkpoint starts in the ring, or -1 if there is none yet.
+    private volatile long mCheckpoint = -1;
+    private volatile boolean mRunning;
+    private boolean mStopped;
+    private volatile Thread mThread;
+    private volatile IOException mError;
+    //Only touched by the recording thread.
+    private boolean mDropping;
+    private long mDroppedCount;
+
+    //****************************************************************************************
+    //The journal is appended to from appendPosition, which should be the length of the
+    //events that replayed cleanly (see GameJournalReplayer.getValidLength()), so that a
+    //half written event at the end of the file is dropped. An appendPosition smaller than
+    //the header starts a new journal, which only replaces the old file once it has
+    //something to write.
+    //****************************************************************************************
+    public GameJournal(File file, int numRows, int numCols, long appendPosition) {
+        mFile = file;
+        mNumRows = numRows;
+        mNumCols = numCols;
+        ColorMatchGame.checkBoardSize(numRows, numCols);
+        mNumCells = numRows * numCols;
+        mAppendPosition = appendPosition;
+        mSnapshot = ByteBuffer.allocate(getMaxCheckpointSize(mNumCells));
+        int bytes = Math.max(MIN_CAPACITY, ROUNDS_PER_RING * getMaxCheckpointSize(mNumCells));
+        int capacity = Integer.highestOneBit(bytes - 1) << 1;
+        mRing = new byte[capacity];
+        mMask = capacity - 1;
+    }
+
+    //****************************************************************************************
+    //getRoundSize() is the number of bytes an EVENT_ROUND takes, type byte included.
+    //getMaxRoundSize() is the most it can take on a board of that size.
+    //****************************************************************************************
+    static int getRoundSize(int numCells, int winCount) {
+        return 6 + 4 * winCount + 4 * numCells;
+    }
+
+    static int getMaxRoundSize(int numCells) {
+        return getRoundSize(numCells, ColorMatchGame.MAX_BLEND_SIZE);
+    }
+
+    //****************************************************************************************
+    //getCheckpointSize() is the number of bytes an EVENT_CHECKPOINT takes, type byte
+    //included. getMaxCheckpointSize() is the most it can take on a board of that size.
+    //****************************************************************************************
+    static int getCheckpointSize(int numCells, int winCount) {
+        return 2 + GameSnapshotCodec.getSize(numCells, winCount);
+    }
+
+    static int getMaxCheckpointSize(int numCells) {
+        return getCheckpointSize(numCells, ColorMatchGame.MAX_BLEND_SIZE);
+    }
+
+    //****************************************************************************************
+    //start() starts the writer thread, which opens the file. Events are only recorded while
+    //the journal is running. A journal can only be started once.
+    //****************************************************************************************
+    public synchronized void start() {
+        if (mRunning) {
+            return;
+        }
+        if (mStopped) {
+            throw new IllegalStateException("GameJournal cannot be restarted");
+        }
+        mRunning = true;
+        Thread thread = new Thread(this, "GameJournal");
+        thread.setDaemon(true);
+        mThread = thread;
+        thread.start();
+    }
+
+    //****************************************************************************************
+    //stop() stops recording. The writer thread writes out what is left in the ring and closes
+    //the file. Events are handed to the OS as they come in, so a killed process loses
+    //nothing; syncing to the disk is left to the OS.
+    //****************************************************************************************
+    public synchronized void stop() {
+        mRunning = false;
+        mStopped = true;
+        Thread thread = mThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    //****************************************************************************************
+    //awaitWritten() waits for the writer thread to finish after stop(). It returns the error
+    //that stopped the writer, if there was one. It is for tests and tools; the app never
+    //needs to wait, as the next journal waits for this one's writer by itself.
+    //****************************************************************************************
+    public IOException awaitWritten() throws InterruptedException {
+        Thread thread = mThread;
+        if (thread != null) {
+            thread.join();
+        }
+        return mError;
+    }
+
+    //****************************************************************************************
+    //recordRound() appends the round the game is showing now. Only one thread may record.
+    //****************************************************************************************
+    public void recordRound(ColorMatchGame game) {
+        long position = reserve(getRoundSize(mNumCells, game.getWinCount()));
+        if (position < 0) {
+            return;
+        }
+        position = putByte(position, EVENT_ROUND);
+        position = putByte(position, (byte) game.getWinCount());
+        position = putInt(position, game.getBlendedColor());
+        for (int i = 0; i < game.getWinCount(); i++) {
+            position = putInt(position, game.getWinIndex(i));
+        }
+        for (int index = 0; index < mNumCells; index++) {
+            position = putInt(position, game.getColorAt(index));
+        }
+        publish(position);
+    }
+
+    public void recordToggle(int row, int col) {
+        long position = reserve(5);
+        if (position < 0) {
+            return;
+        }
+        position = putByte(position, EVENT_TOGGLE);
+        publish(putInt(position, row * mNumCols + col));
+    }
+
+    public void recordCheck(boolean correct) {
+        long position = reserve(2);
+        if (position < 0) {
+            return;
+        }
+        position = putByte(position, EVENT_CHECK);
+        publish(putByte(position, correct ? (byte) 1 : (byte) 0));
+    }
+
+    //****************************************************************************************
+    //checkpoint() appends a snapshot of the game and score as they are now. Everything
+    //recorded before it is then dropped from the file, and if events were being dropped
+    //because the ring was full, recording picks up again from here.
+    //****************************************************************************************
+    public void checkpoint(ColorMatchGame game, Score score) {
+        int size = getCheckpointSize(mNumCells, game.getWinCount());
+        long start = mTail.get();
+        mDropping = false;
+        long position = reserve(size);
+        if (position < 0) {
+            return;
+        }
+        mSnapshot.clear();
+        GameSnapshotCodec.encode(game, score, mSnapshot);
+        position = putByte(position, EVENT_CHECKPOINT);
+        position = putByte(position, (byte) game.getWinCount());
+        int from = (int) position & mMask;
+        int first = Math.min(size - 2, mRing.length - from);
+        System.arraycopy(mSnapshot.array(), 0, mRing, from, first);
+        System.arraycopy(mSnapshot.array(), first, mRing, 0, size - 2 - first);
+        //Set before the checkpoint is published, so the writer sees it by the time it can
+        //write the checkpoint's bytes.
+        mCheckpoint = start;
+        publish(position + size - 2);
+    }
+
+    //****************************************************************************************
+    //getDroppedCount() is the number of events dropped so far because the ring was full.
+    //****************************************************************************************
+    public long getDroppedCount() {
+        return mDroppedCount;
+    }
+
+    //****************************************************************************************
+    //getFreeBytes() is how much room is left in the ring for events not yet written.
+    //****************************************************************************************
+    int getFreeBytes() {
+        return (int) (mRing.length - (mTail.get() - mHead.get()));
+    }
+
+    //****************************************************************************************
+    //reserve() returns where the next size bytes go in the ring, or -1 if the event is
+    //dropped: the journal is not running, the ring is full, or events are being dropped
+    //until the next checkpoint.
+    //****************************************************************************************
+    private long reserve(int size) {
+        if (!mRunning || mError != null) {
+            return -1;
+        }
+        long tail = mTail.get();
+        if (mDropping || tail + size - mHead.get() > mRing.length) {
+            mDropping = true;
+            mDroppedCount++;
+            return -1;
+        }
+        return tail;
+    }
+
+    private void publish(long tail) {
+        mTail.lazySet(tail);
+        Thread thread = mThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    private long putByte(long position, byte value) {
+        mRing[(int) position & mMask] = value;
+        return position + 1;
+    }
+
+    private long putInt(long position, int value) {
+        position = putByte(position, (byte) (value >>> 24));
+        position = putByte(position, (byte) (value >>> 16));
+        position = putByte(position, (byte) (value >>> 8));
+        return putByte(position, (byte) value);
+    }
+
+    //****************************************************************************************
+    //run() waits for FILE_LOCK, opens the file, drops anything after the append position,
+    //and then writes the ring out as it fills. When the writer reaches a checkpoint it
+    //replaces the file with one that starts with the checkpoint (see replaceFile()) and
+    //jumps straight past it.
+    //****************************************************************************************
+    @Override
+    public void run() {
+        ByteBuffer ring = ByteBuffer.wrap(mRing);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putShort(MAGIC).put(VERSION).put((byte) 0);
+        header.putShort((short) mNumRows).putShort((short) mNumCols);
+        synchronized (FILE_LOCK) {
+            RandomAccessFile file = null;
+            try {
+                try {
+                    if (mAppendPosition >= HEADER_SIZE) {
+                        file = new RandomAccessFile(mFile, "rw");
+                        file.getChannel().truncate(mAppendPosition);
+                        file.getChannel().position(file.length());
+                    }
+
+                    long written = -1;
+                    while (true) {
+                        long head = mHead.get();
+                        long tail = mTail.get();
+                        //Read after mTail, so a checkpoint below tail is always seen here.
+                        long checkpoint = mCheckpoint;
+                        if (checkpoint != written && checkpoint < tail) {
+                            int winCount = mRing[(int) (checkpoint + 1) & mMask];
+                            long end = checkpoint + getCheckpointSize(mNumCells, winCount);
+                            file = replaceFile(file, header, ring, checkpoint, end);
+                            written = checkpoint;
+                            mHead.lazySet(end);
+                            continue;
+                        }
+                        if (head == tail) {
+                            if (!mRunning) {
+                                break;
+                            }
+                            LockSupport.park(this);
+                            continue;
+                        }
+                        if (file == null) {
+                            file = replaceFile(null, header, ring, head, head);
+                        }
+                        writeRing(file.getChannel(), ring, head, tail);
+                        mHead.lazySet(tail);
+                    }
+                    if (file == null) {
+                        file = replaceFile(null, header, ring, 0, 0);
+                    }
+                }
+                finally {
+                    close(file);
+                }
+            }
+            catch (IOException e) {
+                mError = e;
+            }
+        }
+    }
+
+    //****************************************************************************************
+    //replaceFile() writes the header and the ring's bytes from start to end (a checkpoint, or
+    //nothing) to a temporary file, syncs it and moves it over the journal, the same way
+    //PlayerStatsStore saves. The old file is closed first, and the new one is returned open
+    //at its end, ready to append to.
+    //****************************************************************************************
+    private RandomAccessFile replaceFile(RandomAccessFile file, ByteBuffer header, ByteBuffer ring, long start,
+                                         long end) throws IOException {
+        close(file);
+        File tempFile = new File(mFile.getPath() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(tempFile)) {
+            FileChannel channel = out.getChannel();
+            header.rewind();
+            writeFully(channel, header);
+            writeRing(channel, ring, start, end);
+            out.getFD().sync();
+        }
+        if (!tempFile.renameTo(mFile)) {
+            throw new IOException("Could not replace " + mFile);
+        }
+        RandomAccessFile replaced = new RandomAccessFile(mFile, "rw");
+        replaced.getChannel().position(replaced.length());
+        return replaced;
+    }
+
+    //****************************************************************************************
+    //writeRing() writes the ring's bytes from start to end. A run of bytes that wraps around
+    //the end of the ring is written in two parts.
+    //****************************************************************************************
+    private void writeRing(FileChannel channel, ByteBuffer ring, long start, long end) throws IOException {
+        while (start < end) {
+            int from = (int) start & mMask;
+            int length = (int) Math.min(end - start, mRing.length - from);
+            ring.clear();
+            ring.position(from).limit(from + length);
+            writeFully(channel, ring);
+            start += length;
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void close(RandomAccessFile file) throws IOException {
+        if (file != null) {
+            file.close();
+        }
+    }
+}
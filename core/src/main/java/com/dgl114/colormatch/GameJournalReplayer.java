@@ -0,0 +1,227 @@
+package com.dgl114.colormatch;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+//****************************************************************************************
+//GameJournalReplayer.java          Author: zakacat
+//
+//This class reads a journal written by GameJournal and plays it back into a
+//ColorMatchGame and a Score, leaving them as they were when the last event was recorded.
+//Rounds are loaded as recorded, toggles go through toggleButtonSelection() (so the
+//selection cap behaves the same as it did live), checks add to the score, and a
+//checkpoint sets the game and the score to its snapshot.
+//The journal is streamed through one reused buffer, so replaying does not allocate and
+//the file can be any length. Replay stops at the first event that is cut short or can't
+//be read (the end of a journal whose process was killed mid-write); getValidLength() is
+//where a GameJournal should carry on appending.
+//This class includes:
+// - replay()  Play a journal file or channel back into a game and score
+// - getEventCount(), getRoundCount(), getCheckpointCount(), getValidLength()  What the
+//   last replay found
+// - main()  Replay a journal offline and print a summary
+//****************************************************************************************
+
+public class GameJournalReplayer {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private final ByteBuffer mBuffer;
+    private long mEventCount, mRoundCount, mCheckpointCount, mValidLength;
+
+    public GameJournalReplayer(int maxCells) {
+        mBuffer = ByteBuffer.allocateDirect(Math.max(BUFFER_SIZE,
+                Math.max(GameJournal.getMaxRoundSize(maxCells), GameJournal.getMaxCheckpointSize(maxCells))));
+    }
+
+    //****************************************************************************************
+    //replay() plays the journal file back. It returns false, leaving the game and score
+    //alone, if the file is missing or was written for another version or board size. If a
+    //GameJournal in this process is still writing the file, it waits for it to finish.
+    //****************************************************************************************
+    public boolean replay(File file, ColorMatchGame game, Score score) throws IOException {
+        mEventCount = mRoundCount = mCheckpointCount = mValidLength = 0;
+        synchronized (GameJournal.FILE_LOCK) {
+            if (!file.isFile()) {
+                return false;
+            }
+            try (FileInputStream in = new FileInputStream(file)) {
+                return replay(in.getChannel(), game, score);
+            }
+        }
+    }
+
+    public boolean replay(ReadableByteChannel in, ColorMatchGame game, Score score) throws IOException {
+        mEventCount = mRoundCount = mCheckpointCount = mValidLength = 0;
+        mBuffer.clear().limit(0);
+        if (!fill(in, GameJournal.HEADER_SIZE)) {
+            return false;
+        }
+        int start = mBuffer.position();
+        byte version = mBuffer.get(start + 2);
+        if (mBuffer.getShort(start) != GameJournal.MAGIC
+                || version < GameJournal.MIN_VERSION || version > GameJournal.VERSION
+                || mBuffer.getShort(start + 4) != game.getNumRows()
+                || mBuffer.getShort(start + 6) != game.getNumCols()) {
+            return false;
+        }
+        mBuffer.position(start + GameJournal.HEADER_SIZE);
+        mValidLength = GameJournal.HEADER_SIZE;
+
+        int numCells = game.getNumCells();
+        int numCols = game.getNumCols();
+        //Every event is at least two bytes, which is enough to tell how long it is.
+        while (fill(in, 2)) {
+            int position = mBuffer.position();
+            int size = getEventSize(mBuffer.get(position), mBuffer.get(position + 1), numCells);
+            if (size < 0 || !fill(in, size)) {
+                break;
+            }
+            position = mBuffer.position();
+            byte type = mBuffer.get(position);
+            if (type == GameJournal.EVENT_ROUND) {
+                int winCount = mBuffer.get(position + 1);
+                if (!areCells(position + 6, winCount, numCells)) {
+                    break;
+                }
+                for (int i = 0; i < winCount; i++) {
+                    game.setWinIndex(i, mBuffer.getInt(position + 6 + 4 * i));
+                }
+                int colors = position + 6 + 4 * winCount;
+                for (int index = 0; index < numCells; index++) {
+                    game.setColorAt(index, mBuffer.getInt(colors + 4 * index));
+                }
+                game.setWinCount(winCount, mBuffer.getInt(position + 2));
+                game.resetSelection();
+                mRoundCount++;
+            }
+            else if (type == GameJournal.EVENT_TOGGLE) {
+                int cell = mBuffer.getInt(position + 1);
+                if (!isCell(cell, numCells)) {
+                    break;
+                }
+                game.toggleButtonSelection(cell / numCols, cell % numCols);
+            }
+            else if (type == GameJournal.EVENT_CHECKPOINT) {
+                //The snapshot's own winning cell count has to be the one its size came from.
+                if (mBuffer.get(position + 5) != mBuffer.get(position + 1)) {
+                    break;
+                }
+                mBuffer.position(position + 2);
+                if (!GameSnapshotCodec.decode(mBuffer, game, score)) {
+                    break;
+                }
+                mCheckpointCount++;
+            }
+            else if (mBuffer.get(position + 1) != 0) {
+                score.recordCorrect();
+            }
+            else {
+                score.recordFailure();
+            }
+            mBuffer.position(position + size);
+            mValidLength += size;
+            mEventCount++;
+        }
+        return true;
+    }
+
+    public long getEventCount() {
+        return mEventCount;
+    }
+
+    public long getRoundCount() {
+        return mRoundCount;
+    }
+
+    public long getCheckpointCount() {
+        return mCheckpointCount;
+    }
+
+    //****************************************************************************************
+    //getValidLength() is the length in bytes of the header and every event that replayed.
+    //****************************************************************************************
+    public long getValidLength() {
+        return mValidLength;
+    }
+
+    //****************************************************************************************
+    //getEventSize() is the size of an event from its first two bytes, or -1 if it can't be
+    //an event.
+    //****************************************************************************************
+    private static int getEventSize(byte type, byte second, int numCells) {
+        switch (type) {
+            case GameJournal.EVENT_ROUND:
+                if (second < ColorMatchGame.MIN_BLEND_SIZE || second > ColorMatchGame.MAX_BLEND_SIZE) {
+                    return -1;
+                }
+                return GameJournal.getRoundSize(numCells, second);
+            case GameJournal.EVENT_TOGGLE:
+                return 5;
+            case GameJournal.EVENT_CHECK:
+                return 2;
+            case GameJournal.EVENT_CHECKPOINT:
+                if (second < ColorMatchGame.MIN_BLEND_SIZE || second > ColorMatchGame.MAX_BLEND_SIZE) {
+                    return -1;
+                }
+                return GameJournal.getCheckpointSize(numCells, second);
+            default:
+                return -1;
+        }
+    }
+
+    private static boolean isCell(int index, int numCells) {
+        return index >= 0 && index < numCells;
+    }
+
+    private boolean areCells(int position, int count, int numCells) {
+        for (int i = 0; i < count; i++) {
+            if (!isCell(mBuffer.getInt(position + 4 * i), numCells)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //****************************************************************************************
+    //fill() reads more of the journal until at least needed bytes are in the buffer. It
+    //returns false if the journal ends first.
+    //****************************************************************************************
+    private boolean fill(ReadableByteChannel in, int needed) throws IOException {
+        while (mBuffer.remaining() < needed) {
+            mBuffer.compact();
+            int read = in.read(mBuffer);
+            mBuffer.flip();
+            if (read < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //****************************************************************************************
+    //main() takes a journal file, rows and columns, and prints what the session added up to.
+    //****************************************************************************************
+    public static void main(String[] args) throws IOException {
+        File file = new File(args[0]);
+        int numRows = args.length > 1 ? Integer.parseInt(args[1]) : ColorMatchGame.NUM_ROWS;
+        int numCols = args.length > 2 ? Integer.parseInt(args[2]) : ColorMatchGame.NUM_COLS;
+        ColorMatchGame game = new ColorMatchGame(numRows, numCols);
+        Score score = new Score();
+        GameJournalReplayer replayer = new GameJournalReplayer(game.getNumCells());
+
+        long start = System.nanoTime();
+        if (!replayer.replay(file, game, score)) {
+            System.out.println("Not a " + numRows + "x" + numCols + " journal: " + file);
+            return;
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%,d events (%,d rounds) in %.3f s (%,.0f events/s)%n",
+                replayer.getEventCount(), replayer.getRoundCount(), seconds,
+                replayer.getEventCount() / Math.max(seconds, 1e-9));
+        System.out.printf("Correct: %d, failures: %d, %,d of %,d bytes replayed%n",
+                score.getCorrect(), score.getFailure(), replayer.getValidLength(), file.length());
+    }
+}
@@ -0,0 +1,133 @@
+package com.dgl114.colormatch;
+
+import java.nio.ByteBuffer;
+
+//****************************************************************************************
+//GameSnapshotCodec.java            Author: zakacat
+//
+//This class saves the whole state of a game as one compact, versioned binary snapshot and
+//restores it again. It replaces saving the colors, selection, blend and totals as separate
+//Bundle entries, and it also saves the winning cells, which were not saved before (so
+//isGameOver() was checking against the wrong cells after the screen was rotated).
+//The snapshot is written straight into a ByteBuffer and read back in a single pass, with
+//no arrays in between. The layout (big-endian) is:
+// - magic 'CM' (2 bytes), version (1 byte), number of winning cells k (1 byte)
+// - rows, columns (2 bytes each)
+// - blended color, correct, failures (4 bytes each)
+// - the k winning cells (4 bytes each)
+// - the colors, one int per cell in row-major order
+// - the selection bitset, one long per 64 cells
+//Version 1 always had two winning cells, stored before the blended color. Version 2 holds
+//rounds that blend any number of cells (see ColorMatchGame.setBlendSize()).
+//****************************************************************************************
+
+public final class GameSnapshotCodec {
+
+    public static final short MAGIC = 0x434D;
+    public static final byte VERSION = 2;
+    private static final int HEADER_SIZE = 20;
+
+    private GameSnapshotCodec() {
+    }
+
+    //****************************************************************************************
+    //getSize() is the number of bytes a snapshot of the game takes. getMaxSize() is the most
+    //a snapshot of a game of that size can take, whatever its blend size.
+    //****************************************************************************************
+    public static int getSize(ColorMatchGame game) {
+        return getSize(game, game.getWinCount());
+    }
+
+    public static int getMaxSize(ColorMatchGame game) {
+        return getSize(game, ColorMatchGame.MAX_BLEND_SIZE);
+    }
+
+    private static int getSize(ColorMatchGame game, int winCount) {
+        return getSize(game.getNumCells(), winCount);
+    }
+
+    static int getSize(int numCells, int winCount) {
+        return HEADER_SIZE + 4 * winCount + 4 * numCells + 8 * ((numCells + 63) >>> 6);
+    }
+
+    //****************************************************************************************
+    //encode() writes a snapshot at the buffer's position and moves the position past it.
+    //****************************************************************************************
+    public static void encode(ColorMatchGame game, Score score, ByteBuffer out) {
+        out.putShort(MAGIC);
+        out.put(VERSION);
+        out.put((byte) game.getWinCount());
+        out.putShort((short) game.getNumRows());
+        out.putShort((short) game.getNumCols());
+        out.putInt(game.getBlendedColor());
+        out.putInt(score.getCorrect());
+        out.putInt(score.getFailure());
+        for (int i = 0; i < game.getWinCount(); i++) {
+            out.putInt(game.getWinIndex(i));
+        }
+        for (int index = 0; index < game.getNumCells(); index++) {
+            out.putInt(game.getColorAt(index));
+        }
+        for (int word = 0; word < game.getSelectionWordCount(); word++) {
+            out.putLong(game.getSelectionWord(word));
+        }
+    }
+
+    //****************************************************************************************
+    //decode() reads a snapshot at the buffer's position into the game and score. If the
+    //snapshot is from another version or for another board size, its winning cells are not
+    //on the board, or it has more cells selected than the round has winning cells, it
+    //returns false and leaves the game, the score and the buffer's position alone. Bits past
+    //the last cell of the board are ignored.
+    //****************************************************************************************
+    public static boolean decode(ByteBuffer in, ColorMatchGame game, Score score) {
+        int start = in.position();
+        if (in.remaining() < HEADER_SIZE || in.getShort(start) != MAGIC || in.get(start + 2) != VERSION
+                || in.getShort(start + 4) != game.getNumRows() || in.getShort(start + 6) != game.getNumCols()) {
+            return false;
+        }
+        int winCount = in.get(start + 3);
+        if (winCount < ColorMatchGame.MIN_BLEND_SIZE || winCount > ColorMatchGame.MAX_BLEND_SIZE
+                || in.remaining() < getSize(game, winCount)) {
+            return false;
+        }
+        for (int i = 0; i < winCount; i++) {
+            int cell = in.getInt(start + HEADER_SIZE + 4 * i);
+            if (cell < 0 || cell >= game.getNumCells()) {
+                return false;
+            }
+        }
+        int selection = start + HEADER_SIZE + 4 * winCount + 4 * game.getNumCells();
+        int selected = 0;
+        for (int word = 0; word < game.getSelectionWordCount(); word++) {
+            selected += Long.bitCount(selectionWord(in.getLong(selection + 8 * word), word, game));
+        }
+        if (selected > winCount) {
+            return false;
+        }
+        in.position(start + 8);
+        int blendedColor = in.getInt();
+        int correct = in.getInt();
+        int failure = in.getInt();
+        for (int i = 0; i < winCount; i++) {
+            game.setWinIndex(i, in.getInt());
+        }
+        for (int index = 0; index < game.getNumCells(); index++) {
+            game.setColorAt(index, in.getInt());
+        }
+        for (int word = 0; word < game.getSelectionWordCount(); word++) {
+            game.setSelectionWord(word, selectionWord(in.getLong(), word, game));
+        }
+        game.setWinCount(winCount, blendedColor);
+        score.set(correct, failure);
+        return true;
+    }
+
+    //****************************************************************************************
+    //selectionWord() clears the bits of a selection word that are past the last cell.
+    //****************************************************************************************
+    private static long selectionWord(long bits, int word, ColorMatchGame game) {
+        int cells = game.getNumCells() - 64 * word;
+        return cells >= 64 ? bits : bits & ((1L << cells) - 1);
+    }
+}
@@ -0,0 +1,177 @@
+package com.dgl114.colormatch;
+
+//****************************************************************************************
+//GuessEvaluator.java          Author: zakacat
+//
+//This class scores whole batches of guesses at once, for bots, solver checks and replays
+//that need millions of them a second. isGameOver() scores one selection, and only after
+//the cells have been toggled into the game one by one; here a guess is just numbers in an
+//array. A guess is correct under the same rule as isGameOver(): it is exactly the set of
+//winning cells, in any order.
+//A board is given by its winning cells, winCount of them. A guess is either:
+// - winCount cell indexes (two per guess for the usual pair rounds), or
+// - a bitmask with one bit per cell, words longs per guess, laid out like the game's
+//   selection (cell i is bit i % 64 of word i / 64). A mask with more or fewer bits set
+//   than there are winning cells is wrong, as it is in the game.
+//Every guess can be scored against one board, or each against its own board, given by an
+//index into a table of winning cells (one row of winStride ints per board, as RoundProducer
+//and GameJournal keep them). The results go into the caller's boolean array and nothing is
+//allocated, so a batch can be scored from a hot loop.
+//This class includes:
+// - evaluate()  Score guesses given as cell indexes
+// - evaluateMasks()  Score guesses given as bitmasks
+//****************************************************************************************
+
+public final class GuessEvaluator {
+
+    private GuessEvaluator() {
+    }
+
+    //****************************************************************************************
+    //evaluate() scores count guesses of winCount cells each, guess i at guesses[i * winCount],
+    //against the board whose winning cells are winCells[winOffset] onwards. correct[i] is
+    //whether guess i wins, and the number of correct guesses is returned.
+    //****************************************************************************************
+    public static int evaluate(int[] winCells, int winOffset, int winCount, int[] guesses, int count,
+                               boolean[] correct) {
+        int found = 0;
+        if (winCount == 2) {
+            int win1 = winCells[winOffset];
+            int win2 = winCells[winOffset + 1];
+            for (int i = 0, guess = 0; i < count; i++, guess += 2) {
+                boolean hit = isPair(win1, win2, guesses[guess], guesses[guess + 1]);
+                correct[i] = hit;
+                found += hit ? 1 : 0;
+            }
+            return found;
+        }
+        for (int i = 0, guess = 0; i < count; i++, guess += winCount) {
+            boolean hit = isWinningSet(winCells, winOffset, winCount, guesses, guess);
+            correct[i] = hit;
+            found += hit ? 1 : 0;
+        }
+        return found;
+    }
+
+    //****************************************************************************************
+    //evaluate() for many boards scores guess i against board boards[i], whose winning cells
+    //are winCells[boards[i] * winStride] onwards.
+    //****************************************************************************************
+    public static int evaluate(int[] winCells, int winStride, int winCount, int[] boards, int[] guesses,
+                               int count, boolean[] correct) {
+        int found = 0;
+        if (winCount == 2) {
+            for (int i = 0, guess = 0; i < count; i++, guess += 2) {
+                int win = boards[i] * winStride;
+                boolean hit = isPair(winCells[win], winCells[win + 1], guesses[guess], guesses[guess + 1]);
+                correct[i] = hit;
+                found += hit ? 1 : 0;
+            }
+            return found;
+        }
+        for (int i = 0, guess = 0; i < count; i++, guess += winCount) {
+            boolean hit = isWinningSet(winCells, boards[i] * winStride, winCount, guesses, guess);
+            correct[i] = hit;
+            found += hit ? 1 : 0;
+        }
+        return found;
+    }
+
+    //****************************************************************************************
+    //evaluateMasks() scores count bitmask guesses, guess i at masks[i * words], against the
+    //board whose winning cells are winCells[winOffset] onwards.
+    //****************************************************************************************
+    public static int evaluateMasks(int[] winCells, int winOffset, int winCount, long[] masks, int words,
+                                    int count, boolean[] correct) {
+        int found = 0;
+        if (words == 1) {
+            //The whole board fits in one word, so the winning mask is built once and each
+            //guess is a single compare.
+            long winMask = 0;
+            for (int i = 0; i < winCount; i++) {
+                winMask |= 1L << winCells[winOffset + i];
+            }
+            for (int i = 0; i < count; i++) {
+                boolean hit = masks[i] == winMask;
+                correct[i] = hit;
+                found += hit ? 1 : 0;
+            }
+            return found;
+        }
+        for (int i = 0, mask = 0; i < count; i++, mask += words) {
+            boolean hit = isWinningMask(winCells, winOffset, winCount, masks, mask, words);
+            correct[i] = hit;
+            found += hit ? 1 : 0;
+        }
+        return found;
+    }
+
+    //****************************************************************************************
+    //evaluateMasks() for many boards scores mask i against board boards[i], whose winning
+    //cells are winCells[boards[i] * winStride] onwards.
+    //****************************************************************************************
+    public static int evaluateMasks(int[] winCells, int winStride, int winCount, int[] boards, long[] masks,
+                                    int words, int count, boolean[] correct) {
+        int found = 0;
+        for (int i = 0, mask = 0; i < count; i++, mask += words) {
+            boolean hit = isWinningMask(winCells, boards[i] * winStride, winCount, masks, mask, words);
+            correct[i] = hit;
+            found += hit ? 1 : 0;
+        }
+        return found;
+    }
+
+    //****************************************************************************************
+    //isPair() is whether two guessed cells are the two winning cells, in either order. The
+    //winning cells are different, so a guess of one cell twice never matches.
+    //****************************************************************************************
+    private static boolean isPair(int win1, int win2, int guess1, int guess2) {
+        return (guess1 == win1 & guess2 == win2) | (guess1 == win2 & guess2 == win1);
+    }
+
+    //****************************************************************************************
+    //isWinningSet() is whether the winCount guessed cells at guesses[guess] are the winning
+    //cells. Every guessed cell has to be a winning cell and no cell can be guessed twice,
+    //which together leave only the winning set itself.
+    //****************************************************************************************
+    private static boolean isWinningSet(int[] winCells, int winOffset, int winCount, int[] guesses, int guess) {
+        for (int i = 0; i < winCount; i++) {
+            int cell = guesses[guess + i];
+            boolean winning = false;
+            for (int j = 0; j < winCount; j++) {
+                winning |= winCells[winOffset + j] == cell;
+            }
+            if (!winning) {
+                return false;
+            }
+            for (int j = 0; j < i; j++) {
+                if (guesses[guess + j] == cell) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    //****************************************************************************************
+    //isWinningMask() is whether the mask at masks[mask] has exactly winCount bits set and
+    //every winning cell is one of them.
+    //****************************************************************************************
+    private static boolean isWinningMask(int[] winCells, int winOffset, int winCount, long[] masks, int mask,
+                                         int words) {
+        int bits = 0;
+        for (int word = 0; word < words; word++) {
+            bits += Long.bitCount(masks[mask + word]);
+        }
+        if (bits != winCount) {
+            return false;
+        }
+        for (int i = 0; i < winCount; i++) {
+            int cell = winCells[winOffset + i];
+            if ((masks[mask + (cell >>> 6)] & (1L << cell)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
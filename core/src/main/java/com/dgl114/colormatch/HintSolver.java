@@ -0,0 +1,210 @@
+package com.dgl114.colormatch;
+
+//****************************************************************************************
+//HintSolver.java           Author: zakacat
+//
+//This class finds the pairs of cells whose blend comes closest to a target color, ranked
+//by CIELAB Delta E. The first result is the best match (the answer, on a fair board) and
+//the rest are the near misses. It can be used for in-game hints and by automated players.
+//Instead of blending every pair, the solver uses the same mirror color search as
+//BlendUniquenessChecker: cells are put into a ColorGridIndex, and each cell only looks for
+//partners in the sRGB box that can blend to within a search radius of the target. The
+//radius starts at a guess based on the board size and is doubled until enough pairs have
+//been found, so a query costs about O(n log n) on a random board instead of O(n^2).
+//Pairs can be blended in linear light as well (see ColorMatchGame.setLinearBlend()); the
+//search box is then worked out in linear light (see BlendUniquenessChecker.partnerBox()).
+//Results are kept in a fixed size max-heap on Delta E while searching and are sorted at
+//the end. All arrays are allocated up front, so solving does not allocate.
+//Only pairs are ranked, so a game is only solved when its blend size is 2 (see
+//ColorMatchGame.setBlendSize()).
+//This class includes:
+// - solve()  Find the closest pairs for a game or for a plain array of colors
+// - getResultCount(), getFirstCell(), getSecondCell(), getDeltaE()  Read the results
+//****************************************************************************************
+
+public class HintSolver {
+
+    //Measured on random boards: the number of pairs within a Delta E of r of a target is
+    //about PAIR_DENSITY * n^2 * r^3.
+    private static final double PAIR_DENSITY = 3e-6;
+    private static final float MIN_RADIUS = 0.25f;
+    //Larger than the Delta E between any two sRGB colors.
+    private static final float MAX_RADIUS = 512.0f;
+    private final ColorGridIndex mIndex;
+    private final int[] mColors;
+    private final int[] mCandidates;
+    private final int[] mFirst, mSecond;
+    private final float[] mDistance;
+    private final float[] mLab = new float[6];
+    private final float[] mScratch = new float[BlendUniquenessChecker.REACH_SCRATCH_SIZE];
+    private final int[] mReach = new int[3];
+    private final int[] mBox = new int[6];
+    private int mResultCount;
+
+    public HintSolver(int maxCells, int maxResults) {
+        if (maxResults < 1) {
+            throw new IllegalArgumentException("maxResults must be at least 1: " + maxResults);
+        }
+        mIndex = new ColorGridIndex(maxCells);
+        mColors = new int[maxCells];
+        mCandidates = new int[maxCells];
+        mFirst = new int[maxResults];
+        mSecond = new int[maxResults];
+        mDistance = new float[maxResults];
+    }
+
+    //****************************************************************************************
+    //solve() finds the closest pairs to the game's own target color (see getBlendedColor()),
+    //blended the way the game blends them. The game's blend size has to be 2.
+    //****************************************************************************************
+    public int solve(ColorMatchGame game, int maxResults) {
+        return solve(game, game.getBlendedColor(), maxResults);
+    }
+
+    public int solve(ColorMatchGame game, int targetColor, int maxResults) {
+        if (game.getBlendSize() != 2) {
+            throw new IllegalArgumentException("Hints are only found for pairs: blend size "
+                    + game.getBlendSize());
+        }
+        game.getState(mColors, 0);
+        return solve(mColors, game.getNumCells(), targetColor, maxResults, game.isLinearBlend());
+    }
+
+    public int solve(int[] colors, int count, int targetColor, int maxResults) {
+        return solve(colors, count, targetColor, maxResults, false);
+    }
+
+    //****************************************************************************************
+    //solve() finds up to maxResults pairs among the first count colors whose blend is
+    //closest to targetColor and returns how many were found. Pairs are ordered from the
+    //closest blend to the furthest, and each pair is listed once with the lower cell first.
+    //With linear set, pairs are blended in linear light.
+    //****************************************************************************************
+    public int solve(int[] colors, int count, int targetColor, int maxResults, boolean linear) {
+        maxResults = Math.min(maxResults, mDistance.length);
+        mIndex.build(colors, count);
+        CieLab.toLab(targetColor, mLab, 0);
+
+        float radius = initialRadius(count, maxResults);
+        while (true) {
+            mResultCount = 0;
+            float radiusSquared = radius * radius;
+            BlendUniquenessChecker.computeReach(targetColor, radius, mScratch, mReach);
+
+            for (int cell = 0; cell < count; cell++) {
+                int color = colors[cell];
+                BlendUniquenessChecker.partnerBox(color, targetColor, mReach, linear, mBox);
+                int found = mIndex.query(mBox[0], mBox[1], mBox[2], mBox[3], mBox[4], mBox[5], mCandidates);
+
+                for (int i = 0; i < found; i++) {
+                    int partner = mCandidates[i];
+                    if (partner <= cell) {
+                        continue;
+                    }
+                    CieLab.toLab(ColorUtilities.blend(color, colors[partner], linear), mLab, 3);
+                    float distance = CieLab.deltaESquared(mLab, 0, mLab, 3);
+                    if (distance < radiusSquared) {
+                        offer(cell, partner, distance, maxResults);
+                    }
+                }
+            }
+
+            if (mResultCount == maxResults || radius >= MAX_RADIUS) {
+                break;
+            }
+            radius *= 2;
+        }
+
+        sortResults();
+        return mResultCount;
+    }
+
+    //****************************************************************************************
+    //initialRadius() guesses a radius that holds a few times maxResults pairs, so that most
+    //searches finish on the first pass without checking many more pairs than needed. It uses
+    //StrictMath, so the search (and with it the order of pairs that tie on Delta E) is the
+    //same on every JVM and Android version.
+    //****************************************************************************************
+    private static float initialRadius(int count, int maxResults) {
+        double radius = StrictMath.cbrt(4.0 * maxResults / (PAIR_DENSITY * count * (double) count));
+        return (float) Math.max(MIN_RADIUS, Math.min(radius, MAX_RADIUS));
+    }
+
+    public int getResultCount() {
+        return mResultCount;
+    }
+
+    public int getFirstCell(int rank) {
+        return mFirst[rank];
+    }
+
+    public int getSecondCell(int rank) {
+        return mSecond[rank];
+    }
+
+    public float getDeltaE(int rank) {
+        return mDistance[rank];
+    }
+
+    //****************************************************************************************
+    //offer() adds a pair to the max-heap of the best pairs so far, replacing the worst pair
+    //once the heap is full.
+    //****************************************************************************************
+    private void offer(int first, int second, float distance, int maxResults) {
+        if (mResultCount < maxResults) {
+            int child = mResultCount++;
+            while (child > 0) {
+                int parent = (child - 1) >>> 1;
+                if (mDistance[parent] >= distance) {
+                    break;
+                }
+                set(child, mFirst[parent], mSecond[parent], mDistance[parent]);
+                child = parent;
+            }
+            set(child, first, second, distance);
+        }
+        else if (distance < mDistance[0]) {
+            siftDown(0, mResultCount, first, second, distance);
+        }
+    }
+
+    private void siftDown(int parent, int size, int first, int second, float distance) {
+        while (true) {
+            int child = 2 * parent + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && mDistance[child + 1] > mDistance[child]) {
+                child++;
+            }
+            if (mDistance[child] <= distance) {
+                break;
+            }
+            set(parent, mFirst[child], mSecond[child], mDistance[child]);
+            parent = child;
+        }
+        set(parent, first, second, distance);
+    }
+
+    //****************************************************************************************
+    //sortResults() turns the heap into a list sorted from best to worst (heap sort) and
+    //takes the square root of each distance.
+    //****************************************************************************************
+    private void sortResults() {
+        for (int end = mResultCount - 1; end > 0; end--) {
+            int first = mFirst[end], second = mSecond[end];
+            float distance = mDistance[end];
+            set(end, mFirst[0], mSecond[0], mDistance[0]);
+            siftDown(0, end, first, second, distance);
+        }
+        for (int rank = 0; rank < mResultCount; rank++) {
+            mDistance[rank] = (float) Math.sqrt(mDistance[rank]);
+        }
+    }
+
+    private void set(int slot, int first, int second, float distance) {
+        mFirst[slot] = first;
+        mSecond[slot] = second;
+        mDistance[slot] = distance;
+    }
+}
@@ -0,0 +1,150 @@
+package com.dgl114.colormatch;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//****************************************************************************************
+//Histogram.java            Author: zakacat
+//
+//This is a fixed size histogram of non-negative long values (latencies in nanoseconds, or
+//byte counts). Buckets are log-linear: every power of two is split into SUB_BUCKETS equal
+//buckets, so any value is placed within 1 / SUB_BUCKETS (12.5%) of its true size, from
+//1 ns up to Long.MAX_VALUE, in a few hundred buckets.
+//Recording is a couple of shifts and an atomic add, never allocates, and is safe from any
+//number of threads at once. Percentiles are read by walking the buckets and report the
+//upper edge of the bucket they land in, capped at the largest value recorded.
+//A histogram can be saved into a ByteBuffer and restored from one (see PlayerStatsStore).
+//It always takes SERIALIZED_SIZE bytes, however many values were recorded.
+//****************************************************************************************
+
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    static final int SERIALIZED_SIZE = 8 * (3 + BUCKET_COUNT);
+    private final String mName;
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mSum = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong();
+
+    public Histogram(String name) {
+        mName = name;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    //****************************************************************************************
+    //record() adds one value. Negative values are counted as zero.
+    //****************************************************************************************
+    public void record(long value) {
+        value = Math.max(value, 0);
+        mBuckets.incrementAndGet(bucketOf(value));
+        mCount.incrementAndGet();
+        mSum.addAndGet(value);
+        long max = mMax.get();
+        while (value > max && !mMax.compareAndSet(max, value)) {
+            max = mMax.get();
+        }
+    }
+
+    public void reset() {
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            mBuckets.set(bucket, 0);
+        }
+        mCount.set(0);
+        mSum.set(0);
+        mMax.set(0);
+    }
+
+    public long getCount() {
+        return mCount.get();
+    }
+
+    public long getMax() {
+        return mMax.get();
+    }
+
+    public double getMean() {
+        long count = mCount.get();
+        return count == 0 ? 0 : (double) mSum.get() / count;
+    }
+
+    //****************************************************************************************
+    //getPercentile() returns the value that percentile (0 to 100) percent of the recorded
+    //values are at or below, or 0 if nothing has been recorded.
+    //****************************************************************************************
+    public long getPercentile(double percentile) {
+        long count = mCount.get();
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100.0 * count));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            seen += mBuckets.get(bucket);
+            if (seen >= rank) {
+                return Math.min(getUpperBound(bucket), mMax.get());
+            }
+        }
+        return mMax.get();
+    }
+
+    long getBucketCount(int bucket) {
+        return mBuckets.get(bucket);
+    }
+
+    //****************************************************************************************
+    //writeTo() writes the count, sum, largest value and every bucket as longs. readFrom()
+    //replaces the histogram with what writeTo() wrote. Neither may run while values are
+    //being recorded.
+    //****************************************************************************************
+    void writeTo(ByteBuffer out) {
+        out.putLong(mCount.get());
+        out.putLong(mSum.get());
+        out.putLong(mMax.get());
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            out.putLong(mBuckets.get(bucket));
+        }
+    }
+
+    void readFrom(ByteBuffer in) {
+        mCount.set(in.getLong());
+        mSum.set(in.getLong());
+        mMax.set(in.getLong());
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            mBuckets.set(bucket, in.getLong());
+        }
+    }
+
+    //****************************************************************************************
+    //bucketOf() maps a value to its bucket. Values below SUB_BUCKETS get a bucket each;
+    //above that, the top SUB_BUCKET_BITS + 1 bits of the value pick the bucket.
+    //****************************************************************************************
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return ((shift + 1) << SUB_BUCKET_BITS) + (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+    }
+
+    //****************************************************************************************
+    //getLowerBound() and getUpperBound() are the smallest and largest value in a bucket.
+    //****************************************************************************************
+    static long getLowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        return (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << shift;
+    }
+
+    static long getUpperBound(int bucket) {
+        return bucket == BUCKET_COUNT - 1 ? Long.MAX_VALUE : getLowerBound(bucket + 1) - 1;
+    }
+}
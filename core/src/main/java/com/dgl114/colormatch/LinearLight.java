@@ -0,0 +1,87 @@
+package com.dgl114.colormatch;
+
+//****************************************************************************************
+//LinearLight.java          Author: zakacat
+//
+//This class converts 8 bit sRGB channels to linear light and back with lookup tables, so
+//colors can be mixed the way light mixes. Averaging the gamma encoded values (what the
+//plain ColorUtilities.blend() does) makes blends too dark and muddy, most of all between
+//far apart colors: black and white average to 128, where the light actually mixes to 188.
+//Linear light is a 16 bit integer, 0 to ONE. Decoding is one read of a 256 entry table
+//and encoding is one read of a 65536 entry byte table that holds the nearest sRGB value
+//to every linear value. (A 4096 entry table indexed by the top 12 bits is up to one step
+//off near black, and correcting that step made a blend three times slower; 64 KB of
+//bytes keeps a linear blend about as fast as the gamma encoded one.) There is no
+//Math.pow() per call; the tables are built once from the exact sRGB transfer function in
+//CieLab, the encoding table from the 255 midpoints between sRGB values.
+//This class includes:
+// - toLinear(), toEncoded()  Convert one channel
+// - floorEncoded(), ceilEncoded()  The sRGB values either side of a linear value, for
+//                                  turning a box in linear light into a box in sRGB
+//****************************************************************************************
+
+public final class LinearLight {
+
+    public static final int ONE = 0xFFFF;
+    //The linear value of each 8 bit sRGB value.
+    private static final int[] LINEAR = new int[256];
+    //The nearest 8 bit sRGB value to each linear value.
+    private static final byte[] ENCODE = new byte[ONE + 1];
+
+    static {
+        int linear = 0;
+        for (int value = 0; value < 256; value++) {
+            LINEAR[value] = (int) Math.round(ONE * CieLab.toLinear(value / 255.0));
+            //Linear values from here up to the midpoint with the next sRGB value (rounding
+            //half up) encode to this one.
+            int midpoint = value < 255 ? (int) Math.ceil(ONE * CieLab.toLinear((value + 0.5) / 255.0)) : ONE + 1;
+            for (; linear < midpoint; linear++) {
+                ENCODE[linear] = (byte) value;
+            }
+        }
+    }
+
+    private LinearLight() {
+    }
+
+    //****************************************************************************************
+    //toLinear() decodes an 8 bit sRGB channel value into linear light, 0 to ONE.
+    //****************************************************************************************
+    public static int toLinear(int value) {
+        return LINEAR[value];
+    }
+
+    //****************************************************************************************
+    //toEncoded() encodes linear light (0 to ONE) into the nearest 8 bit sRGB value.
+    //****************************************************************************************
+    public static int toEncoded(int linear) {
+        return ENCODE[linear] & 0xFF;
+    }
+
+    //****************************************************************************************
+    //floorEncoded() is the largest sRGB value whose linear value is at most linear, or -1 if
+    //there is none. ceilEncoded() is the smallest whose linear value is at least linear, or
+    //256 if there is none. Any linear value is allowed, even outside 0 to ONE.
+    //****************************************************************************************
+    public static int floorEncoded(int linear) {
+        if (linear < 0) {
+            return -1;
+        }
+        if (linear >= ONE) {
+            return 255;
+        }
+        int value = toEncoded(linear);
+        return LINEAR[value] > linear ? value - 1 : value;
+    }
+
+    public static int ceilEncoded(int linear) {
+        if (linear <= 0) {
+            return 0;
+        }
+        if (linear > ONE) {
+            return 256;
+        }
+        int value = toEncoded(linear);
+        return LINEAR[value] < linear ? value + 1 : value;
+    }
+}
@@ -0,0 +1,167 @@
+package com.dgl114.colormatch;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+import java.util.concurrent.atomic.LongAdder;
+
+//****************************************************************************************
+//Metrics.java          Author: zakacat
+//
+//This is a small set of counters and histograms for the hot paths of the game: how long
+//newGame() and the bulk blend take, the time from a tap to the board being redrawn, how
+//long a check takes, and how long the time attack clock takes to update each frame. What
+//the hot paths allocate is checked by the unit tests instead, which can count a thread's
+//allocations exactly.
+//Metrics are off unless setEnabled(true) is called once at startup, before any thread
+//that records is started (ColorMatchApplication turns them on in debug builds). The flag
+//is a plain static, so the JIT can keep it in a register and hoist it out of loops. Call
+//sites check isEnabled() once per operation, before they even read the clock, and the
+//bulk loops check it once per call rather than per element, so when metrics are off the
+//cost is a read of one static boolean per operation.
+//Counters are LongAdders and histograms are lock-free (see Histogram), so the round
+//producer and UI threads can record at the same time, and recording never allocates.
+//This class includes:
+// - setEnabled() / isEnabled()  Turn recording on and off
+// - increment(), add(), record()  Record a counter or a histogram value
+// - dump()  A human readable table, for the log
+// - writeJson()  A structured export, for regression tracking
+//****************************************************************************************
+
+public final class Metrics {
+
+    //Histograms, in nanoseconds unless the name says otherwise.
+    public static final int NEW_GAME = 0;
+    public static final int BULK_BLEND = 1;
+    public static final int TAP_TO_RENDER = 2;
+    public static final int CHECK = 3;
+    public static final int FRAME_UPDATE = 4;
+    private static final Histogram[] HISTOGRAMS = {
+            new Histogram("newGame"),
+            new Histogram("bulkBlend"),
+            new Histogram("tapToRender"),
+            new Histogram("check"),
+            new Histogram("frameUpdate"),
+    };
+
+    //Counters.
+    public static final int ROUNDS = 0;
+    public static final int BLENDS = 1;
+    public static final int REROLLS = 2;
+    public static final int TAPS = 3;
+    //Rounds handed out with a rival still on the board, because the re-rolls ran out.
+    public static final int UNIQUE_GIVE_UPS = 4;
+    private static final String[] COUNTER_NAMES = {"rounds", "blends", "rerolls", "taps", "uniqueGiveUps"};
+    private static final LongAdder[] COUNTERS = new LongAdder[COUNTER_NAMES.length];
+
+    static {
+        for (int counter = 0; counter < COUNTERS.length; counter++) {
+            COUNTERS[counter] = new LongAdder();
+        }
+    }
+
+    private static boolean sEnabled;
+
+    private Metrics() {
+    }
+
+    //****************************************************************************************
+    //setEnabled() is meant to be called once at startup. Threads started after it see the
+    //new value; a thread that is already running may not.
+    //****************************************************************************************
+    public static void setEnabled(boolean enabled) {
+        sEnabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return sEnabled;
+    }
+
+    public static void increment(int counter) {
+        COUNTERS[counter].increment();
+    }
+
+    public static void add(int counter, long amount) {
+        COUNTERS[counter].add(amount);
+    }
+
+    public static long getCounter(int counter) {
+        return COUNTERS[counter].sum();
+    }
+
+    public static void record(int histogram, long value) {
+        HISTOGRAMS[histogram].record(value);
+    }
+
+    public static Histogram getHistogram(int histogram) {
+        return HISTOGRAMS[histogram];
+    }
+
+    public static void reset() {
+        for (LongAdder counter : COUNTERS) {
+            counter.reset();
+        }
+        for (Histogram histogram : HISTOGRAMS) {
+            histogram.reset();
+        }
+    }
+
+    //****************************************************************************************
+    //dump() writes one line per counter and per histogram (count, mean, p50, p90, p99, max).
+    //****************************************************************************************
+    public static void dump(Appendable out) throws IOException {
+        for (int counter = 0; counter < COUNTERS.length; counter++) {
+            out.append(String.format(Locale.US, "%-20s %,d%n", COUNTER_NAMES[counter], getCounter(counter)));
+        }
+        out.append(String.format(Locale.US, "%-20s %10s %12s %12s %12s %12s %12s%n",
+                "histogram", "count", "mean", "p50", "p90", "p99", "max"));
+        for (Histogram histogram : HISTOGRAMS) {
+            out.append(String.format(Locale.US, "%-20s %,10d %,12.0f %,12d %,12d %,12d %,12d%n",
+                    histogram.getName(), histogram.getCount(), histogram.getMean(),
+                    histogram.getPercentile(50), histogram.getPercentile(90),
+                    histogram.getPercentile(99), histogram.getMax()));
+        }
+    }
+
+    //****************************************************************************************
+    //writeJson() writes every counter and histogram as one JSON object. Each histogram lists
+    //its summary and its non-empty buckets as [lower bound, upper bound, count].
+    //****************************************************************************************
+    public static void writeJson(Writer out) throws IOException {
+        out.write("{\"counters\":{");
+        for (int counter = 0; counter < COUNTERS.length; counter++) {
+            if (counter > 0) {
+                out.write(',');
+            }
+            out.write("\"" + COUNTER_NAMES[counter] + "\":" + getCounter(counter));
+        }
+        out.write("},\"histograms\":{");
+        for (int index = 0; index < HISTOGRAMS.length; index++) {
+            Histogram histogram = HISTOGRAMS[index];
+            if (index > 0) {
+                out.write(',');
+            }
+            out.write("\"" + histogram.getName() + "\":{\"count\":" + histogram.getCount()
+                    + ",\"mean\":" + String.format(Locale.US, "%.1f", histogram.getMean())
+                    + ",\"p50\":" + histogram.getPercentile(50)
+                    + ",\"p90\":" + histogram.getPercentile(90)
+                    + ",\"p99\":" + histogram.getPercentile(99)
+                    + ",\"max\":" + histogram.getMax() + ",\"buckets\":[");
+            boolean first = true;
+            for (int bucket = 0; bucket < Histogram.BUCKET_COUNT; bucket++) {
+                long count = histogram.getBucketCount(bucket);
+                if (count == 0) {
+                    continue;
+                }
+                if (!first) {
+                    out.write(',');
+                }
+                first = false;
+                out.write("[" + Histogram.getLowerBound(bucket) + "," + Histogram.getUpperBound(bucket)
+                        + "," + count + "]");
+            }
+            out.write("]}");
+        }
+        out.write("}}");
+    }
+}
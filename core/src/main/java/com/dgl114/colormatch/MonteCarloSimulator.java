@@ -0,0 +1,281 @@
+package com.dgl114.colormatch;
+
+import java.io.PrintStream;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+//****************************************************************************************
+//MonteCarloSimulator.java          Author: zakacat
+//
+//This is a headless way to play a very large number of rounds and measure how fair the
+//round generator is. Rounds are split across all cores with fork/join. Every task gets its
+//own SplittableRandom (split from the parent's), so a run is reproducible from its seed no
+//matter how the pool schedules the work.
+//Each round is played with the real game rules: the game draws the winning pair, a random
+//guesser selects two distinct cells, and isGameOver() scores it. By default only the
+//winning pair is drawn (ColorMatchGame.newWinningCells()), which is all the tallies
+//depend on; it is the same pair newGame() would pick for that round. That plays over ten
+//million rounds a second per core, so hundreds of millions take seconds to minutes.
+//setFullRounds(true) generates every board with newGame() as well (colors, distractors and
+//the uniqueness check), to check the generator end to end; that is about 160 thousand
+//rounds a second per core on a 3x3 board, so keep such runs to a few million rounds.
+//The simulator reports:
+// - How often each pair of cells was the winning pair (boards up to MAX_PAIR_CELLS cells)
+// - How often each cell was part of the winning pair
+// - The win rate of the random guesser, next to the rate a fair generator would give
+//Run from the benchmark module with: ./gradlew :benchmark:simulate --args="3 3 100000000"
+//****************************************************************************************
+
+public class MonteCarloSimulator {
+
+    public static final int MAX_PAIR_CELLS = 256;
+    private static final long ROUNDS_PER_TASK = 1L << 20;
+    private final int mNumRows, mNumCols;
+    private final ForkJoinPool mPool;
+    private boolean mFullRounds;
+
+    public MonteCarloSimulator(int numRows, int numCols) {
+        this(numRows, numCols, ForkJoinPool.commonPool());
+    }
+
+    public MonteCarloSimulator(int numRows, int numCols, ForkJoinPool pool) {
+        ColorMatchGame.checkBoardSize(numRows, numCols);
+        mNumRows = numRows;
+        mNumCols = numCols;
+        mPool = pool;
+    }
+
+    //****************************************************************************************
+    //setFullRounds() chooses whether each round generates the whole board or only draws the
+    //winning pair. The tallies are the same either way.
+    //****************************************************************************************
+    public void setFullRounds(boolean fullRounds) {
+        mFullRounds = fullRounds;
+    }
+
+    //****************************************************************************************
+    //run() plays the given number of rounds and returns the combined tallies.
+    //****************************************************************************************
+    public Result run(long rounds, long seed) {
+        long start = System.nanoTime();
+        Result result = mPool.invoke(new SimulationTask(rounds, new SplittableRandom(seed)));
+        result.mElapsedNanos = System.nanoTime() - start;
+        return result;
+    }
+
+    //****************************************************************************************
+    //SimulationTask halves its share of rounds until it is small enough, then plays them on
+    //its own ColorMatchGame.
+    //****************************************************************************************
+    @SuppressWarnings("serial") //never serialized
+    private class SimulationTask extends RecursiveTask<Result> {
+
+        private final long mRounds;
+        private final SplittableRandom mRandom;
+
+        SimulationTask(long rounds, SplittableRandom random) {
+            mRounds = rounds;
+            mRandom = random;
+        }
+
+        @Override
+        protected Result compute() {
+            if (mRounds <= ROUNDS_PER_TASK) {
+                return play();
+            }
+            long half = mRounds / 2;
+            SimulationTask left = new SimulationTask(half, mRandom.split());
+            SimulationTask right = new SimulationTask(mRounds - half, mRandom);
+            left.fork();
+            Result result = right.compute();
+            result.add(left.join());
+            return result;
+        }
+
+        private Result play() {
+            ColorMatchGame game = new ColorMatchGame(mNumRows, mNumCols, mRandom.split());
+            Result result = new Result(mNumRows, mNumCols);
+            int numCells = game.getNumCells();
+            boolean fullRounds = mFullRounds;
+
+            for (long round = 0; round < mRounds; round++) {
+                if (fullRounds) {
+                    game.newGame();
+                }
+                else {
+                    game.newWinningCells();
+                }
+                int win1 = game.getWinIndex1();
+                int win2 = game.getWinIndex2();
+                result.mCellCounts[win1]++;
+                result.mCellCounts[win2]++;
+                if (result.mPairCounts != null) {
+                    result.mPairCounts[pairIndex(win1, win2, numCells)]++;
+                }
+
+                int guess1 = mRandom.nextInt(numCells);
+                int guess2 = mRandom.nextInt(numCells - 1);
+                if (guess2 >= guess1) {
+                    guess2++;
+                }
+                game.resetSelection();
+                game.toggleButtonSelection(guess1 / mNumCols, guess1 % mNumCols);
+                game.toggleButtonSelection(guess2 / mNumCols, guess2 % mNumCols);
+                if (game.isGameOver()) {
+                    result.mWins++;
+                }
+            }
+            result.mRounds = mRounds;
+            return result;
+        }
+    }
+
+    //****************************************************************************************
+    //pairIndex() maps an unordered pair of cells onto a numCells x numCells table, always
+    //using the smaller cell as the row.
+    //****************************************************************************************
+    private static int pairIndex(int cell1, int cell2, int numCells) {
+        return Math.min(cell1, cell2) * numCells + Math.max(cell1, cell2);
+    }
+
+    //****************************************************************************************
+    //Result holds the tallies for a run. Partial results from the fork/join tasks are added
+    //together as the tasks finish.
+    //****************************************************************************************
+    public static class Result {
+
+        private final int mNumRows, mNumCols, mNumCells;
+        private final long[] mCellCounts;
+        private final long[] mPairCounts;
+        private long mRounds, mWins, mElapsedNanos;
+
+        Result(int numRows, int numCols) {
+            mNumRows = numRows;
+            mNumCols = numCols;
+            mNumCells = numRows * numCols;
+            mCellCounts = new long[mNumCells];
+            mPairCounts = mNumCells <= MAX_PAIR_CELLS ? new long[mNumCells * mNumCells] : null;
+        }
+
+        void add(Result other) {
+            mRounds += other.mRounds;
+            mWins += other.mWins;
+            for (int i = 0; i < mCellCounts.length; i++) {
+                mCellCounts[i] += other.mCellCounts[i];
+            }
+            if (mPairCounts != null) {
+                for (int i = 0; i < mPairCounts.length; i++) {
+                    mPairCounts[i] += other.mPairCounts[i];
+                }
+            }
+        }
+
+        public long getRounds() {
+            return mRounds;
+        }
+
+        public long getWins() {
+            return mWins;
+        }
+
+        public long getElapsedNanos() {
+            return mElapsedNanos;
+        }
+
+        public double getWinRate() {
+            return mRounds == 0 ? 0 : (double) mWins / mRounds;
+        }
+
+        //****************************************************************************************
+        //getFairWinRate() is the win rate of a random guesser against a generator that picks
+        //every pair of cells equally often: one over the number of pairs.
+        //****************************************************************************************
+        public double getFairWinRate() {
+            return 2.0 / ((double) mNumCells * (mNumCells - 1));
+        }
+
+        public long getCellCount(int row, int col) {
+            return mCellCounts[row * mNumCols + col];
+        }
+
+        //****************************************************************************************
+        //getCellFrequency() is the share of rounds in which the cell was one of the two
+        //winning cells. A fair generator gives every cell 2 / numCells.
+        //****************************************************************************************
+        public double getCellFrequency(int row, int col) {
+            return mRounds == 0 ? 0 : (double) getCellCount(row, col) / mRounds;
+        }
+
+        public boolean hasPairCounts() {
+            return mPairCounts != null;
+        }
+
+        public long getPairCount(int cell1, int cell2) {
+            return mPairCounts[pairIndex(cell1, cell2, mNumCells)];
+        }
+
+        //****************************************************************************************
+        //getPairChiSquare() compares the winning pair counts with a uniform spread over all
+        //numCells * (numCells - 1) / 2 pairs. It should be close to the number of pairs
+        //minus one for a fair generator, and much larger for a biased one.
+        //****************************************************************************************
+        public double getPairChiSquare() {
+            double expected = mRounds * getFairWinRate();
+            double chiSquare = 0;
+            for (int cell1 = 0; cell1 < mNumCells; cell1++) {
+                for (int cell2 = cell1 + 1; cell2 < mNumCells; cell2++) {
+                    double diff = mPairCounts[cell1 * mNumCells + cell2] - expected;
+                    chiSquare += diff * diff / expected;
+                }
+            }
+            return chiSquare;
+        }
+
+        public void printReport(PrintStream out) {
+            double seconds = mElapsedNanos / 1e9;
+            out.printf("Board %dx%d, %,d rounds in %.2f s (%,.0f rounds/s)%n",
+                    mNumRows, mNumCols, mRounds, seconds, mRounds / Math.max(seconds, 1e-9));
+            out.printf("Random guess win rate: %.6f (fair generator: %.6f)%n",
+                    getWinRate(), getFairWinRate());
+
+            out.println("Winning cell frequency (fair: " + String.format("%.4f", 2.0 / mNumCells) + "):");
+            for (int row = 0; row < mNumRows; row++) {
+                StringBuilder line = new StringBuilder();
+                for (int col = 0; col < mNumCols; col++) {
+                    line.append(String.format(" %.4f", getCellFrequency(row, col)));
+                }
+                out.println(line);
+            }
+
+            if (hasPairCounts()) {
+                int pairs = mNumCells * (mNumCells - 1) / 2;
+                int neverChosen = 0;
+                for (int cell1 = 0; cell1 < mNumCells; cell1++) {
+                    for (int cell2 = cell1 + 1; cell2 < mNumCells; cell2++) {
+                        if (getPairCount(cell1, cell2) == 0) {
+                            neverChosen++;
+                        }
+                    }
+                }
+                out.printf("Winning pairs never chosen: %d of %d%n", neverChosen, pairs);
+                out.printf("Pair chi-square vs uniform: %.1f (%d degrees of freedom)%n",
+                        getPairChiSquare(), pairs - 1);
+            }
+        }
+    }
+
+    //****************************************************************************************
+    //main() takes rows, columns, rounds, an optional seed and "full" to generate whole boards.
+    //****************************************************************************************
+    public static void main(String[] args) {
+        int numRows = args.length > 0 ? Integer.parseInt(args[0]) : ColorMatchGame.NUM_ROWS;
+        int numCols = args.length > 1 ? Integer.parseInt(args[1]) : ColorMatchGame.NUM_COLS;
+        long rounds = args.length > 2 ? Long.parseLong(args[2]) : 100_000_000L;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : System.nanoTime();
+
+        MonteCarloSimulator simulator = new MonteCarloSimulator(numRows, numCols);
+        simulator.setFullRounds(args.length > 4 && args[4].equals("full"));
+        simulator.run(rounds, seed).printReport(System.out);
+    }
+}
@@ -0,0 +1,95 @@
+package com.dgl114.colormatch;
+
+//****************************************************************************************
+//PlayerStats.java          Author: zakacat
+//
+//These are the player's long term statistics: for every round played, how long it took to
+//solve (if it was solved), how many times the player checked, and at what difficulty.
+//Instead of keeping every round, each aggregate is a fixed size Histogram that is updated
+//as rounds finish, so the median or p95 solve time over millions of rounds costs the same
+//memory and time as over ten. Percentiles are accurate to the Histogram's 12.5%.
+//Rounds are kept per difficulty level (the difficulty rounded to the nearest quarter)
+//and for all levels together, at ALL_LEVELS. PlayerStatsStore saves and loads them.
+//This class includes:
+// - recordSolved(), recordUnsolved()  Add a finished round
+// - getRoundCount(), getSolvedCount()  How many rounds were played and solved
+// - getSolveTimes(), getAttempts()  The histograms, in milliseconds and checks per round
+//****************************************************************************************
+
+public class PlayerStats {
+
+    public static final int LEVELS = 5;
+    public static final int ALL_LEVELS = LEVELS;
+    private final long[] mRounds = new long[LEVELS + 1];
+    private final long[] mSolved = new long[LEVELS + 1];
+    private final Histogram[] mSolveTimes = new Histogram[LEVELS + 1];
+    private final Histogram[] mAttempts = new Histogram[LEVELS + 1];
+
+    public PlayerStats() {
+        for (int level = 0; level <= LEVELS; level++) {
+            mSolveTimes[level] = new Histogram("solveMillis");
+            mAttempts[level] = new Histogram("attempts");
+        }
+    }
+
+    //****************************************************************************************
+    //levelOf() maps a difficulty from 0 to 1 onto a level from 0 to LEVELS - 1.
+    //****************************************************************************************
+    public static int levelOf(float difficulty) {
+        return Math.max(0, Math.min(LEVELS - 1, Math.round(difficulty * (LEVELS - 1))));
+    }
+
+    //****************************************************************************************
+    //recordSolved() adds a round that was solved after solveMillis, on the attempts-th check.
+    //recordUnsolved() adds a round that was given up on after the given number of checks.
+    //****************************************************************************************
+    public void recordSolved(float difficulty, long solveMillis, int attempts) {
+        int level = levelOf(difficulty);
+        record(level, attempts);
+        record(ALL_LEVELS, attempts);
+        mSolved[level]++;
+        mSolved[ALL_LEVELS]++;
+        mSolveTimes[level].record(solveMillis);
+        mSolveTimes[ALL_LEVELS].record(solveMillis);
+    }
+
+    public void recordUnsolved(float difficulty, int attempts) {
+        record(levelOf(difficulty), attempts);
+        record(ALL_LEVELS, attempts);
+    }
+
+    private void record(int level, int attempts) {
+        mRounds[level]++;
+        mAttempts[level].record(attempts);
+    }
+
+    public void reset() {
+        for (int level = 0; level <= LEVELS; level++) {
+            mRounds[level] = 0;
+            mSolved[level] = 0;
+            mSolveTimes[level].reset();
+            mAttempts[level].reset();
+        }
+    }
+
+    public long getRoundCount(int level) {
+        return mRounds[level];
+    }
+
+    public long getSolvedCount(int level) {
+        return mSolved[level];
+    }
+
+    public Histogram getSolveTimes(int level) {
+        return mSolveTimes[level];
+    }
+
+    public Histogram getAttempts(int level) {
+        return mAttempts[level];
+    }
+
+    void setCounts(int level, long rounds, long solved) {
+        mRounds[level] = rounds;
+        mSolved[level] = solved;
+    }
+}
@@ -0,0 +1,129 @@
+package com.dgl114.colormatch;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+//****************************************************************************************
+//PlayerStatsStore.java         Author: zakacat
+//
+//This class saves PlayerStats to a file and loads them back. Every histogram has a fixed
+//size, so the file always has the same length, SIZE bytes, however many rounds have been
+//played. Loading is one read of that many bytes into a reused buffer, and takes the same
+//time after ten rounds as after ten million. The layout (big-endian) is:
+// - magic 'CS' (2 bytes), version (1 byte), reserved (1 byte), levels (4 bytes)
+// - for each level and then for all levels together: rounds and solved rounds (8 bytes
+//   each), then the solve time and attempts histograms (see Histogram.writeTo())
+//A save is written to a temporary file that then replaces the old one, so a save that is
+//cut off leaves the previous stats in place. A store is not thread safe; use it from one
+//thread at a time.
+//This class includes:
+// - encode() / decode()  Write and read the stats in a ByteBuffer
+// - save() / load()  Write and read the stats file
+//****************************************************************************************
+
+public class PlayerStatsStore {
+
+    public static final short MAGIC = 0x4353;
+    public static final byte VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    public static final int SIZE = HEADER_SIZE + (PlayerStats.LEVELS + 1) * (16 + 2 * Histogram.SERIALIZED_SIZE);
+    private final File mFile;
+    private final File mTempFile;
+    private final ByteBuffer mBuffer = ByteBuffer.allocate(SIZE);
+
+    public PlayerStatsStore(File file) {
+        mFile = file;
+        mTempFile = new File(file.getPath() + ".tmp");
+    }
+
+    //****************************************************************************************
+    //encode() writes the stats at the buffer's position and moves the position past them.
+    //****************************************************************************************
+    public static void encode(PlayerStats stats, ByteBuffer out) {
+        out.putShort(MAGIC);
+        out.put(VERSION);
+        out.put((byte) 0);
+        out.putInt(PlayerStats.LEVELS);
+        for (int level = 0; level <= PlayerStats.ALL_LEVELS; level++) {
+            out.putLong(stats.getRoundCount(level));
+            out.putLong(stats.getSolvedCount(level));
+            stats.getSolveTimes(level).writeTo(out);
+            stats.getAttempts(level).writeTo(out);
+        }
+    }
+
+    //****************************************************************************************
+    //decode() reads stats at the buffer's position into stats. If they are from another
+    //version or cut short, it returns false and leaves the stats and the buffer's position
+    //alone.
+    //****************************************************************************************
+    public static boolean decode(ByteBuffer in, PlayerStats stats) {
+        int start = in.position();
+        if (in.remaining() < SIZE || in.getShort(start) != MAGIC || in.get(start + 2) != VERSION
+                || in.getInt(start + 4) != PlayerStats.LEVELS) {
+            return false;
+        }
+        in.position(start + HEADER_SIZE);
+        for (int level = 0; level <= PlayerStats.ALL_LEVELS; level++) {
+            long rounds = in.getLong();
+            long solved = in.getLong();
+            stats.setCounts(level, rounds, solved);
+            stats.getSolveTimes(level).readFrom(in);
+            stats.getAttempts(level).readFrom(in);
+        }
+        return true;
+    }
+
+    //****************************************************************************************
+    //load() reads the stats file into stats. It returns false, and resets the stats, if
+    //there is no file yet or it can't be used.
+    //****************************************************************************************
+    public boolean load(PlayerStats stats) throws IOException {
+        mBuffer.clear();
+        if (mFile.isFile()) {
+            try (FileChannel channel = new FileInputStream(mFile).getChannel()) {
+                while (mBuffer.hasRemaining() && channel.read(mBuffer) >= 0) {
+                    //keep reading until the buffer is full or the file ends
+                }
+            }
+        }
+        mBuffer.flip();
+        if (!decode(mBuffer, stats)) {
+            stats.reset();
+            return false;
+        }
+        return true;
+    }
+
+    //****************************************************************************************
+    //save() writes the stats to the temporary file and then moves it over the stats file.
+    //****************************************************************************************
+    public void save(PlayerStats stats) throws IOException {
+        mBuffer.clear();
+        encode(stats, mBuffer);
+        mBuffer.flip();
+        save(mBuffer);
+    }
+
+    //****************************************************************************************
+    //save() for encoded stats saves stats that encode() has already written, from the
+    //buffer's position to its limit. The stats can then be encoded on the thread that owns
+    //them and saved on another.
+    //****************************************************************************************
+    public void save(ByteBuffer encoded) throws IOException {
+        try (FileOutputStream out = new FileOutputStream(mTempFile)) {
+            FileChannel channel = out.getChannel();
+            while (encoded.hasRemaining()) {
+                channel.write(encoded);
+            }
+            out.getFD().sync();
+        }
+        if (!mTempFile.renameTo(mFile)) {
+            throw new IOException("Could not replace " + mFile);
+        }
+    }
+}
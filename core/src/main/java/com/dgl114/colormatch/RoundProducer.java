@@ -0,0 +1,213 @@
+package com.dgl114.colormatch;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+//****************************************************************************************
+//RoundProducer.java            Author: zakacat
+//
+//This class generates rounds ahead of time on a background thread so that starting a new
+//game on the UI thread is only a copy. The producer thread has its own ColorMatchGame that
+//it uses to generate each round (colors, winning cells, blended target color and round key)
+//and copies the result into a bounded ring buffer.
+//The ring buffer is single producer / single consumer and lock-free. mTail counts rounds
+//written and mHead counts rounds taken; a slot is only written when the consumer is done
+//with it and only read once the producer has published it. All slots are allocated up
+//front, so neither side allocates while running. When the ring is full the producer parks
+//until a round is taken.
+//Rounds are generated with the settings of the game they are for: difficulty, blend size,
+//linear blending and uniqueness threshold. copySettings() hands them to the producer with a
+//new version number, every slot records the version it was generated with, and takeRound()
+//drops rounds made with older settings instead of handing them out. takeRound() copies the
+//settings itself when the game's have changed, so a game can be configured at any time.
+//This class includes:
+// - start() / stop() Start and stop the producer thread
+// - copySettings() Generate the next rounds with a game's settings
+// - takeRound() Load the next finished round into a game, if one is ready
+// - run loop  Generate rounds until the ring is full, then wait
+//****************************************************************************************
+
+public class RoundProducer implements Runnable {
+
+    public static final int DEFAULT_CAPACITY = 4;
+    private final ColorMatchGame mGenerator;
+    private final int mNumCells, mMask;
+    private final int[] mColors;
+    private final int[] mWinCells, mWinCounts, mBlendedColors;
+    private final long[] mRoundKeys;
+    private final int[] mSlotVersions;
+    //The settings to generate with. They are written before mSettingsVersion and read after
+    //it, so a round stamped with a version was made with at least that version's settings.
+    private volatile float mDifficulty, mThreshold;
+    private volatile int mBlendSize;
+    private volatile boolean mLinearBlend;
+    private volatile int mSettingsVersion;
+    //The version mGenerator is set up for. Only the producer thread uses it.
+    private int mGeneratorVersion;
+    private final AtomicLong mHead = new AtomicLong();
+    private final AtomicLong mTail = new AtomicLong();
+    private volatile boolean mRunning;
+    private boolean mStopped;
+    private volatile Thread mThread;
+
+    public RoundProducer(int numRows, int numCols) {
+        this(numRows, numCols, DEFAULT_CAPACITY);
+    }
+
+    public RoundProducer(int numRows, int numCols, int capacity) {
+        this(numRows, numCols, capacity, new SplittableRandom());
+    }
+
+    RoundProducer(int numRows, int numCols, int capacity, SplittableRandom random) {
+        if (capacity < 1 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Capacity must be a power of two: " + capacity);
+        }
+        mGenerator = new ColorMatchGame(numRows, numCols, random);
+        mNumCells = mGenerator.getNumCells();
+        mMask = capacity - 1;
+        mColors = new int[capacity * mNumCells];
+        mWinCells = new int[capacity * ColorMatchGame.MAX_BLEND_SIZE];
+        mWinCounts = new int[capacity];
+        mBlendedColors = new int[capacity];
+        mRoundKeys = new long[capacity];
+        mSlotVersions = new int[capacity];
+        mDifficulty = mGenerator.getDifficulty();
+        mThreshold = mGenerator.getUniquenessThreshold();
+        mBlendSize = mGenerator.getBlendSize();
+        mLinearBlend = mGenerator.isLinearBlend();
+    }
+
+    //****************************************************************************************
+    //start() starts the producer thread. It is a daemon thread with a low priority so it
+    //never holds up the UI or the process exiting. A producer can only be started once.
+    //****************************************************************************************
+    public synchronized void start() {
+        if (mRunning) {
+            return;
+        }
+        if (mStopped) {
+            throw new IllegalStateException("RoundProducer cannot be restarted");
+        }
+        mRunning = true;
+        Thread thread = new Thread(this, "RoundProducer");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        mThread = thread;
+        thread.start();
+    }
+
+    //****************************************************************************************
+    //stop() asks the producer thread to finish and wakes it up if it is waiting. Rounds that
+    //are already in the ring can still be taken.
+    //****************************************************************************************
+    public synchronized void stop() {
+        mRunning = false;
+        mStopped = true;
+        Thread thread = mThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+            mThread = null;
+        }
+    }
+
+    //****************************************************************************************
+    //copySettings() makes the producer generate the next rounds with the game's difficulty,
+    //blend size, linear blending and uniqueness threshold. Rounds already in the ring are
+    //dropped by takeRound(). Only the thread that takes rounds may call this.
+    //****************************************************************************************
+    public void copySettings(ColorMatchGame game) {
+        mDifficulty = game.getDifficulty();
+        mThreshold = game.getUniquenessThreshold();
+        mBlendSize = game.getBlendSize();
+        mLinearBlend = game.isLinearBlend();
+        mSettingsVersion++;
+        wakeProducer();
+    }
+
+    //****************************************************************************************
+    //takeRound() copies the oldest finished round into the game and frees its slot. Rounds
+    //made with other settings than the game's are dropped on the way. It returns false
+    //without touching the game if no round is ready yet, in which case the caller should
+    //fall back to game.newGame(). A game of another board size than the producer's never
+    //gets a round: the oldest one is dropped, the same as a round with stale settings, and
+    //false is returned. Only one thread may call this.
+    //****************************************************************************************
+    public boolean takeRound(ColorMatchGame game) {
+        if (game.getNumRows() != mGenerator.getNumRows() || game.getNumCols() != mGenerator.getNumCols()) {
+            long head = mHead.get();
+            if (head != mTail.get()) {
+                mHead.lazySet(head + 1);
+                wakeProducer();
+            }
+            return false;
+        }
+        if (!hasSettingsOf(game)) {
+            copySettings(game);
+        }
+        int version = mSettingsVersion;
+        long head = mHead.get();
+        boolean taken = false;
+        while (!taken && head != mTail.get()) {
+            int slot = (int) head & mMask;
+            if (mSlotVersions[slot] == version) {
+                game.loadRound(mColors, slot * mNumCells, mWinCells, slot * ColorMatchGame.MAX_BLEND_SIZE,
+                        mWinCounts[slot], mBlendedColors[slot], mRoundKeys[slot]);
+                taken = true;
+            }
+            head++;
+            mHead.lazySet(head);
+            wakeProducer();
+        }
+        return taken;
+    }
+
+    //****************************************************************************************
+    //getReadyCount() returns how many finished rounds are waiting in the ring.
+    //****************************************************************************************
+    public int getReadyCount() {
+        return (int) (mTail.get() - mHead.get());
+    }
+
+    private boolean hasSettingsOf(ColorMatchGame game) {
+        return game.getDifficulty() == mDifficulty && game.getUniquenessThreshold() == mThreshold
+                && game.getBlendSize() == mBlendSize && game.isLinearBlend() == mLinearBlend;
+    }
+
+    private void wakeProducer() {
+        Thread thread = mThread;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
+    }
+
+    @Override
+    public void run() {
+        while (mRunning) {
+            long tail = mTail.get();
+            if (tail - mHead.get() > mMask) {
+                LockSupport.park(this);
+                continue;
+            }
+            int slot = (int) tail & mMask;
+            int version = mSettingsVersion;
+            if (version != mGeneratorVersion) {
+                mGenerator.setDifficulty(mDifficulty);
+                mGenerator.setUniquenessThreshold(mThreshold);
+                mGenerator.setBlendSize(mBlendSize);
+                mGenerator.setLinearBlend(mLinearBlend);
+                mGeneratorVersion = version;
+            }
+            mSlotVersions[slot] = version;
+            mGenerator.newGame();
+            mGenerator.getState(mColors, slot * mNumCells);
+            mWinCounts[slot] = mGenerator.getWinCount();
+            for (int i = 0; i < mGenerator.getWinCount(); i++) {
+                mWinCells[slot * ColorMatchGame.MAX_BLEND_SIZE + i] = mGenerator.getWinIndex(i);
+            }
+            mBlendedColors[slot] = mGenerator.getBlendedColor();
+            mRoundKeys[slot] = mGenerator.getRoundKey();
+            mTail.lazySet(tail + 1);
+        }
+    }
+}
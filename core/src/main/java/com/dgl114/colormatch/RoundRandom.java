@@ -0,0 +1,76 @@
+package com.dgl114.colormatch;
+
+//****************************************************************************************
+//RoundRandom.java          Author: zakacat
+//
+//This is the random number generator that rounds are generated with. It is counter-based:
+//the n-th number drawn for a round is mix64(key + n * GOLDEN_GAMMA), a pure function of
+//the round's key and n. mix64() is the SplitMix64 finalizer, the same one SplittableRandom
+//uses, so the numbers are exactly the ones new SplittableRandom(key).nextLong() would give.
+//Round keys come from a seed the same way: roundKey(seed, round) is the value the
+//round-th nextLong() of new SplittableRandom(seed) would return, computed directly. Any
+//round of a seed can therefore be generated in O(1), without generating the rounds
+//before it and without storing any boards. A round can be shared as its key alone (one
+//long), and every device that generates the key on the same board size gets the same
+//board.
+//A RoundRandom is reset for every round rather than created, so generating a round does
+//not allocate.
+//****************************************************************************************
+
+public final class RoundRandom {
+
+    static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private long mKey;
+    private long mCounter;
+
+    //****************************************************************************************
+    //roundKey() is the key of round number round (counting from 0) of the given seed.
+    //****************************************************************************************
+    public static long roundKey(long seed, long round) {
+        return mix64(seed + (round + 1) * GOLDEN_GAMMA);
+    }
+
+    //****************************************************************************************
+    //reset() starts drawing the numbers of the round with the given key, from the first.
+    //****************************************************************************************
+    public void reset(long key) {
+        mKey = key;
+        mCounter = 0;
+    }
+
+    public long getKey() {
+        return mKey;
+    }
+
+    public long nextLong() {
+        return mix64(mKey + ++mCounter * GOLDEN_GAMMA);
+    }
+
+    //****************************************************************************************
+    //nextInt() returns a uniformly distributed int from 0 (inclusive) to bound (exclusive).
+    //The high 32 bits of a draw are scaled by bound with one multiply, and the rare draws
+    //that would make some results more likely than others are thrown away.
+    //****************************************************************************************
+    public int nextInt(int bound) {
+        if (bound <= 0) {
+            throw new IllegalArgumentException("Bound must be positive: " + bound);
+        }
+        long product = (nextLong() >>> 32) * bound;
+        if ((product & 0xFFFFFFFFL) < bound) {
+            long threshold = (0x100000000L - bound) % bound;
+            while ((product & 0xFFFFFFFFL) < threshold) {
+                product = (nextLong() >>> 32) * bound;
+            }
+        }
+        return (int) (product >>> 32);
+    }
+
+    //****************************************************************************************
+    //mix64() scrambles all 64 bits of z into a well distributed 64 bit value.
+    //****************************************************************************************
+    static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,49 @@
+package com.dgl114.colormatch;
+
+//****************************************************************************************
+//Score.java            Author: zakacat
+//
+//This class keeps the running totals of correct guesses and absolute failures for a
+//player. It is kept apart from ColorMatchGame because the totals carry on from one round
+//(and one board) to the next.
+//****************************************************************************************
+
+public class Score {
+
+    private int mCorrect, mFailure;
+
+    public Score() {
+
+    }
+
+    //****************************************************************************************
+    //Setters
+    //****************************************************************************************
+    public void recordCorrect() {
+        mCorrect++;
+    }
+
+    public void recordFailure() {
+        mFailure++;
+    }
+
+    public void set(int correct, int failure) {
+        mCorrect = correct;
+        mFailure = failure;
+    }
+
+    public void reset() {
+        set(0, 0);
+    }
+
+    //****************************************************************************************
+    //Getters
+    //****************************************************************************************
+    public int getCorrect() {
+        return mCorrect;
+    }
+
+    public int getFailure() {
+        return mFailure;
+    }
+}
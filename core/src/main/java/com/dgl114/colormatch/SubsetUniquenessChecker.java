@@ -0,0 +1,369 @@
+package com.dgl114.colormatch;
+
+import java.util.Arrays;
+
+//****************************************************************************************
+//SubsetUniquenessChecker.java          Author: zakacat
+//
+//This is the BlendUniquenessChecker for rounds whose target is the blend of k cells
+//(k = 3 to MAX_SUBSET_SIZE). It finds "rival" subsets: sets of k cells, other than the
+//winning cells, whose blend is within a Delta E threshold of the target color.
+//There are C(n, k) subsets, far too many to try one by one (C(64, 4) is 635,376), so the
+//search meets in the middle. The blend is a per channel average, so a subset blends to
+//the target when its channel sums are close to k * target. Every subset is split into a
+//first half of its k / 2 lowest cells and a second half of the rest, and
+//  sum(first half) = k * target - sum(second half)
+//The channel sums of every first half are bucketed on a uniform grid (a hash of the sums)
+//with a counting sort. Then, for every second half, only the one to eight buckets around
+//its mirror sum are looked at, and only the subsets in them that are within the search
+//box (worked out from the threshold the same way as BlendUniquenessChecker's) are blended
+//and checked exactly. Halves are stepped through in colex order (by their highest cell),
+//so each bucket is sorted by highest cell and a scan stops at the first half that isn't
+//wholly below the second half; that way every subset is met once, from its one split.
+//That is O(C(n, k / 2) + C(n, k - k / 2)) plus the few candidates, instead of
+//O(C(n, k)); for k = 4 on a 64 cell board it is two lists of 2,016 pairs.
+//In linear light mode (see ColorUtilities.blendLinear()) the blend averages linear light
+//instead, so the sums are of linear values (cut down to 12 bits) and the box is the
+//target's range decoded into linear light, the same way as BlendUniquenessChecker's.
+//Boards where either half has more than MAX_HALF_SUBSETS subsets are not checked (see
+//canCheck()). The arrays grow to the largest board checked and are then reused, so
+//checking a round does not allocate.
+//This class includes:
+// - canCheck()  Whether a board is small enough to check
+// - reset()  Set up the board, winning cells and target for checking
+// - findRivals()  Find rival subsets
+//****************************************************************************************
+
+public class SubsetUniquenessChecker {
+
+    public static final int MAX_SUBSET_SIZE = 6;
+    //Keeps a check to tens of milliseconds: k = 3 or 4 on up to 128 cells, k = 5 or 6 on
+    //up to 38.
+    public static final int MAX_HALF_SUBSETS = 1 << 13;
+    //Cells are packed 12 bits each, three to a long, so a board can have at most 4096.
+    public static final int MAX_CELLS = 1 << 12;
+    private static final int CELL_BITS = 12;
+    private static final int CELL_MASK = (1 << CELL_BITS) - 1;
+    private static final int MAX_BUCKETS_PER_AXIS = 64;
+    //Linear values are summed as their top 12 bits, so a sum of three fits in 16.
+    private static final int LINEAR_SHIFT = 4;
+    private static final int SUM_BITS = 16;
+    private static final int SUM_MASK = (1 << SUM_BITS) - 1;
+    //Stands in for a bound that doesn't limit anything.
+    private static final int UNBOUNDED = 1 << 20;
+    private final float[] mLab = new float[6];
+    private final float[] mScratch = new float[BlendUniquenessChecker.REACH_SCRATCH_SIZE];
+    private final int[] mReach = new int[3];
+    //Every rival's channel sums (over all of its cells) are between these.
+    private final int[] mSumLow = new int[3];
+    private final int[] mSumHigh = new int[3];
+    private final int[] mWidth = new int[3];
+    private final int[] mAxisBuckets = new int[3];
+    private final int[] mWinCells = new int[MAX_SUBSET_SIZE];
+    private final int[] mCombination = new int[MAX_SUBSET_SIZE];
+    private final int[] mMembers = new int[MAX_SUBSET_SIZE];
+    private final int[] mSubset = new int[MAX_SUBSET_SIZE];
+    private long[] mSums = new long[0];
+    private long[] mCells = new long[0];
+    private int[] mBucketStart = new int[1];
+    private int[] mColors;
+    private int mCount, mSize, mFirstSize, mSecondSize, mTargetColor;
+    private float mThreshold = BlendUniquenessChecker.DEFAULT_THRESHOLD;
+    private boolean mLinear;
+
+    public void setThreshold(float deltaE) {
+        mThreshold = deltaE;
+    }
+
+    public float getThreshold() {
+        return mThreshold;
+    }
+
+    //****************************************************************************************
+    //setLinear() says whether subsets are blended in linear light, as with
+    //BlendUniquenessChecker.setLinear(). It takes effect at the next reset().
+    //****************************************************************************************
+    public void setLinear(boolean linear) {
+        mLinear = linear;
+    }
+
+    public boolean isLinear() {
+        return mLinear;
+    }
+
+    //****************************************************************************************
+    //canCheck() says whether rival subsets of the given size can be looked for on a board of
+    //count cells.
+    //****************************************************************************************
+    public static boolean canCheck(int count, int size) {
+        return size >= 2 && size <= MAX_SUBSET_SIZE && size <= count && count <= MAX_CELLS
+                && combinations(count, size - size / 2) <= MAX_HALF_SUBSETS;
+    }
+
+    //****************************************************************************************
+    //reset() sets up the first count colors, the size winning cells in winCells[offset]
+    //onwards and their target color. The colors array is referenced, not copied, and can
+    //change between calls to findRivals().
+    //****************************************************************************************
+    public void reset(int[] colors, int count, int[] winCells, int offset, int size, int targetColor) {
+        if (!canCheck(count, size)) {
+            throw new IllegalArgumentException("Can't check subsets of " + size + " of " + count + " cells");
+        }
+        mColors = colors;
+        mCount = count;
+        mSize = size;
+        mFirstSize = size / 2;
+        mSecondSize = size - mFirstSize;
+        mTargetColor = targetColor;
+        System.arraycopy(winCells, offset, mWinCells, 0, size);
+        CieLab.toLab(targetColor, mLab, 0);
+
+        //A blend within the threshold is within half the pair reach of the target in each
+        //channel (see BlendUniquenessChecker.computeReach()), so a sum of size channels is
+        //within size times that, plus the rounding of the blend. In linear light that range
+        //of the blend is decoded first, with a step more for the rounding of the encoding,
+        //and widened by the rounding of the average and the bits cut off each value.
+        BlendUniquenessChecker.computeReach(targetColor, mThreshold, mScratch, mReach);
+        int span = mFirstSize * valueOf(255) + 1;
+        int buckets = 1;
+        for (int channel = 0; channel < 3; channel++) {
+            int target = (targetColor >> (16 - 8 * channel)) & 0xFF;
+            int half = (mReach[channel] + 1) / 2;
+            if (!mLinear) {
+                mSumLow[channel] = size * (target - half) - size;
+                mSumHigh[channel] = size * (target + half) + size;
+            }
+            else {
+                half++;
+                mSumLow[channel] = target - half <= 0 ? -UNBOUNDED
+                        : ((size * LinearLight.toLinear(target - half) - size) >> LINEAR_SHIFT) - size;
+                mSumHigh[channel] = target + half >= 255 ? UNBOUNDED
+                        : ((size * LinearLight.toLinear(target + half) + size) >> LINEAR_SHIFT) + 1;
+            }
+            int width = Math.max(Math.min(mSumHigh[channel] - mSumLow[channel], span) + 1,
+                    (span + MAX_BUCKETS_PER_AXIS - 1) / MAX_BUCKETS_PER_AXIS);
+            mWidth[channel] = width;
+            mAxisBuckets[channel] = (span + width - 1) / width;
+            buckets *= mAxisBuckets[channel];
+        }
+        int halves = (int) combinations(count, mFirstSize);
+        if (mSums.length < halves) {
+            mSums = new long[halves];
+            mCells = new long[halves];
+        }
+        if (mBucketStart.length < buckets + 1) {
+            mBucketStart = new int[buckets + 1];
+        }
+    }
+
+    //****************************************************************************************
+    //findRivals() looks for rival subsets with the board's current colors, and stops after
+    //maxRivals. The cells of each one are written into rivals, subset size ints per rival in
+    //increasing order, and the number found is returned. Finding many in one pass lets a
+    //caller break them all up before looking again.
+    //****************************************************************************************
+    public int findRivals(int[] rivals, int maxRivals) {
+        indexFirstHalves();
+        int[] second = mMembers;
+        int found = 0;
+        if (!firstCombination(second, mSecondSize, mCount)) {
+            return 0;
+        }
+        do {
+            found = findPartners(second, sumOf(second, mSecondSize), rivals, found, maxRivals);
+        } while (found < maxRivals && nextCombination(second, mSecondSize, mCount));
+        return found;
+    }
+
+    public boolean isWinningCell(int cell) {
+        for (int i = 0; i < mSize; i++) {
+            if (mWinCells[i] == cell) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    //****************************************************************************************
+    //indexFirstHalves() buckets every first half by its channel sums with a counting sort:
+    //one pass counts the halves in each bucket and a second pass places them.
+    //****************************************************************************************
+    private void indexFirstHalves() {
+        int buckets = mAxisBuckets[0] * mAxisBuckets[1] * mAxisBuckets[2];
+        Arrays.fill(mBucketStart, 0, buckets + 1, 0);
+        int[] first = mCombination;
+        if (!firstCombination(first, mFirstSize, mCount)) {
+            return;
+        }
+        do {
+            mBucketStart[bucketOf(sumOf(first, mFirstSize)) + 1]++;
+        } while (nextCombination(first, mFirstSize, mCount));
+        for (int bucket = 0; bucket < buckets; bucket++) {
+            mBucketStart[bucket + 1] += mBucketStart[bucket];
+        }
+
+        firstCombination(first, mFirstSize, mCount);
+        do {
+            long sum = sumOf(first, mFirstSize);
+            int slot = mBucketStart[bucketOf(sum)]++;
+            mSums[slot] = sum;
+            long cells = 0;
+            for (int i = 0; i < mFirstSize; i++) {
+                cells |= (long) first[i] << (CELL_BITS * i);
+            }
+            mCells[slot] = cells;
+        } while (nextCombination(first, mFirstSize, mCount));
+        //Placing moved every start up by one bucket; shift them back.
+        System.arraycopy(mBucketStart, 0, mBucketStart, 1, buckets);
+        mBucketStart[0] = 0;
+    }
+
+    //****************************************************************************************
+    //findPartners() looks through the buckets around the mirror of one second half for first
+    //halves that make a rival subset with it, adds them to rivals and returns the new count.
+    //****************************************************************************************
+    private int findPartners(int[] second, long sum, int[] rivals, int found, int maxRivals) {
+        int minRed = mSumLow[0] - red(sum);
+        int minGreen = mSumLow[1] - green(sum);
+        int minBlue = mSumLow[2] - blue(sum);
+        int maxRed = mSumHigh[0] - red(sum);
+        int maxGreen = mSumHigh[1] - green(sum);
+        int maxBlue = mSumHigh[2] - blue(sum);
+        int max = mFirstSize * valueOf(255);
+        if (maxRed < 0 || maxGreen < 0 || maxBlue < 0 || minRed > max || minGreen > max || minBlue > max) {
+            return found;
+        }
+
+        float thresholdSquared = mThreshold * mThreshold;
+        int highShift = CELL_BITS * (mFirstSize - 1);
+        int lowest = second[0];
+        for (int r = Math.max(minRed, 0) / mWidth[0]; r <= Math.min(maxRed, max) / mWidth[0]; r++) {
+            for (int g = Math.max(minGreen, 0) / mWidth[1]; g <= Math.min(maxGreen, max) / mWidth[1]; g++) {
+                for (int b = Math.max(minBlue, 0) / mWidth[2]; b <= Math.min(maxBlue, max) / mWidth[2]; b++) {
+                    int bucket = (r * mAxisBuckets[1] + g) * mAxisBuckets[2] + b;
+                    for (int slot = mBucketStart[bucket]; slot < mBucketStart[bucket + 1]; slot++) {
+                        if ((int) (mCells[slot] >>> highShift) >= lowest) {
+                            break;
+                        }
+                        long candidate = mSums[slot];
+                        int red = red(candidate), green = green(candidate), blue = blue(candidate);
+                        if (red < minRed || red > maxRed || green < minGreen || green > maxGreen
+                                || blue < minBlue || blue > maxBlue || !join(mCells[slot], second, mSubset)) {
+                            continue;
+                        }
+                        CieLab.toLab(ColorUtilities.blend(mColors, mSubset, mSize, mLinear), mLab, 3);
+                        if (CieLab.deltaESquared(mLab, 0, mLab, 3) < thresholdSquared) {
+                            System.arraycopy(mSubset, 0, rivals, found * mSize, mSize);
+                            if (++found == maxRivals) {
+                                return found;
+                            }
+                        }
+                    }
+                }
+            }
+        }
+        return found;
+    }
+
+    //****************************************************************************************
+    //join() writes a first half and the second half above it into subset. It returns false
+    //if together they make up the winning cells.
+    //****************************************************************************************
+    private boolean join(long firstCells, int[] second, int[] subset) {
+        int winning = 0;
+        for (int i = 0; i < mFirstSize; i++) {
+            int cell = (int) (firstCells >>> (CELL_BITS * i)) & CELL_MASK;
+            subset[i] = cell;
+            winning += isWinningCell(cell) ? 1 : 0;
+        }
+        for (int j = 0; j < mSecondSize; j++) {
+            subset[mFirstSize + j] = second[j];
+            winning += isWinningCell(second[j]) ? 1 : 0;
+        }
+        return winning < mSize;
+    }
+
+    //****************************************************************************************
+    //sumOf() adds up the channel values of a subset's colors and packs them SUM_BITS each (a
+    //sum of three 12 bit linear values is at most 12285).
+    //****************************************************************************************
+    private long sumOf(int[] cells, int size) {
+        long red = 0, green = 0, blue = 0;
+        for (int i = 0; i < size; i++) {
+            int color = mColors[cells[i]];
+            red += valueOf(ColorUtilities.red(color));
+            green += valueOf(ColorUtilities.green(color));
+            blue += valueOf(ColorUtilities.blue(color));
+        }
+        return (red << (2 * SUM_BITS)) | (green << SUM_BITS) | blue;
+    }
+
+    //****************************************************************************************
+    //valueOf() is what is summed for an 8 bit channel: the channel itself, or its linear
+    //value cut down to 12 bits.
+    //****************************************************************************************
+    private int valueOf(int channel) {
+        return mLinear ? LinearLight.toLinear(channel) >>> LINEAR_SHIFT : channel;
+    }
+
+    private static int red(long sum) {
+        return (int) (sum >>> (2 * SUM_BITS));
+    }
+
+    private static int green(long sum) {
+        return (int) (sum >>> SUM_BITS) & SUM_MASK;
+    }
+
+    private static int blue(long sum) {
+        return (int) sum & SUM_MASK;
+    }
+
+    private int bucketOf(long sum) {
+        return (red(sum) / mWidth[0] * mAxisBuckets[1] + green(sum) / mWidth[1]) * mAxisBuckets[2]
+                + blue(sum) / mWidth[2];
+    }
+
+    //****************************************************************************************
+    //firstCombination() and nextCombination() step through every subset of size cells out
+    //of count in colex order (ordered by the highest cell, then the next highest and so on),
+    //as increasing cell numbers in combination.
+    //****************************************************************************************
+    private static boolean firstCombination(int[] combination, int size, int count) {
+        if (size > count) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            combination[i] = i;
+        }
+        return true;
+    }
+
+    private static boolean nextCombination(int[] combination, int size, int count) {
+        int i = 0;
+        while (i < size - 1 && combination[i] + 1 == combination[i + 1]) {
+            i++;
+        }
+        if (combination[i] + 1 >= (i == size - 1 ? count : combination[i + 1])) {
+            return false;
+        }
+        combination[i]++;
+        for (int j = 0; j < i; j++) {
+            combination[j] = j;
+        }
+        return true;
+    }
+
+    //****************************************************************************************
+    //combinations() is C(n, k), capped at Long.MAX_VALUE / n so it can't overflow.
+    //****************************************************************************************
+    static long combinations(int n, int k) {
+        long result = 1;
+        for (int i = 0; i < k; i++) {
+            result = result * (n - i) / (i + 1);
+            if (result > Long.MAX_VALUE / Math.max(n, 1)) {
+                return Long.MAX_VALUE / Math.max(n, 1);
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,166 @@
+package com.dgl114.colormatch;
+
+//****************************************************************************************
+//TimeAttack.java          Author: zakacat
+//
+//This class keeps the clock and the score of a time attack: the player solves as many
+//rounds as they can before the countdown runs out. It is driven by frame times (the
+//display's frame callback in the app), so the countdown moves in step with what is drawn.
+//onFrame() is called once per frame. It writes the timer and score into a char array that
+//is allocated once ("0:42.7  Solved: 12"), and only when what it shows has changed, which
+//is at most ten times a second plus once per solved round. The app hands that array
+//straight to a TextView, so a frame costs no String, no formatter and no garbage.
+//Times are in nanoseconds on the frame clock (System.nanoTime()).
+//This class includes:
+// - start(), resume(), stop()  Start a countdown, carry one on, or end it early
+// - onFrame()  Advance to a frame's time, ending the countdown when it reaches zero
+// - recordSolved()  Count a solved round
+// - getText(), getTextLength()  The timer and score, ready to show
+//****************************************************************************************
+
+public class TimeAttack {
+
+    public static final long DEFAULT_DURATION_NANOS = 60_000_000_000L;
+    public static final long MAX_DURATION_NANOS = 10 * 60_000_000_000L;
+    private static final long NANOS_PER_TENTH = 100_000_000L;
+    //"99:59.9" at most, two spaces, the label and up to ten digits of score.
+    private static final int TIME_CHARS = 7;
+    private static final int SCORE_DIGITS = 10;
+
+    private final char[] mLabel;
+    private final char[] mText;
+    private int mTextLength;
+    private long mDeadlineNanos;
+    private long mRemainingNanos;
+    private int mSolved;
+    private boolean mRunning;
+    //What the text shows, or -1 when it has to be written again.
+    private long mShownTenths = -1;
+    private int mShownSolved = -1;
+
+    //****************************************************************************************
+    //TimeAttack() takes the label shown before the score, e.g. "Solved: ".
+    //****************************************************************************************
+    public TimeAttack(String label) {
+        mLabel = label.toCharArray();
+        mText = new char[TIME_CHARS + 2 + mLabel.length + SCORE_DIGITS];
+    }
+
+    //****************************************************************************************
+    //start() starts a countdown of durationNanos from nowNanos with no rounds solved.
+    //****************************************************************************************
+    public void start(long nowNanos, long durationNanos) {
+        resume(nowNanos, durationNanos, 0);
+    }
+
+    //****************************************************************************************
+    //resume() carries on a countdown that had remainingNanos left and solved rounds, e.g.
+    //after the screen was rotated.
+    //****************************************************************************************
+    public void resume(long nowNanos, long remainingNanos, int solved) {
+        if (remainingNanos <= 0 || remainingNanos > MAX_DURATION_NANOS || solved < 0) {
+            throw new IllegalArgumentException("Time attack must have between 0 and " + MAX_DURATION_NANOS
+                    + " ns left and a score of at least 0: " + remainingNanos + ", " + solved);
+        }
+        mDeadlineNanos = nowNanos + remainingNanos;
+        mRemainingNanos = remainingNanos;
+        mSolved = solved;
+        mRunning = true;
+        mShownTenths = -1;
+        mShownSolved = -1;
+    }
+
+    public void stop() {
+        mRunning = false;
+    }
+
+    //****************************************************************************************
+    //onFrame() moves the clock to frameTimeNanos and ends the countdown once it reaches zero.
+    //It returns true if the text changed and needs to be shown again.
+    //****************************************************************************************
+    public boolean onFrame(long frameTimeNanos) {
+        if (mRunning) {
+            mRemainingNanos = Math.max(0, mDeadlineNanos - frameTimeNanos);
+            mRunning = mRemainingNanos > 0;
+        }
+        //Rounded up, so the clock shows 0:00.0 only once the time is up.
+        long tenths = (mRemainingNanos + NANOS_PER_TENTH - 1) / NANOS_PER_TENTH;
+        if (tenths == mShownTenths && mSolved == mShownSolved) {
+            return false;
+        }
+        mShownTenths = tenths;
+        mShownSolved = mSolved;
+        writeText(tenths, mSolved);
+        return true;
+    }
+
+    public void recordSolved() {
+        if (mRunning) {
+            mSolved++;
+        }
+    }
+
+    //****************************************************************************************
+    //Getters
+    //****************************************************************************************
+    public boolean isRunning() {
+        return mRunning;
+    }
+
+    //****************************************************************************************
+    //getRemainingNanos() is the time left as of the last frame (or start()).
+    //****************************************************************************************
+    public long getRemainingNanos() {
+        return mRemainingNanos;
+    }
+
+    public int getSolved() {
+        return mSolved;
+    }
+
+    //****************************************************************************************
+    //getText() is the array onFrame() writes the timer and score into; the first
+    //getTextLength() chars are the text. The array is the same one for the life of the
+    //object.
+    //****************************************************************************************
+    public char[] getText() {
+        return mText;
+    }
+
+    public int getTextLength() {
+        return mTextLength;
+    }
+
+    //****************************************************************************************
+    //writeText() writes "m:ss.t", two spaces, the label and the score into mText.
+    //****************************************************************************************
+    private void writeText(long tenths, int solved) {
+        long seconds = tenths / 10;
+        int length = writeNumber((int) (seconds / 60), 0);
+        mText[length++] = ':';
+        mText[length++] = (char) ('0' + seconds % 60 / 10);
+        mText[length++] = (char) ('0' + seconds % 10);
+        mText[length++] = '.';
+        mText[length++] = (char) ('0' + tenths % 10);
+        mText[length++] = ' ';
+        mText[length++] = ' ';
+        System.arraycopy(mLabel, 0, mText, length, mLabel.length);
+        mTextLength = writeNumber(solved, length + mLabel.length);
+    }
+
+    //****************************************************************************************
+    //writeNumber() writes a number of zero or more in decimal at mText[offset] and returns
+    //the offset just past it.
+    //****************************************************************************************
+    private int writeNumber(int value, int offset) {
+        int end = offset + 1;
+        for (int rest = value / 10; rest > 0; rest /= 10) {
+            end++;
+        }
+        for (int i = end - 1; i >= offset; i--) {
+            mText[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+        return end;
+    }
+}
@@ -0,0 +1,216 @@
+package com.dgl114.colormatch;
+
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link BlendUniquenessChecker}, {@link ColorGridIndex} and
+ * {@link CieLab}. The indexed search is checked against a plain all-pairs scan.
+ */
+public class BlendUniquenessCheckerTest {
+
+    @Test
+    public void cieLab_matchesKnownValues() {
+        float[] lab = new float[3];
+        CieLab.toLab(0xFFFFFFFF, lab, 0);
+        assertEquals(100.0, lab[0], 0.01);
+        assertEquals(0.0, lab[1], 0.01);
+        assertEquals(0.0, lab[2], 0.01);
+
+        CieLab.toLab(0xFF000000, lab, 0);
+        assertEquals(0.0, lab[0], 0.01);
+
+        CieLab.toLab(0xFFFF0000, lab, 0);
+        assertEquals(53.24, lab[0], 0.01);
+        assertEquals(80.09, lab[1], 0.01);
+        assertEquals(67.20, lab[2], 0.01);
+    }
+
+    @Test
+    public void cieLab_toColorInvertsToLab() {
+        float[] lab = new float[3];
+        for (int red = 0; red < 256; red += 5) {
+            for (int green = 0; green < 256; green += 5) {
+                for (int blue = 0; blue < 256; blue += 5) {
+                    int color = 0xFF000000 | (red << 16) | (green << 8) | blue;
+                    CieLab.toLab(color, lab, 0);
+                    int back = CieLab.toColor(lab, 0);
+                    assertEquals(0xFF, back >>> 24);
+                    assertTrue(Math.abs(((back >> 16) & 0xFF) - red) <= 1);
+                    assertTrue(Math.abs(((back >> 8) & 0xFF) - green) <= 1);
+                    assertTrue(Math.abs((back & 0xFF) - blue) <= 1);
+                }
+            }
+        }
+
+        //Far outside the gamut, every channel is clipped rather than wrapped.
+        lab[0] = 150.0f;
+        lab[1] = 0.0f;
+        lab[2] = 0.0f;
+        assertEquals(0xFFFFFFFF, CieLab.toColor(lab, 0));
+        lab[0] = -20.0f;
+        assertEquals(0xFF000000, CieLab.toColor(lab, 0));
+    }
+
+    @Test
+    public void gridIndex_queryMatchesLinearScan() {
+        SplittableRandom random = new SplittableRandom(3);
+        int[] colors = new int[500];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = 0xFF000000 | random.nextInt(0x1000000);
+        }
+        ColorGridIndex index = new ColorGridIndex(colors.length);
+        index.build(colors, colors.length);
+        int[] out = new int[colors.length];
+
+        for (int query = 0; query < 200; query++) {
+            if (query % 2 == 0) {
+                int cell = random.nextInt(colors.length);
+                int oldColor = colors[cell];
+                colors[cell] = 0xFF000000 | random.nextInt(0x1000000);
+                index.update(cell, oldColor);
+            }
+            int red = random.nextInt(-40, 296), green = random.nextInt(-40, 296), blue = random.nextInt(-40, 296);
+            int reach = random.nextInt(1, 80);
+            int found = index.query(red - reach, red + reach, green - reach, green + reach,
+                    blue - reach, blue + reach, out);
+
+            int expected = 0;
+            for (int color : colors) {
+                if (Math.abs(((color >> 16) & 0xFF) - red) <= reach
+                        && Math.abs(((color >> 8) & 0xFF) - green) <= reach
+                        && Math.abs((color & 0xFF) - blue) <= reach) {
+                    expected++;
+                }
+            }
+            assertEquals(expected, found);
+        }
+    }
+
+    @Test
+    public void findRival_findsRivalWhereDarkChannelFlattensLab() {
+        //The rival's blend has red 11 where the target has 61. Red moves Lab so much less down
+        //there that a reach taken from the Jacobian at the target alone misses it.
+        int target = 0xFF3D27D1;
+        int[] colors = {0xFF0102AF, 0xFF794CF3, 0xFF154FF0};
+        assertEquals(target, ColorUtilities.blend(colors[0], colors[1]));
+        BlendUniquenessChecker checker = new BlendUniquenessChecker(colors.length);
+        checker.reset(colors, colors.length, 0, 1, target);
+        assertEquals(2, checker.findRival(0));
+        assertEquals(0, checker.findRival(2));
+    }
+
+    @Test
+    public void findRival_matchesAllPairsScan() {
+        SplittableRandom random = new SplittableRandom(114);
+        int numCells = 64;
+        int[] colors = new int[numCells];
+        BlendUniquenessChecker checker = new BlendUniquenessChecker(numCells);
+        checker.setThreshold(8.0f);
+        int boardsWithRivals = 0;
+
+        for (int board = 0; board < 2000; board++) {
+            //Colors are drawn from a narrow range so that rival pairs are common.
+            int base = random.nextInt(0x1000000);
+            for (int i = 0; i < numCells; i++) {
+                colors[i] = 0xFF000000 | jitter(base, random);
+            }
+            int win1 = random.nextInt(numCells);
+            int win2 = (win1 + 1 + random.nextInt(numCells - 1)) % numCells;
+            int target = ColorUtilities.blend(colors[win1], colors[win2]);
+            checker.reset(colors, numCells, win1, win2, target);
+
+            for (int cell = 0; cell < numCells; cell++) {
+                boolean expected = hasRivalByScan(colors, cell, win1, win2, target, checker.getThreshold());
+                assertEquals("board " + board + " cell " + cell, expected, checker.findRival(cell) >= 0);
+                if (expected) {
+                    boardsWithRivals++;
+                }
+            }
+        }
+        assertTrue(boardsWithRivals > 0);
+    }
+
+    @Test
+    public void findRival_matchesAllPairsScanInLinearLight() {
+        SplittableRandom random = new SplittableRandom(19);
+        int numCells = 64;
+        int[] colors = new int[numCells];
+        BlendUniquenessChecker checker = new BlendUniquenessChecker(numCells);
+        checker.setThreshold(8.0f);
+        checker.setLinear(true);
+        int boardsWithRivals = 0;
+
+        for (int board = 0; board < 2000; board++) {
+            //Every other board is near black, where linear light and sRGB differ the most.
+            int base = board % 2 == 0 ? random.nextInt(0x1000000) : random.nextInt(0x40) * 0x10101;
+            for (int i = 0; i < numCells; i++) {
+                colors[i] = 0xFF000000 | jitter(base, random);
+            }
+            int win1 = random.nextInt(numCells);
+            int win2 = (win1 + 1 + random.nextInt(numCells - 1)) % numCells;
+            int target = ColorUtilities.blendLinear(colors[win1], colors[win2]);
+            checker.reset(colors, numCells, win1, win2, target);
+
+            for (int cell = 0; cell < numCells; cell++) {
+                boolean expected = hasRivalByScan(colors, cell, win1, win2, target, checker.getThreshold(), true);
+                assertEquals("board " + board + " cell " + cell, expected, checker.findRival(cell) >= 0);
+                if (expected) {
+                    boardsWithRivals++;
+                }
+            }
+        }
+        assertTrue(boardsWithRivals > 0);
+    }
+
+    @Test
+    public void newGame_leavesNoRivalPairs() {
+        ColorMatchGame game = new ColorMatchGame(12, 12, new SplittableRandom(26));
+        game.setUniquenessThreshold(10.0f);
+        int[] colors = new int[game.getNumCells()];
+
+        for (int round = 0; round < 300; round++) {
+            game.newGame();
+            game.getState(colors, 0);
+            int win1 = game.getWinRow1() * 12 + game.getWinCol1();
+            int win2 = game.getWinRow2() * 12 + game.getWinCol2();
+            for (int cell = 0; cell < colors.length; cell++) {
+                assertFalse(hasRivalByScan(colors, cell, win1, win2, game.getBlendedColor(), 10.0f));
+            }
+        }
+    }
+
+    private static int jitter(int base, SplittableRandom random) {
+        int color = 0;
+        for (int shift = 0; shift < 24; shift += 8) {
+            int channel = ((base >> shift) & 0xFF) + random.nextInt(-24, 25);
+            color |= Math.max(0, Math.min(255, channel)) << shift;
+        }
+        return color;
+    }
+
+    private static boolean hasRivalByScan(int[] colors, int cell, int win1, int win2, int target,
+                                          float threshold) {
+        return hasRivalByScan(colors, cell, win1, win2, target, threshold, false);
+    }
+
+    private static boolean hasRivalByScan(int[] colors, int cell, int win1, int win2, int target,
+                                          float threshold, boolean linear) {
+        float[] lab = new float[6];
+        CieLab.toLab(target, lab, 0);
+        for (int partner = 0; partner < colors.length; partner++) {
+            boolean winningPair = (cell == win1 && partner == win2) || (cell == win2 && partner == win1);
+            if (partner == cell || winningPair) {
+                continue;
+            }
+            CieLab.toLab(ColorUtilities.blend(colors[cell], colors[partner], linear), lab, 3);
+            if (CieLab.deltaE(lab, 0, lab, 3) < threshold) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,91 @@
+package com.dgl114.colormatch;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link BoardViewport}.
+ */
+public class BoardViewportTest {
+
+    private static final float CELL = 90.0f;
+    private static final float GAP = 8.0f;
+
+    @Test
+    public void hitTest_findsCellsAndMissesGaps() {
+        BoardViewport viewport = new BoardViewport(3, 3, CELL, GAP);
+        viewport.setViewSize(302, 302);
+        assertEquals(1.0f, viewport.getScale(), 1e-6f);
+
+        assertEquals(0, viewport.hitTest(GAP + 1, GAP + 1));
+        assertEquals(5, viewport.hitTest(viewport.getCellLeft(2) + 45, viewport.getCellTop(1) + 45));
+        assertEquals(8, viewport.hitTest(viewport.getCellLeft(2) + CELL - 0.5f, viewport.getCellTop(2)));
+        assertEquals(-1, viewport.hitTest(viewport.getCellLeft(1) - 1, viewport.getCellTop(1) + 45));
+        assertEquals(-1, viewport.hitTest(viewport.getCellLeft(2) + CELL + 1, viewport.getCellTop(1) + 45));
+        assertEquals(-1, viewport.hitTest(-5, 50));
+    }
+
+    @Test
+    public void smallBoard_isCenteredAndFullyVisible() {
+        BoardViewport viewport = new BoardViewport(3, 4, CELL, GAP);
+        viewport.setViewSize(1000, 800);
+        assertEquals((1000 - viewport.getContentWidth()) / 2, viewport.getLeft(), 1e-3f);
+        assertEquals(0, viewport.getFirstVisibleRow());
+        assertEquals(2, viewport.getLastVisibleRow());
+        assertEquals(0, viewport.getFirstVisibleCol());
+        assertEquals(3, viewport.getLastVisibleCol());
+        assertEquals(2 * 4 + 3, viewport.hitTest(viewport.getCellLeft(3) + 1, viewport.getCellTop(2) + 1));
+    }
+
+    @Test
+    public void largeBoard_onlyCellsOnScreenAreVisible() {
+        BoardViewport viewport = new BoardViewport(200, 150, CELL, GAP);
+        viewport.setViewSize(1080, 1920);
+        assertEquals(1.0f, viewport.getScale(), 1e-6f);
+        assertEquals(0, viewport.getFirstVisibleCol());
+        assertEquals((int) ((1080 - GAP) / (CELL + GAP)), viewport.getLastVisibleCol());
+        assertEquals((int) ((1920 - GAP) / (CELL + GAP)), viewport.getLastVisibleRow());
+
+        viewport.panBy(1000 * (CELL + GAP), 50 * (CELL + GAP) + 10);
+        assertEquals(viewport.getContentWidth() - 1080, -viewport.getLeft(), 1e-2f);
+        assertEquals(50, viewport.getFirstVisibleRow());
+        assertEquals(149, viewport.getLastVisibleCol());
+        assertFalse(viewport.isCellVisible(0));
+        assertTrue(viewport.isCellVisible(50 * 150 + 149));
+
+        int visible = (viewport.getLastVisibleRow() - viewport.getFirstVisibleRow() + 1)
+                * (viewport.getLastVisibleCol() - viewport.getFirstVisibleCol() + 1);
+        assertTrue("visible " + visible, visible <= 13 * 21);
+        for (int row = viewport.getFirstVisibleRow(); row <= viewport.getLastVisibleRow(); row++) {
+            float top = viewport.getCellTop(row);
+            assertTrue(top < 1920 && top + CELL > 0);
+        }
+
+        viewport.panBy(-1e9f, -1e9f);
+        assertEquals(0, viewport.getLeft(), 1e-6f);
+        assertEquals(0, viewport.getTop(), 1e-6f);
+    }
+
+    @Test
+    public void zoom_keepsFocusStillAndStaysInRange() {
+        BoardViewport viewport = new BoardViewport(100, 100, CELL, GAP);
+        viewport.setViewSize(1000, 1000);
+        viewport.panBy(3000, 4000);
+        int before = viewport.hitTest(503, 507);
+        viewport.zoomBy(2.0f, 503, 507);
+        assertEquals(2.0f, viewport.getScale(), 1e-6f);
+        assertEquals(before, viewport.hitTest(503, 507));
+        assertEquals(2 * CELL, viewport.getScaledCellSize(), 1e-3f);
+        assertEquals(before, viewport.hitTest(viewport.getCellLeft(before % 100) + 1,
+                viewport.getCellTop(before / 100) + 1));
+
+        viewport.zoomBy(100.0f, 0, 0);
+        assertEquals(BoardViewport.MAX_SCALE, viewport.getScale(), 1e-6f);
+        viewport.zoomBy(1e-6f, 0, 0);
+        assertEquals(viewport.getMinScale(), viewport.getScale(), 1e-6f);
+        assertEquals(0, viewport.getFirstVisibleRow());
+        assertEquals(99, viewport.getLastVisibleRow());
+        assertEquals(99, viewport.getLastVisibleCol());
+    }
+}
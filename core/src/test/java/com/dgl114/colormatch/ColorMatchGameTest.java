@@ -0,0 +1,434 @@
+package com.dgl114.colormatch;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for the {@link ColorMatchGame} model.
+ */
+public class ColorMatchGameTest {
+
+    private static final int ROUNDS = 10_000;
+
+    @Test
+    public void toggle_capsSelectionAtTwo() {
+        ColorMatchGame game = new ColorMatchGame();
+        game.newGame();
+        game.toggleButtonSelection(0, 0);
+        game.toggleButtonSelection(1, 1);
+        game.toggleButtonSelection(2, 2);
+        assertTrue(game.isButtonSelected(0, 0));
+        assertTrue(game.isButtonSelected(1, 1));
+        assertFalse(game.isButtonSelected(2, 2));
+
+        game.toggleButtonSelection(0, 0);
+        game.toggleButtonSelection(2, 2);
+        assertFalse(game.isButtonSelected(0, 0));
+        assertTrue(game.isButtonSelected(2, 2));
+    }
+
+    @Test
+    public void isGameOver_onlyForWinningPair() {
+        ColorMatchGame game = new ColorMatchGame();
+        game.newGame();
+        assertFalse(game.isGameOver());
+
+        game.toggleButtonSelection(game.getWinRow1(), game.getWinCol1());
+        assertFalse(game.isGameOver());
+        game.toggleButtonSelection(game.getWinRow2(), game.getWinCol2());
+        assertTrue(game.isGameOver());
+
+        game.resetSelection();
+        assertFalse(game.isGameOver());
+    }
+
+    @Test
+    public void state_roundTrips() {
+        ColorMatchGame game = new ColorMatchGame();
+        game.newGame();
+        game.toggleButtonSelection(1, 2);
+        int[] colors = game.getState();
+        boolean[] selected = game.getStateSelected();
+
+        ColorMatchGame restored = new ColorMatchGame();
+        restored.setState(colors);
+        restored.setStateSelected(selected);
+        assertArrayEquals(colors, restored.getState());
+        assertArrayEquals(selected, restored.getStateSelected());
+        assertTrue(restored.isButtonSelected(1, 2));
+    }
+
+    @Test
+    public void largeBoard_tracksSelectionAcrossWords() {
+        ColorMatchGame game = new ColorMatchGame(ColorMatchGame.MAX_SIZE, ColorMatchGame.MAX_SIZE);
+        game.newGame();
+        assertEquals(256 * 256, game.getState().length);
+        assertEquals(256 * 256, game.getStateSelected().length);
+
+        game.toggleButtonSelection(0, 63);
+        game.toggleButtonSelection(255, 255);
+        game.toggleButtonSelection(128, 0);
+        assertEquals(2, game.getSelectedCount());
+        assertTrue(game.isButtonSelected(0, 63));
+        assertTrue(game.isButtonSelected(255, 255));
+        assertFalse(game.isButtonSelected(0, 64));
+        assertFalse(game.isButtonSelected(128, 0));
+
+        game.toggleButtonSelection(0, 63);
+        assertEquals(1, game.getSelectedCount());
+        game.setStateSelected(game.getStateSelected());
+        assertEquals(1, game.getSelectedCount());
+        assertTrue(game.isButtonSelected(255, 255));
+    }
+
+    @Test
+    public void isGameOver_onNonSquareBoard() {
+        ColorMatchGame game = new ColorMatchGame(4, 7);
+        game.newGame();
+        game.toggleButtonSelection(game.getWinRow1(), game.getWinCol1());
+        game.toggleButtonSelection(game.getWinRow2(), game.getWinCol2());
+        assertTrue(game.isGameOver());
+    }
+
+    @Test
+    public void newGame_isReproducibleFromSeedAndRoundKey() {
+        ColorMatchGame first = new ColorMatchGame(5, 6, 114L);
+        ColorMatchGame second = new ColorMatchGame(5, 6, 114L);
+        ColorMatchGame random = new ColorMatchGame(5, 6, 114L);
+        for (int round = 0; round < 100; round++) {
+            first.newGame();
+            second.newGame();
+            assertEquals(first.getRoundKey(round), first.getRoundKey());
+            assertRoundEquals(first, second);
+        }
+
+        //Any round can be regenerated from its key alone, in any order.
+        for (int round = 99; round >= 0; round -= 7) {
+            random.newGame(first.getRoundKey(round));
+            second.newGame(first.getRoundKey(round));
+            assertRoundEquals(random, second);
+        }
+        first.newGame(random.getRoundKey());
+        random.newGame(random.getRoundKey());
+        assertRoundEquals(first, random);
+        assertFalse(first.getRoundKey(0) == first.getRoundKey(1));
+    }
+
+    @Test
+    public void newGame_picksEveryWinningPairEvenly() {
+        MonteCarloSimulator.Result result = new MonteCarloSimulator(3, 3).run(360_000, 5L);
+        for (int cell1 = 0; cell1 < 9; cell1++) {
+            for (int cell2 = cell1 + 1; cell2 < 9; cell2++) {
+                assertTrue(result.getPairCount(cell1, cell2) > 0);
+            }
+        }
+        //35 degrees of freedom; 80 is far in the tail for a uniform generator.
+        assertTrue("chi-square " + result.getPairChiSquare(), result.getPairChiSquare() < 80);
+    }
+
+    @Test
+    public void newGame_hasOneAnswerAtEveryDifficulty() {
+        float[] lab = new float[6];
+        for (float difficulty : new float[] {0.0f, 0.5f, 1.0f}) {
+            ColorMatchGame game = new ColorMatchGame(8, 8, 26L);
+            game.setDifficulty(difficulty);
+            for (int round = 0; round < 200; round++) {
+                game.newGame();
+                int[] colors = game.getState();
+                CieLab.toLab(game.getBlendedColor(), lab, 0);
+                for (int cell1 = 0; cell1 < colors.length; cell1++) {
+                    for (int cell2 = cell1 + 1; cell2 < colors.length; cell2++) {
+                        if (cell1 == Math.min(game.getWinIndex1(), game.getWinIndex2())
+                                && cell2 == Math.max(game.getWinIndex1(), game.getWinIndex2())) {
+                            continue;
+                        }
+                        CieLab.toLab(ColorUtilities.blend(colors[cell1], colors[cell2]), lab, 3);
+                        assertTrue(CieLab.deltaE(lab, 0, lab, 3) >= game.getUniquenessThreshold());
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    public void blendSize_capsSelectionAndNeedsEveryWinningCell() {
+        ColorMatchGame game = new ColorMatchGame(5, 5, 4L);
+        game.setBlendSize(4);
+        game.newGame();
+        assertEquals(4, game.getWinCount());
+        int[] cells = new int[4];
+        for (int i = 0; i < 4; i++) {
+            cells[i] = game.getWinIndex(i);
+        }
+        for (int i = 0; i < 3; i++) {
+            game.toggleButtonSelection(cells[i] / 5, cells[i] % 5);
+            assertFalse(game.isGameOver());
+        }
+        game.toggleButtonSelection(cells[3] / 5, cells[3] % 5);
+        assertTrue(game.isGameOver());
+        int other = 0;
+        while (game.isButtonSelected(other / 5, other % 5)) {
+            other++;
+        }
+        game.toggleButtonSelection(other / 5, other % 5);
+        assertEquals(4, game.getSelectedCount());
+        assertFalse(game.isButtonSelected(other / 5, other % 5));
+
+        int[] sorted = cells.clone();
+        Arrays.sort(sorted);
+        assertEquals(ColorUtilities.blend(game.getState(), sorted, 4), game.getBlendedColor());
+    }
+
+    @Test
+    public void newGame_hasOneBlendAnswerForEveryBlendSize() {
+        float[] lab = new float[6];
+        int[] cells = new int[ColorMatchGame.MAX_BLEND_SIZE];
+        int[] winCells = new int[ColorMatchGame.MAX_BLEND_SIZE];
+        for (int size = 3; size <= ColorMatchGame.MAX_BLEND_SIZE; size++) {
+            for (float difficulty : new float[] {0.0f, 1.0f}) {
+                ColorMatchGame game = new ColorMatchGame(5, 5, 18L);
+                game.setBlendSize(size);
+                game.setDifficulty(difficulty);
+                for (int round = 0; round < 20; round++) {
+                    game.newGame();
+                    int[] colors = game.getState();
+                    for (int i = 0; i < size; i++) {
+                        winCells[i] = game.getWinIndex(i);
+                    }
+                    Arrays.sort(winCells, 0, size);
+                    CieLab.toLab(game.getBlendedColor(), lab, 0);
+                    for (int i = 0; i < size; i++) {
+                        cells[i] = i;
+                    }
+                    do {
+                        if (isWinning(cells, winCells, size)) {
+                            continue;
+                        }
+                        CieLab.toLab(ColorUtilities.blend(colors, cells, size), lab, 3);
+                        assertTrue(CieLab.deltaE(lab, 0, lab, 3) >= game.getUniquenessThreshold());
+                    } while (nextCombination(cells, size, colors.length));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void newGame_hasOneAnswerInLinearLight() {
+        float[] lab = new float[6];
+        int[] cells = new int[4];
+        int[] winCells = new int[4];
+        for (int size = 2; size <= 4; size += 2) {
+            ColorMatchGame game = new ColorMatchGame(6, 6, 19L);
+            game.setBlendSize(size);
+            game.setLinearBlend(true);
+            game.setDifficulty(0.5f);
+            for (int round = 0; round < 30; round++) {
+                game.newGame();
+                int[] colors = game.getState();
+                for (int i = 0; i < size; i++) {
+                    winCells[i] = game.getWinIndex(i);
+                    cells[i] = i;
+                }
+                Arrays.sort(winCells, 0, size);
+                assertEquals(ColorUtilities.blendLinear(colors, winCells, size), game.getBlendedColor());
+                CieLab.toLab(game.getBlendedColor(), lab, 0);
+                do {
+                    if (isWinning(cells, winCells, size)) {
+                        continue;
+                    }
+                    CieLab.toLab(ColorUtilities.blendLinear(colors, cells, size), lab, 3);
+                    assertTrue(CieLab.deltaE(lab, 0, lab, 3) >= game.getUniquenessThreshold());
+                } while (nextCombination(cells, size, colors.length));
+            }
+        }
+    }
+
+    @Test
+    public void newGame_blendRoundsAreReproducible() {
+        ColorMatchGame first = new ColorMatchGame(6, 6, 5L);
+        ColorMatchGame second = new ColorMatchGame(6, 6, 5L);
+        first.setBlendSize(5);
+        second.setBlendSize(5);
+        first.setDifficulty(0.5f);
+        second.setDifficulty(0.5f);
+        for (int round = 0; round < 20; round++) {
+            first.newGame();
+            second.newGame();
+            assertRoundEquals(first, second);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setBlendSize_rejectsOutOfRange() {
+        new ColorMatchGame().setBlendSize(ColorMatchGame.MAX_BLEND_SIZE + 1);
+    }
+
+    @Test
+    public void setBlendSize_onlyAllowsBoardsTheCheckerCanCheck() {
+        assertEquals(ColorMatchGame.MAX_BLEND_SIZE, ColorMatchGame.getMaxBlendSize(37));
+        assertEquals(4, ColorMatchGame.getMaxBlendSize(38));
+        assertEquals(4, ColorMatchGame.getMaxBlendSize(128));
+        assertEquals(ColorMatchGame.MIN_BLEND_SIZE, ColorMatchGame.getMaxBlendSize(129));
+        for (int size = ColorMatchGame.MIN_SIZE; size <= 16; size++) {
+            int maxBlendSize = ColorMatchGame.getMaxBlendSize(size * size);
+            for (int blend = 3; blend <= maxBlendSize; blend++) {
+                assertTrue(size + "x" + size + " blend " + blend, SubsetUniquenessChecker.canCheck(size * size, blend));
+            }
+        }
+
+        ColorMatchGame game = new ColorMatchGame(8, 8);
+        game.setBlendSize(4);
+        try {
+            game.setBlendSize(5);
+            fail("an 8x8 board took a blend of 5");
+        }
+        catch (IllegalArgumentException e) {
+            assertEquals(4, game.getBlendSize());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setDifficulty_rejectsOutOfRange() {
+        new ColorMatchGame().setDifficulty(1.5f);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsTooSmallBoard() {
+        new ColorMatchGame(2, 3);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsTooLargeBoard() {
+        new ColorMatchGame(3, ColorMatchGame.MAX_SIZE + 1);
+    }
+
+    @Test
+    public void checkBoardSize_acceptsTheSizesAGameAccepts() {
+        ColorMatchGame.checkBoardSize(ColorMatchGame.MIN_SIZE, ColorMatchGame.MAX_SIZE);
+        try {
+            ColorMatchGame.checkBoardSize(ColorMatchGame.MAX_SIZE + 1, 3);
+            fail("a board too large was accepted");
+        }
+        catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void changes_listOnlyWhatATapChanged() {
+        ColorMatchGame game = new ColorMatchGame(ColorMatchGame.MAX_SIZE, ColorMatchGame.MAX_SIZE);
+        game.newGame();
+        assertEquals(game.getNumCells(), game.getChangedCellCount());
+        assertTrue(game.isBlendedColorChanged());
+        game.clearChanges();
+        assertEquals(0, game.getChangedCellCount());
+        assertFalse(game.isBlendedColorChanged());
+
+        game.toggleButtonSelection(200, 3);
+        game.toggleButtonSelection(7, 255);
+        game.toggleButtonSelection(9, 9); //over the cap, so nothing changes
+        assertEquals(2, game.getChangedCellCount());
+        assertEquals(200 * 256 + 3, game.getChangedCell(0));
+        assertEquals(7 * 256 + 255, game.getChangedCell(1));
+        assertEquals(ColorMatchGame.CHANGED_SELECTION, game.getChangeFlags(game.getChangedCell(0)));
+        game.toggleButtonSelection(200, 3);
+        assertEquals(2, game.getChangedCellCount());
+        game.clearChanges();
+
+        game.resetSelection();
+        assertEquals(1, game.getChangedCellCount());
+        assertEquals(7 * 256 + 255, game.getChangedCell(0));
+        assertFalse(game.isBlendedColorChanged());
+        game.clearChanges();
+        game.resetSelection();
+        assertEquals(0, game.getChangedCellCount());
+    }
+
+    @Test
+    public void changes_coverRestoredColorsAndSelection() {
+        ColorMatchGame game = new ColorMatchGame();
+        game.newGame();
+        game.clearChanges();
+        game.setColorAt(4, game.getColorAt(4));
+        assertEquals(0, game.getChangedCellCount());
+        game.setColorAt(4, game.getColorAt(4) ^ 1);
+        game.setSelectionWord(0, 0b100000100L);
+        assertEquals(3, game.getChangedCellCount());
+        assertEquals(ColorMatchGame.CHANGED_COLOR, game.getChangeFlags(4));
+        assertEquals(ColorMatchGame.CHANGED_SELECTION, game.getChangeFlags(8));
+        game.clearChanges();
+
+        game.setState(game.getState());
+        assertEquals(game.getNumCells(), game.getChangedCellCount());
+    }
+
+    @Test
+    public void rounds_allocateNothing() {
+        ColorMatchGame game = new ColorMatchGame();
+        int[] saved = game.getState();
+        for (int warmUp = 0; warmUp < 5; warmUp++) {
+            playRounds(game, saved, ROUNDS);
+        }
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        playRounds(game, saved, ROUNDS);
+        long after = threads.getThreadAllocatedBytes(threadId);
+
+        //Any allocation per round would cost at least an object header (16 bytes) per round.
+        //Less than a byte per round leaves room only for one-off JIT bookkeeping.
+        long allocated = after - before;
+        assertTrue("allocated " + allocated + " bytes over " + ROUNDS + " rounds", allocated < ROUNDS);
+    }
+
+    private static void assertRoundEquals(ColorMatchGame expected, ColorMatchGame actual) {
+        assertEquals(expected.getRoundKey(), actual.getRoundKey());
+        assertArrayEquals(expected.getState(), actual.getState());
+        assertEquals(expected.getWinCount(), actual.getWinCount());
+        for (int i = 0; i < expected.getWinCount(); i++) {
+            assertEquals(expected.getWinIndex(i), actual.getWinIndex(i));
+        }
+        assertEquals(expected.getBlendedColor(), actual.getBlendedColor());
+    }
+
+    private static boolean isWinning(int[] cells, int[] winCells, int size) {
+        for (int i = 0; i < size; i++) {
+            if (cells[i] != winCells[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean nextCombination(int[] cells, int size, int count) {
+        int i = size - 1;
+        while (i >= 0 && cells[i] == count - size + i) {
+            i--;
+        }
+        if (i < 0) {
+            return false;
+        }
+        cells[i]++;
+        for (int j = i + 1; j < size; j++) {
+            cells[j] = cells[j - 1] + 1;
+        }
+        return true;
+    }
+
+        private static void playRounds(ColorMatchGame game, int[] saved, int rounds) {
+        for (int i = 0; i < rounds; i++) {
+            game.newGame();
+            game.resetSelection();
+            game.toggleButtonSelection(0, 0);
+            game.toggleButtonSelection(2, 1);
+            game.isGameOver();
+            game.setState(saved);
+            game.clearChanges();
+        }
+    }
+}
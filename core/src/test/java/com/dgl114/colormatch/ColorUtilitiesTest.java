@@ -0,0 +1,239 @@
+package com.dgl114.colormatch;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link ColorUtilities}. The integer blend is checked against the
+ * original float implementation, rewritten here without android.graphics.Color.
+ */
+public class ColorUtilitiesTest {
+
+    private static final int SAMPLES = 1_000_000;
+
+    @Test
+    public void blend_opaqueMatchesFloatPathWithinOne() {
+        Random random = new Random(114);
+        for (int i = 0; i < SAMPLES; i++) {
+            int c0 = 0xFF000000 | random.nextInt(0x1000000);
+            int c1 = 0xFF000000 | random.nextInt(0x1000000);
+            assertWithinOne(c0, c1, referenceBlend(c0, c1), ColorUtilities.blend(c0, c1));
+        }
+    }
+
+    @Test
+    public void blend_translucentMatchesFloatPathWithinOne() {
+        Random random = new Random(26);
+        for (int i = 0; i < SAMPLES; i++) {
+            int c0 = random.nextInt();
+            int c1 = random.nextInt();
+            assertWithinOne(c0, c1, referenceBlend(c0, c1), ColorUtilities.blend(c0, c1));
+        }
+    }
+
+    @Test
+    public void blend_handlesTransparentAndEqualColors() {
+        assertEquals(0, ColorUtilities.blend(0x00123456, 0x00ABCDEF));
+        assertEquals(0xFF123456, ColorUtilities.blend(0xFF123456, 0xFF123456));
+        assertEquals(0xFF808080, ColorUtilities.blend(0xFFFFFFFF, 0xFF000000));
+        assertEquals(0xFFABCDEF, ColorUtilities.blend(0xFFABCDEF, 0x00000000));
+    }
+
+    @Test
+    public void blend_subsetAveragesEveryCell() {
+        Random random = new Random(18);
+        int[] colors = new int[32];
+        int[] cells = new int[6];
+        for (int i = 0; i < SAMPLES / 10; i++) {
+            for (int j = 0; j < colors.length; j++) {
+                colors[j] = 0xFF000000 | random.nextInt(0x1000000);
+            }
+            int count = 2 + random.nextInt(5);
+            double red = 0, green = 0, blue = 0;
+            for (int j = 0; j < count; j++) {
+                cells[j] = random.nextInt(colors.length);
+                red += (colors[cells[j]] >> 16) & 0xFF;
+                green += (colors[cells[j]] >> 8) & 0xFF;
+                blue += colors[cells[j]] & 0xFF;
+            }
+            int blended = ColorUtilities.blend(colors, cells, count);
+            if (count == 2) {
+                assertEquals(ColorUtilities.blend(colors[cells[0]], colors[cells[1]]), blended);
+            }
+            else {
+                int expected = 0xFF000000 | (int) Math.floor(red / count + 0.5) << 16
+                        | (int) Math.floor(green / count + 0.5) << 8 | (int) Math.floor(blue / count + 0.5);
+                assertEquals(expected, blended);
+            }
+        }
+        int[] transparent = {0x00123456, 0x00ABCDEF, 0x00FFFFFF};
+        assertEquals(0, ColorUtilities.blend(transparent, new int[] {0, 1, 2}, 3));
+    }
+
+    @Test
+    public void blend_bulkMatchesSinglePairs() {
+        Random random = new Random(9);
+        int count = 1000;
+        int[] colors0 = new int[count + 5];
+        int[] colors1 = new int[count + 5];
+        for (int i = 0; i < colors0.length; i++) {
+            colors0[i] = i % 3 == 0 ? random.nextInt() : 0xFF000000 | random.nextInt();
+            colors1[i] = i % 5 == 0 ? random.nextInt() : 0xFF000000 | random.nextInt();
+        }
+        int[] out = new int[count + 5];
+        ColorUtilities.blend(colors0, colors1, out, count);
+
+        for (int i = 0; i < count; i++) {
+            assertEquals(ColorUtilities.blend(colors0[i], colors1[i]), out[i]);
+        }
+        assertEquals(0, out[count]);
+
+        ColorUtilities.blend(colors0, colors1, colors0, count);
+        assertArrayEquals(java.util.Arrays.copyOf(out, count), java.util.Arrays.copyOf(colors0, count));
+    }
+
+    @Test
+    public void blendLinear_matchesDoubleReferenceWithinOne() {
+        Random random = new Random(19);
+        int[] colors = new int[6];
+        int[] cells = {0, 1, 2, 3, 4, 5};
+        int exact = 0, channels = 0;
+        for (int i = 0; i < SAMPLES; i++) {
+            int count = i % 2 == 0 ? 2 : 2 + random.nextInt(5);
+            for (int j = 0; j < count; j++) {
+                colors[j] = i % 4 == 1 ? random.nextInt() : 0xFF000000 | random.nextInt(0x1000000);
+            }
+            int expected = referenceBlendLinear(colors, count);
+            int actual = count == 2 ? ColorUtilities.blendLinear(colors[0], colors[1])
+                    : ColorUtilities.blendLinear(colors, cells, count);
+            for (int shift = 0; shift < 32; shift += 8) {
+                int difference = Math.abs(((expected >>> shift) & 0xFF) - ((actual >>> shift) & 0xFF));
+                if (difference > 1) {
+                    fail(String.format("blendLinear of %d colors = %08X, reference gives %08X", count, actual, expected));
+                }
+                exact += difference == 0 ? 1 : 0;
+                channels++;
+            }
+        }
+        //Only a blend whose exact value is within a 16 bit step of a rounding boundary can
+        //come out one off.
+        assertTrue(exact + " of " + channels + " channels exact", exact > 0.995 * channels);
+    }
+
+    @Test
+    public void blendLinear_mixesLikeLight() {
+        assertEquals(0xFFBCBCBC, ColorUtilities.blendLinear(0xFFFFFFFF, 0xFF000000));
+        assertEquals(0xFF808080, ColorUtilities.blend(0xFFFFFFFF, 0xFF000000));
+        assertEquals(0xFFBC00BC, ColorUtilities.blendLinear(0xFFFF0000, 0xFF0000FF));
+        assertEquals(0xFF123456, ColorUtilities.blendLinear(0xFF123456, 0xFF123456));
+        assertEquals(0, ColorUtilities.blendLinear(0x00123456, 0x00ABCDEF));
+        assertEquals(0xFFABCDEF, ColorUtilities.blendLinear(0xFFABCDEF, 0x00000000));
+
+        int[] colors = {0xFF000000, 0xFFFFFFFF, 0xFF000000, 0xFFFFFFFF};
+        assertEquals(ColorUtilities.blendLinear(colors[0], colors[1]),
+                ColorUtilities.blendLinear(colors, new int[] {0, 1, 2, 3}, 4));
+        assertEquals(ColorUtilities.blendLinear(colors[0], colors[1]),
+                ColorUtilities.blend(colors, new int[] {2, 3}, 2, true));
+        assertEquals(0xFF808080, ColorUtilities.blend(colors[0], colors[1], false));
+    }
+
+    @Test
+    public void channels_packAndUnpackLikeAndroidColor() {
+        int color = 0x80C0FF01;
+        assertEquals(0x80, ColorUtilities.alpha(color));
+        assertEquals(0xC0, ColorUtilities.red(color));
+        assertEquals(0xFF, ColorUtilities.green(color));
+        assertEquals(0x01, ColorUtilities.blue(color));
+        assertEquals(color, ColorUtilities.argb(0x80, 0xC0, 0xFF, 0x01));
+        assertEquals(0xFF123456, ColorUtilities.rgb(0x12, 0x34, 0x56));
+        assertEquals(ColorUtilities.WHITE, ColorUtilities.rgb(255, 255, 255));
+        assertEquals(ColorUtilities.BLACK, ColorUtilities.rgb(0, 0, 0));
+        Random random = new Random(20);
+        for (int i = 0; i < SAMPLES; i++) {
+            color = random.nextInt();
+            assertEquals(color, ColorUtilities.argb(ColorUtilities.alpha(color), ColorUtilities.red(color),
+                    ColorUtilities.green(color), ColorUtilities.blue(color)));
+        }
+    }
+
+    @Test
+    public void blendLinear_bulkMatchesSinglePairs() {
+        Random random = new Random(10);
+        int count = 1000;
+        int[] colors0 = new int[count];
+        int[] colors1 = new int[count];
+        for (int i = 0; i < count; i++) {
+            colors0[i] = i % 3 == 0 ? random.nextInt() : 0xFF000000 | random.nextInt();
+            colors1[i] = i % 5 == 0 ? random.nextInt() : 0xFF000000 | random.nextInt();
+        }
+        int[] out = new int[count];
+        ColorUtilities.blendLinear(colors0, colors1, out, count);
+        for (int i = 0; i < count; i++) {
+            assertEquals(ColorUtilities.blendLinear(colors0[i], colors1[i]), out[i]);
+        }
+    }
+
+    private static void assertWithinOne(int c0, int c1, int expected, int actual) {
+        for (int shift = 0; shift < 32; shift += 8) {
+            int e = (expected >>> shift) & 0xFF;
+            int a = (actual >>> shift) & 0xFF;
+            if (Math.abs(e - a) > 1) {
+                fail(String.format("blend(%08X, %08X) = %08X, float path gives %08X", c0, c1, actual, expected));
+            }
+        }
+    }
+
+    //****************************************************************************************
+    //referenceBlendLinear() blends the first count colors in linear light in double
+    //precision, with Math.pow(), weighting each by its alpha.
+    //****************************************************************************************
+    private static int referenceBlendLinear(int[] colors, int count) {
+        double totalAlpha = 0;
+        int maxAlpha = 0;
+        double[] sums = new double[3];
+        for (int i = 0; i < count; i++) {
+            int alpha = colors[i] >>> 24;
+            totalAlpha += alpha;
+            maxAlpha = Math.max(maxAlpha, alpha);
+            for (int channel = 0; channel < 3; channel++) {
+                int value = (colors[i] >> (16 - 8 * channel)) & 0xFF;
+                sums[channel] += alpha * LinearLightTest.referenceToLinear(value / 255.0);
+            }
+        }
+        if (totalAlpha == 0) {
+            return 0;
+        }
+        int color = maxAlpha << 24;
+        for (int channel = 0; channel < 3; channel++) {
+            long value = Math.round(255.0 * LinearLightTest.referenceToEncoded(sums[channel] / totalAlpha));
+            color |= (int) value << (16 - 8 * channel);
+        }
+        return color;
+    }
+
+    //****************************************************************************************
+    //referenceBlend() is the original Color based blend(), with Color.valueOf() and
+    //Color.argb(float...) expanded into the same float operations.
+    //****************************************************************************************
+    private static int referenceBlend(int c0, int c1) {
+        float a0 = (c0 >>> 24) / 255.0f, a1 = (c1 >>> 24) / 255.0f;
+        float r0 = ((c0 >> 16) & 0xFF) / 255.0f, r1 = ((c1 >> 16) & 0xFF) / 255.0f;
+        float g0 = ((c0 >> 8) & 0xFF) / 255.0f, g1 = ((c1 >> 8) & 0xFF) / 255.0f;
+        float b0 = (c0 & 0xFF) / 255.0f, b1 = (c1 & 0xFF) / 255.0f;
+
+        float totalAlpha = a0 + a1;
+        float weight0 = a0 / totalAlpha;
+        float weight1 = a1 / totalAlpha;
+
+        float r = weight0 * r0 + weight1 * r1;
+        float g = weight0 * g0 + weight1 * g1;
+        float b = weight0 * b0 + weight1 * b1;
+        float a = Math.max(a0, a1);
+
+        return ((int) (a * 255.0f + 0.5f) << 24) | ((int) (r * 255.0f + 0.5f) << 16)
+                | ((int) (g * 255.0f + 0.5f) << 8) | (int) (b * 255.0f + 0.5f);
+    }
+}
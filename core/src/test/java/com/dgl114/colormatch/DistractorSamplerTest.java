@@ -0,0 +1,136 @@
+package com.dgl114.colormatch;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link DistractorSampler}.
+ */
+public class DistractorSamplerTest {
+
+    private static final int SAMPLES = 30_000;
+    private static final int GOLDEN_HASH = -144573078;
+
+    @Test
+    public void uniformColor_reachesEveryChannelValue() {
+        RoundRandom random = new RoundRandom();
+        random.reset(1);
+        boolean[] seen = new boolean[3 * 256];
+        for (int i = 0; i < 20_000; i++) {
+            int color = DistractorSampler.uniformColor(random.nextLong());
+            assertEquals(0xFF, color >>> 24);
+            seen[(color >> 16) & 0xFF] = true;
+            seen[256 + ((color >> 8) & 0xFF)] = true;
+            seen[512 + (color & 0xFF)] = true;
+        }
+        for (int value = 0; value < seen.length; value++) {
+            assertTrue("channel " + value / 256 + " value " + value % 256, seen[value]);
+        }
+    }
+
+    @Test
+    public void next_movesCloserAsDifficultyRises() {
+        double easy = meanNearestDeltaE(0.0f);
+        double medium = meanNearestDeltaE(0.5f);
+        double hard = meanNearestDeltaE(1.0f);
+        assertTrue(easy + " > " + medium, easy > medium + 5);
+        assertTrue(medium + " > " + hard, medium > hard + 5);
+        assertTrue("hard " + hard, hard < 25);
+    }
+
+    @Test
+    public void next_placesHardDistractorsAtTheNearDistance() {
+        RoundRandom random = new RoundRandom();
+        DistractorSampler sampler = new DistractorSampler();
+        float[] lab = new float[12];
+        float near = 12.5f;
+        int onShell = 0;
+        for (int round = 0; round < SAMPLES / 10; round++) {
+            random.reset(round);
+            int win1 = DistractorSampler.uniformColor(random.nextLong());
+            int win2 = DistractorSampler.uniformColor(random.nextLong());
+            int target = ColorUtilities.blend(win1, win2);
+            sampler.reset(random, win1, win2, target, 1.0f, near);
+            CieLab.toLab(win1, lab, 0);
+            CieLab.toLab(win2, lab, 3);
+            CieLab.toLab(target, lab, 6);
+            for (int i = 0; i < 10; i++) {
+                CieLab.toLab(sampler.next(), lab, 9);
+                for (int anchor = 0; anchor < 9; anchor += 3) {
+                    //Within a Delta E of 1 for the rounding to 8 bit channels.
+                    if (Math.abs(CieLab.deltaE(lab, anchor, lab, 9) - near) < 1) {
+                        onShell++;
+                        break;
+                    }
+                }
+            }
+        }
+        //The rest fell outside the gamut and were replaced by uniform colors.
+        assertTrue("on shell " + onShell, onShell > SAMPLES / 2);
+    }
+
+    @Test
+    public void next_isAPureFunctionOfTheRandomStream() {
+        RoundRandom random = new RoundRandom();
+        DistractorSampler sampler = new DistractorSampler();
+        int[] first = new int[50];
+        for (int pass = 0; pass < 2; pass++) {
+            random.reset(114);
+            sampler.reset(random, 0xFF336699, 0xFFCC9933, 0xFF808066, 0.7f, 12.5f);
+            for (int i = 0; i < first.length; i++) {
+                int color = sampler.next();
+                if (pass == 0) {
+                    first[i] = color;
+                }
+                else {
+                    assertEquals(first[i], color);
+                }
+            }
+        }
+    }
+
+    //****************************************************************************************
+    //The colors a seed gives are pinned, so that a change in the math (or a JVM whose Math
+    //functions round differently) shows up here instead of as different boards for a seed.
+    //****************************************************************************************
+    @Test
+    public void next_givesTheSameColorsOnEveryJvm() {
+        RoundRandom random = new RoundRandom();
+        DistractorSampler sampler = new DistractorSampler();
+        random.reset(114);
+        sampler.reset(random, 0xFF336699, 0xFFCC9933, 0xFF808066, 1.0f, 12.5f);
+        int hash = 0;
+        for (int i = 0; i < 1000; i++) {
+            hash = 31 * hash + sampler.next();
+        }
+        assertEquals(GOLDEN_HASH, hash);
+    }
+
+    //****************************************************************************************
+    //meanNearestDeltaE() is the mean Delta E from each distractor to the nearest of the two
+    //winning colors and the target, over many random rounds.
+    //****************************************************************************************
+    private static double meanNearestDeltaE(float difficulty) {
+        RoundRandom random = new RoundRandom();
+        DistractorSampler sampler = new DistractorSampler();
+        float[] lab = new float[12];
+        double total = 0;
+        for (int round = 0; round < SAMPLES / 10; round++) {
+            random.reset(round);
+            int win1 = DistractorSampler.uniformColor(random.nextLong());
+            int win2 = DistractorSampler.uniformColor(random.nextLong());
+            int target = ColorUtilities.blend(win1, win2);
+            sampler.reset(random, win1, win2, target, difficulty, 12.5f);
+            CieLab.toLab(win1, lab, 0);
+            CieLab.toLab(win2, lab, 3);
+            CieLab.toLab(target, lab, 6);
+            for (int i = 0; i < 10; i++) {
+                CieLab.toLab(sampler.next(), lab, 9);
+                total += Math.min(CieLab.deltaE(lab, 0, lab, 9),
+                        Math.min(CieLab.deltaE(lab, 3, lab, 9), CieLab.deltaE(lab, 6, lab, 9)));
+            }
+        }
+        return total / SAMPLES;
+    }
+}
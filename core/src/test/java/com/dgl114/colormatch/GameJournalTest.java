@@ -0,0 +1,303 @@
+package com.dgl114.colormatch;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link GameJournal} and {@link GameJournalReplayer}.
+ */
+public class GameJournalTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void replay_rebuildsGameAndScore() throws Exception {
+        File file = mFolder.newFile("session.journal");
+        ColorMatchGame game = new ColorMatchGame(5, 6, new SplittableRandom(10));
+        Score score = new Score();
+        play(game, score, new SplittableRandom(11), file, 0, 500);
+
+        ColorMatchGame replayed = new ColorMatchGame(5, 6);
+        Score replayedScore = new Score();
+        GameJournalReplayer replayer = new GameJournalReplayer(replayed.getNumCells());
+        assertTrue(replayer.replay(file, replayed, replayedScore));
+
+        assertEquals(500, replayer.getRoundCount());
+        assertEquals(file.length(), replayer.getValidLength());
+        assertGameEquals(game, replayed);
+        assertEquals(score.getCorrect(), replayedScore.getCorrect());
+        assertEquals(score.getFailure(), replayedScore.getFailure());
+        assertTrue(replayedScore.getCorrect() > 0);
+    }
+
+    @Test
+    public void replay_rebuildsBlendRounds() throws Exception {
+        File file = mFolder.newFile("blend.journal");
+        ColorMatchGame game = new ColorMatchGame(4, 4, 3L);
+        game.setBlendSize(3);
+        Score score = new Score();
+        play(game, score, new SplittableRandom(12), file, 0, 50);
+        game.setBlendSize(6);
+        play(game, score, new SplittableRandom(13), file, file.length(), 50);
+
+        ColorMatchGame replayed = new ColorMatchGame(4, 4);
+        GameJournalReplayer replayer = new GameJournalReplayer(replayed.getNumCells());
+        assertTrue(replayer.replay(file, replayed, new Score()));
+        assertEquals(100, replayer.getRoundCount());
+        assertEquals(6, replayed.getWinCount());
+        assertGameEquals(game, replayed);
+    }
+
+    @Test
+    public void replay_dropsHalfWrittenEventAndAppendsAfterIt() throws Exception {
+        File file = mFolder.newFile("session.journal");
+        ColorMatchGame game = new ColorMatchGame(3, 3, new SplittableRandom(20));
+        Score score = new Score();
+        SplittableRandom player = new SplittableRandom(21);
+        play(game, score, player, file, 0, 50);
+        long complete = file.length();
+        try (RandomAccessFile raw = new RandomAccessFile(file, "rw")) {
+            raw.seek(complete);
+            raw.write(new byte[] {GameJournal.EVENT_ROUND, 0, 0});
+        }
+
+        ColorMatchGame replayed = new ColorMatchGame(3, 3);
+        Score replayedScore = new Score();
+        GameJournalReplayer replayer = new GameJournalReplayer(replayed.getNumCells());
+        assertTrue(replayer.replay(file, replayed, replayedScore));
+        assertEquals(complete, replayer.getValidLength());
+        assertGameEquals(game, replayed);
+
+        play(game, score, player, file, replayer.getValidLength(), 50);
+        replayed = new ColorMatchGame(3, 3);
+        replayedScore = new Score();
+        assertTrue(replayer.replay(file, replayed, replayedScore));
+        assertEquals(100, replayer.getRoundCount());
+        assertEquals(file.length(), replayer.getValidLength());
+        assertGameEquals(game, replayed);
+        assertEquals(score.getCorrect() + score.getFailure(),
+                replayedScore.getCorrect() + replayedScore.getFailure());
+    }
+
+    @Test
+    public void replay_rejectsMissingFileAndOtherBoardSize() throws Exception {
+        File file = mFolder.newFile("session.journal");
+        play(new ColorMatchGame(3, 3), new Score(), new SplittableRandom(30), file, 0, 1);
+        GameJournalReplayer replayer = new GameJournalReplayer(16);
+
+        assertFalse(replayer.replay(new File(mFolder.getRoot(), "missing"), new ColorMatchGame(), new Score()));
+        ColorMatchGame other = new ColorMatchGame(4, 4);
+        int[] before = other.getState();
+        assertFalse(replayer.replay(file, other, new Score()));
+        assertArrayEquals(before, other.getState());
+    }
+
+    @Test
+    public void checkpoint_cutsTheFileBackToIt() throws Exception {
+        File file = mFolder.newFile("session.journal");
+        ColorMatchGame game = new ColorMatchGame(5, 5, new SplittableRandom(50));
+        game.setBlendSize(3);
+        Score score = new Score();
+        SplittableRandom player = new SplittableRandom(51);
+        GameJournal journal = new GameJournal(file, 5, 5, 0);
+        journal.start();
+        playRounds(journal, game, score, player, 300);
+        game.toggleButtonSelection(0, 0);
+        journal.recordToggle(0, 0);
+        journal.checkpoint(game, score);
+        playRounds(journal, game, score, player, 3);
+        journal.stop();
+        assertNull(journal.awaitWritten());
+
+        ColorMatchGame replayed = new ColorMatchGame(5, 5);
+        Score replayedScore = new Score();
+        GameJournalReplayer replayer = new GameJournalReplayer(replayed.getNumCells());
+        assertTrue(replayer.replay(file, replayed, replayedScore));
+        assertEquals(1, replayer.getCheckpointCount());
+        assertEquals(3, replayer.getRoundCount());
+        assertEquals(file.length(), replayer.getValidLength());
+        assertTrue(file.length() < GameJournal.HEADER_SIZE + GameJournal.getCheckpointSize(25, 3)
+                + 3 * (GameJournal.getRoundSize(25, 3) + 4 * 5 + 2));
+        assertGameEquals(game, replayed);
+        assertEquals(score.getCorrect(), replayedScore.getCorrect());
+        assertEquals(score.getFailure(), replayedScore.getFailure());
+    }
+
+    @Test
+    public void newJournal_keepsTheOldFileUntilItsCheckpointReplacesIt() throws Exception {
+        File file = mFolder.newFile("session.journal");
+        ColorMatchGame game = new ColorMatchGame(4, 4, new SplittableRandom(70));
+        Score score = new Score();
+        play(game, score, new SplittableRandom(71), file, 0, 40);
+        long oldLength = file.length();
+
+        GameJournal journal = new GameJournal(file, 4, 4, 0);
+        journal.start();
+        Thread.sleep(20);
+        //The writer has nothing to write yet, so the old journal is left as it was.
+        assertEquals(oldLength, file.length());
+        journal.checkpoint(game, score);
+        journal.stop();
+        assertNull(journal.awaitWritten());
+
+        assertFalse(new File(file.getPath() + ".tmp").exists());
+        assertEquals(GameJournal.HEADER_SIZE + GameJournal.getCheckpointSize(16, 2), file.length());
+        ColorMatchGame replayed = new ColorMatchGame(4, 4);
+        Score replayedScore = new Score();
+        GameJournalReplayer replayer = new GameJournalReplayer(replayed.getNumCells());
+        assertTrue(replayer.replay(file, replayed, replayedScore));
+        assertEquals(1, replayer.getCheckpointCount());
+        assertGameEquals(game, replayed);
+        assertEquals(score.getCorrect(), replayedScore.getCorrect());
+    }
+
+    @Test
+    public void fullRing_dropsEventsUntilTheNextCheckpoint() throws Exception {
+        File file = mFolder.newFile("session.journal");
+        ColorMatchGame game = new ColorMatchGame(8, 8, new SplittableRandom(60));
+        Score score = new Score();
+        ColorMatchGame kept = new ColorMatchGame(8, 8);
+        GameJournal journal = new GameJournal(file, 8, 8, 0);
+        synchronized (GameJournal.FILE_LOCK) {
+            //The writer can't open the file while the lock is held, so the ring fills up.
+            journal.start();
+            while (journal.getDroppedCount() == 0) {
+                game.newGame();
+                game.resetSelection();
+                journal.recordRound(game);
+                if (journal.getDroppedCount() == 0) {
+                    copy(game, score, kept);
+                }
+            }
+            game.toggleButtonSelection(1, 1);
+            journal.recordToggle(1, 1);
+            journal.checkpoint(game, score);
+            assertEquals(3, journal.getDroppedCount());
+        }
+
+        ColorMatchGame replayed = new ColorMatchGame(8, 8);
+        GameJournalReplayer replayer = new GameJournalReplayer(replayed.getNumCells());
+        //Once the writer has made room, a checkpoint brings the journal up to date again.
+        long dropped;
+        do {
+            dropped = journal.getDroppedCount();
+            journal.checkpoint(game, score);
+            Thread.yield();
+        } while (journal.getDroppedCount() != dropped);
+        playRounds(journal, game, score, new SplittableRandom(61), 5);
+        journal.stop();
+        assertNull(journal.awaitWritten());
+        assertTrue(replayer.replay(file, replayed, new Score()));
+        assertEquals(5, replayer.getRoundCount());
+        assertGameEquals(game, replayed);
+
+        //Without the checkpoint the journal ends at the last round that fit.
+        journal = new GameJournal(file, 8, 8, 0);
+        synchronized (GameJournal.FILE_LOCK) {
+            journal.start();
+            while (journal.getDroppedCount() == 0) {
+                journal.recordRound(kept);
+            }
+            journal.recordToggle(2, 2);
+        }
+        journal.stop();
+        assertNull(journal.awaitWritten());
+        assertTrue(replayer.replay(file, replayed, new Score()));
+        assertEquals(file.length(), replayer.getValidLength());
+        assertEquals(0, replayer.getCheckpointCount());
+        assertGameEquals(kept, replayed);
+    }
+
+    @Test
+    public void replay_streamsAJournalLargerThanItsBuffer() throws Exception {
+        File file = mFolder.newFile("session.journal");
+        ColorMatchGame game = new ColorMatchGame(3, 3, new SplittableRandom(40));
+        Score score = new Score();
+        play(game, score, new SplittableRandom(41), file, 0, 20_000);
+        assertTrue(file.length() > 16 * 65536);
+
+        GameJournalReplayer replayer = new GameJournalReplayer(game.getNumCells());
+        ColorMatchGame replayed = new ColorMatchGame(3, 3);
+        Score replayedScore = new Score();
+        assertTrue(replayer.replay(file, replayed, replayedScore));
+        assertEquals(file.length(), replayer.getValidLength());
+        assertEquals(20_000, replayer.getRoundCount());
+        assertGameEquals(game, replayed);
+        assertEquals(score.getCorrect(), replayedScore.getCorrect());
+        assertEquals(score.getFailure(), replayedScore.getFailure());
+    }
+
+    //Plays rounds the way MainActivity does: a new round, a few toggles and a check.
+    private static void play(ColorMatchGame game, Score score, SplittableRandom player, File file,
+                             long appendPosition, int rounds) throws IOException, InterruptedException {
+        GameJournal journal = new GameJournal(file, game.getNumRows(), game.getNumCols(), appendPosition);
+        journal.start();
+        playRounds(journal, game, score, player, rounds);
+        journal.stop();
+        assertNull(journal.awaitWritten());
+        assertEquals(0, journal.getDroppedCount());
+    }
+
+    //A player never gets ahead of the writer by a whole ring, so before each round this waits
+    //for the writer until there is room for the round and its toggles.
+    private static void playRounds(GameJournal journal, ColorMatchGame game, Score score, SplittableRandom player,
+                                   int rounds) {
+        int roundRoom = GameJournal.getMaxRoundSize(game.getNumCells()) + 16;
+        for (int round = 0; round < rounds; round++) {
+            while (journal.getFreeBytes() < roundRoom) {
+                Thread.yield();
+            }
+            game.newGame();
+            game.resetSelection();
+            journal.recordRound(game);
+            int toggles = player.nextInt(4);
+            for (int toggle = 0; toggle < toggles; toggle++) {
+                int row = player.nextInt(game.getNumRows());
+                int col = player.nextInt(game.getNumCols());
+                game.toggleButtonSelection(row, col);
+                journal.recordToggle(row, col);
+            }
+            if (player.nextInt(4) == 0) {
+                game.toggleButtonSelection(game.getWinRow1(), game.getWinCol1());
+                journal.recordToggle(game.getWinRow1(), game.getWinCol1());
+                game.toggleButtonSelection(game.getWinRow2(), game.getWinCol2());
+                journal.recordToggle(game.getWinRow2(), game.getWinCol2());
+            }
+            boolean correct = game.isGameOver();
+            journal.recordCheck(correct);
+            if (correct) {
+                score.recordCorrect();
+            }
+            else {
+                score.recordFailure();
+            }
+        }
+    }
+
+    private static void copy(ColorMatchGame game, Score score, ColorMatchGame into) {
+        ByteBuffer snapshot = ByteBuffer.allocate(GameSnapshotCodec.getSize(game));
+        GameSnapshotCodec.encode(game, score, snapshot);
+        snapshot.flip();
+        assertTrue(GameSnapshotCodec.decode(snapshot, into, new Score()));
+    }
+
+    private static void assertGameEquals(ColorMatchGame expected, ColorMatchGame actual) {
+        assertArrayEquals(expected.getState(), actual.getState());
+        assertArrayEquals(expected.getStateSelected(), actual.getStateSelected());
+        assertEquals(expected.getWinCount(), actual.getWinCount());
+        for (int i = 0; i < expected.getWinCount(); i++) {
+            assertEquals(expected.getWinIndex(i), actual.getWinIndex(i));
+        }
+        assertEquals(expected.getBlendedColor(), actual.getBlendedColor());
+    }
+}
@@ -0,0 +1,160 @@
+package com.dgl114.colormatch;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link GameSnapshotCodec}.
+ */
+public class GameSnapshotCodecTest {
+
+    @Test
+    public void snapshot_roundTripsWholeGame() {
+        ColorMatchGame game = new ColorMatchGame(9, 11, new SplittableRandom(114));
+        game.newGame();
+        game.toggleButtonSelection(8, 10);
+        game.toggleButtonSelection(game.getWinRow1(), game.getWinCol1());
+        Score score = new Score();
+        score.set(12, 34);
+
+        ByteBuffer buffer = ByteBuffer.allocate(GameSnapshotCodec.getSize(game));
+        GameSnapshotCodec.encode(game, score, buffer);
+        assertEquals(buffer.capacity(), buffer.position());
+
+        ColorMatchGame restored = new ColorMatchGame(9, 11);
+        Score restoredScore = new Score();
+        buffer.flip();
+        assertTrue(GameSnapshotCodec.decode(buffer, restored, restoredScore));
+        assertEquals(0, buffer.remaining());
+
+        assertArrayEquals(game.getState(), restored.getState());
+        assertArrayEquals(game.getStateSelected(), restored.getStateSelected());
+        assertEquals(2, restored.getSelectedCount());
+        assertEquals(game.getWinIndex1(), restored.getWinIndex1());
+        assertEquals(game.getWinIndex2(), restored.getWinIndex2());
+        assertEquals(game.getBlendedColor(), restored.getBlendedColor());
+        assertEquals(12, restoredScore.getCorrect());
+        assertEquals(34, restoredScore.getFailure());
+    }
+
+    @Test
+    public void snapshot_keepsWinningCellsForIsGameOver() {
+        ColorMatchGame game = new ColorMatchGame();
+        game.newGame();
+        game.toggleButtonSelection(game.getWinRow1(), game.getWinCol1());
+        game.toggleButtonSelection(game.getWinRow2(), game.getWinCol2());
+        ByteBuffer buffer = ByteBuffer.allocate(GameSnapshotCodec.getSize(game));
+        GameSnapshotCodec.encode(game, new Score(), buffer);
+
+        ColorMatchGame restored = new ColorMatchGame();
+        buffer.flip();
+        assertTrue(GameSnapshotCodec.decode(buffer, restored, new Score()));
+        assertTrue(restored.isGameOver());
+    }
+
+    @Test
+    public void snapshot_keepsEveryCellOfABlendRound() {
+        ColorMatchGame game = new ColorMatchGame(6, 6, 7L);
+        game.setBlendSize(5);
+        game.newGame();
+        for (int i = 0; i < 5; i++) {
+            game.toggleButtonSelection(game.getWinIndex(i) / 6, game.getWinIndex(i) % 6);
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(GameSnapshotCodec.getMaxSize(game));
+        GameSnapshotCodec.encode(game, new Score(), buffer);
+        assertEquals(GameSnapshotCodec.getSize(game), buffer.position());
+
+        ColorMatchGame restored = new ColorMatchGame(6, 6);
+        buffer.flip();
+        assertTrue(GameSnapshotCodec.decode(buffer, restored, new Score()));
+        assertEquals(5, restored.getWinCount());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(game.getWinIndex(i), restored.getWinIndex(i));
+        }
+        assertEquals(game.getBlendedColor(), restored.getBlendedColor());
+        assertTrue(restored.isGameOver());
+    }
+
+    @Test
+    public void decode_rejectsOtherBoardSizeAndVersion() {
+        ColorMatchGame game = new ColorMatchGame(4, 4);
+        game.newGame();
+        ByteBuffer buffer = ByteBuffer.allocate(GameSnapshotCodec.getSize(game));
+        GameSnapshotCodec.encode(game, new Score(), buffer);
+        buffer.flip();
+
+        assertFalse(GameSnapshotCodec.decode(buffer, new ColorMatchGame(4, 5), new Score()));
+        assertEquals(0, buffer.position());
+
+        buffer.put(2, (byte) (GameSnapshotCodec.VERSION + 1));
+        assertFalse(GameSnapshotCodec.decode(buffer, new ColorMatchGame(4, 4), new Score()));
+
+        ByteBuffer truncated = ByteBuffer.wrap(buffer.array(), 0, buffer.limit() - 1);
+        truncated.put(2, GameSnapshotCodec.VERSION);
+        assertFalse(GameSnapshotCodec.decode(truncated, new ColorMatchGame(4, 4), new Score()));
+    }
+
+    @Test
+    public void decode_rejectsTooManySelectedAndIgnoresBitsPastTheBoard() {
+        ColorMatchGame game = new ColorMatchGame(3, 3, 9L);
+        game.newGame();
+        game.toggleButtonSelection(0, 0);
+        ByteBuffer buffer = ByteBuffer.allocate(GameSnapshotCodec.getSize(game));
+        GameSnapshotCodec.encode(game, new Score(), buffer);
+        int selection = buffer.position() - 8;
+        buffer.flip();
+
+        //Bits past the ninth cell are dropped, leaving the one cell that was selected.
+        buffer.putLong(selection, 0xFFFF_FFFF_FFFF_FE01L);
+        ColorMatchGame restored = new ColorMatchGame(3, 3);
+        assertTrue(GameSnapshotCodec.decode(buffer, restored, new Score()));
+        assertEquals(1, restored.getSelectedCount());
+        assertArrayEquals(game.getStateSelected(), restored.getStateSelected());
+
+        //Three cells selected in a round with two winning cells can't have been played.
+        buffer.position(0);
+        buffer.putLong(selection, 0b111L);
+        restored = new ColorMatchGame(3, 3);
+        int[] before = restored.getState();
+        assertFalse(GameSnapshotCodec.decode(buffer, restored, new Score()));
+        assertEquals(0, buffer.position());
+        assertEquals(0, restored.getSelectedCount());
+        assertArrayEquals(before, restored.getState());
+    }
+
+    @Test
+    public void snapshot_roundTripAllocatesNothing() {
+        ColorMatchGame game = new ColorMatchGame(16, 16);
+        game.newGame();
+        ColorMatchGame restored = new ColorMatchGame(16, 16);
+        Score score = new Score();
+        ByteBuffer buffer = ByteBuffer.allocate(GameSnapshotCodec.getSize(game));
+        int snapshots = 20_000;
+
+        //Warmed up first, so that nothing the JIT or class loading does is counted.
+        roundTrip(game, restored, score, buffer, snapshots);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)
+                java.lang.management.ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+        roundTrip(game, restored, score, buffer, snapshots);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+
+        assertTrue("allocated " + allocated + " bytes", allocated < snapshots);
+        assertArrayEquals(game.getState(), restored.getState());
+    }
+
+    private static void roundTrip(ColorMatchGame game, ColorMatchGame restored, Score score,
+                                  ByteBuffer buffer, int snapshots) {
+        for (int i = 0; i < snapshots; i++) {
+            buffer.clear();
+            GameSnapshotCodec.encode(game, score, buffer);
+            buffer.flip();
+            GameSnapshotCodec.decode(buffer, restored, score);
+        }
+    }
+}
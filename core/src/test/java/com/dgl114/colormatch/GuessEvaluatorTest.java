@@ -0,0 +1,199 @@
+package com.dgl114.colormatch;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link GuessEvaluator}. Every batch is checked guess by guess against
+ * toggling the guess into a game and calling isGameOver().
+ */
+public class GuessEvaluatorTest {
+
+    private static final int GUESSES = 2000;
+
+    @Test
+    public void evaluate_matchesIsGameOver() {
+        SplittableRandom random = new SplittableRandom(21);
+        for (int size = 3; size <= 8; size += 5) {
+            for (int blend = 2; blend <= 4; blend++) {
+                ColorMatchGame game = new ColorMatchGame(size, size, 21L);
+                game.setBlendSize(blend);
+                game.newGame();
+                int[] guesses = new int[GUESSES * blend];
+                fillGuesses(game, random, guesses, GUESSES);
+                boolean[] correct = new boolean[GUESSES];
+
+                int found = game.evaluateGuesses(guesses, GUESSES, correct);
+                int expectedFound = 0;
+                for (int i = 0; i < GUESSES; i++) {
+                    game.resetSelection();
+                    for (int j = 0; j < blend; j++) {
+                        int cell = guesses[i * blend + j];
+                        game.toggleButtonSelection(cell / size, cell % size);
+                    }
+                    assertEquals("guess " + i, game.isGameOver(), correct[i]);
+                    expectedFound += correct[i] ? 1 : 0;
+                }
+                assertEquals(expectedFound, found);
+                assertTrue(found > 0);
+            }
+        }
+    }
+
+    @Test
+    public void evaluateMasks_matchesIsGameOver() {
+        SplittableRandom random = new SplittableRandom(21);
+        for (int size = 3; size <= 11; size += 8) {
+            for (int blend = 2; blend <= 3; blend++) {
+                ColorMatchGame game = new ColorMatchGame(size, size, 21L);
+                game.setBlendSize(blend);
+                game.newGame();
+                int words = game.getSelectionWordCount();
+                int[] guesses = new int[GUESSES * blend];
+                fillGuesses(game, random, guesses, GUESSES);
+                long[] masks = new long[GUESSES * words];
+                for (int i = 0; i < GUESSES; i++) {
+                    for (int j = 0; j < blend; j++) {
+                        int cell = guesses[i * blend + j];
+                        masks[i * words + (cell >>> 6)] |= 1L << cell;
+                    }
+                    //Some guesses get an extra cell, which is never right.
+                    if (i % 7 == 0) {
+                        int cell = random.nextInt(game.getNumCells());
+                        masks[i * words + (cell >>> 6)] |= 1L << cell;
+                    }
+                }
+                boolean[] correct = new boolean[GUESSES];
+
+                int found = game.evaluateSelections(masks, GUESSES, correct);
+                int expectedFound = 0;
+                for (int i = 0; i < GUESSES; i++) {
+                    for (int word = 0; word < words; word++) {
+                        game.setSelectionWord(word, masks[i * words + word]);
+                    }
+                    assertEquals("guess " + i, game.isGameOver(), correct[i]);
+                    expectedFound += correct[i] ? 1 : 0;
+                }
+                assertEquals(expectedFound, found);
+                assertTrue(found > 0);
+            }
+        }
+    }
+
+    @Test
+    public void evaluate_scoresEachGuessAgainstItsOwnBoard() {
+        SplittableRandom random = new SplittableRandom(21);
+        int numBoards = 50;
+        for (int blend = 2; blend <= 4; blend += 2) {
+            ColorMatchGame game = new ColorMatchGame(6, 6, 21L);
+            game.setBlendSize(blend);
+            int stride = ColorMatchGame.MAX_BLEND_SIZE;
+            int[] winCells = new int[numBoards * stride];
+            for (int board = 0; board < numBoards; board++) {
+                game.newGame();
+                for (int i = 0; i < blend; i++) {
+                    winCells[board * stride + i] = game.getWinIndex(i);
+                }
+            }
+            int words = game.getSelectionWordCount();
+            int[] boards = new int[GUESSES];
+            int[] guesses = new int[GUESSES * blend];
+            long[] masks = new long[GUESSES * words];
+            for (int i = 0; i < GUESSES; i++) {
+                boards[i] = random.nextInt(numBoards);
+                for (int j = 0; j < blend; j++) {
+                    //Half the guesses are the right answer, in a random order.
+                    int cell = i % 2 == 0 ? winCells[boards[i] * stride + (j + i / 2) % blend]
+                            : random.nextInt(game.getNumCells());
+                    guesses[i * blend + j] = cell;
+                    masks[i * words + (cell >>> 6)] |= 1L << cell;
+                }
+            }
+            boolean[] correct = new boolean[GUESSES];
+            boolean[] masksCorrect = new boolean[GUESSES];
+            boolean[] single = new boolean[1];
+
+            int found = GuessEvaluator.evaluate(winCells, stride, blend, boards, guesses, GUESSES, correct);
+            assertEquals(found, GuessEvaluator.evaluateMasks(winCells, stride, blend, boards, masks, words,
+                    GUESSES, masksCorrect));
+            assertTrue(found >= GUESSES / 2);
+            for (int i = 0; i < GUESSES; i++) {
+                int[] guess = new int[blend];
+                System.arraycopy(guesses, i * blend, guess, 0, blend);
+                GuessEvaluator.evaluate(winCells, boards[i] * stride, blend, guess, 1, single);
+                assertEquals("guess " + i, single[0], correct[i]);
+                assertEquals("guess " + i, correct[i], masksCorrect[i]);
+            }
+        }
+    }
+
+    @Test
+    public void evaluate_rejectsRepeatedCells() {
+        int[] winCells = {4, 9, 2};
+        boolean[] correct = new boolean[4];
+        int[] guesses = {2, 4, 9, 9, 4, 2, 4, 4, 9, 4, 9, 4};
+        assertEquals(2, GuessEvaluator.evaluate(winCells, 0, 3, guesses, 4, correct));
+        assertArrayEquals(new boolean[] {true, true, false, false}, correct);
+        int[] pairs = {4, 4, 9, 4};
+        assertEquals(1, GuessEvaluator.evaluate(winCells, 0, 2, pairs, 2, correct));
+        assertFalse(correct[0]);
+        assertTrue(correct[1]);
+    }
+
+    @Test
+    public void evaluate_doesNotAllocate() {
+        ColorMatchGame game = new ColorMatchGame(8, 8, 21L);
+        game.newGame();
+        int count = 1 << 12;
+        int[] guesses = new int[2 * count];
+        fillGuesses(game, new SplittableRandom(21), guesses, count);
+        long[] masks = new long[count];
+        for (int i = 0; i < count; i++) {
+            masks[i] = (1L << guesses[2 * i]) | (1L << guesses[2 * i + 1]);
+        }
+        boolean[] correct = new boolean[count];
+        int batches = 200;
+        //Warmed up first, so that nothing the JIT or class loading does is counted.
+        for (int batch = 0; batch < batches; batch++) {
+            game.evaluateGuesses(guesses, count, correct);
+            game.evaluateSelections(masks, count, correct);
+        }
+
+        com.sun.management.ThreadMXBean threads =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        for (int batch = 0; batch < batches; batch++) {
+            game.evaluateGuesses(guesses, count, correct);
+            game.evaluateSelections(masks, count, correct);
+        }
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue("allocated " + allocated + " bytes", allocated < batches);
+    }
+
+    //****************************************************************************************
+    //fillGuesses() writes count guesses of getWinCount() cells each. Every tenth guess is the
+    //winning set in a shuffled order and the rest are random cells, repeats allowed.
+    //****************************************************************************************
+    private static void fillGuesses(ColorMatchGame game, SplittableRandom random, int[] guesses, int count) {
+        int blend = game.getWinCount();
+        for (int i = 0; i < count; i++) {
+            for (int j = 0; j < blend; j++) {
+                guesses[i * blend + j] = i % 10 == 0 ? game.getWinIndex(j) : random.nextInt(game.getNumCells());
+            }
+            if (i % 10 == 0) {
+                for (int j = blend - 1; j > 0; j--) {
+                    int k = random.nextInt(j + 1);
+                    int swap = guesses[i * blend + j];
+                    guesses[i * blend + j] = guesses[i * blend + k];
+                    guesses[i * blend + k] = swap;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+package com.dgl114.colormatch;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link HintSolver}. Results are checked against blending every pair.
+ */
+public class HintSolverTest {
+
+    @Test
+    public void solve_findsWinningPairFirst() {
+        ColorMatchGame game = new ColorMatchGame(8, 8, new SplittableRandom(114));
+        HintSolver solver = new HintSolver(game.getNumCells(), 5);
+
+        for (int round = 0; round < 200; round++) {
+            game.newGame();
+            assertEquals(5, solver.solve(game, 5));
+            int win1 = game.getWinRow1() * 8 + game.getWinCol1();
+            int win2 = game.getWinRow2() * 8 + game.getWinCol2();
+            assertEquals(Math.min(win1, win2), solver.getFirstCell(0));
+            assertEquals(Math.max(win1, win2), solver.getSecondCell(0));
+            assertEquals(0.0, solver.getDeltaE(0), 1e-3);
+            assertTrue(solver.getDeltaE(1) >= game.getUniquenessThreshold());
+        }
+    }
+
+    @Test
+    public void solve_matchesAllPairsRanking() {
+        SplittableRandom random = new SplittableRandom(26);
+        int count = 150;
+        int maxResults = 20;
+        int[] colors = new int[count];
+        HintSolver solver = new HintSolver(count, maxResults);
+
+        for (int board = 0; board < 50; board++) {
+            for (int i = 0; i < count; i++) {
+                colors[i] = 0xFF000000 | random.nextInt(0x1000000);
+            }
+            int target = 0xFF000000 | random.nextInt(0x1000000);
+            assertEquals(maxResults, solver.solve(colors, count, target, maxResults));
+
+            float[] expected = allPairDistances(colors, target, false);
+            for (int rank = 0; rank < maxResults; rank++) {
+                assertEquals("board " + board + " rank " + rank, expected[rank], solver.getDeltaE(rank), 1e-3);
+                assertTrue(solver.getFirstCell(rank) < solver.getSecondCell(rank));
+            }
+        }
+    }
+
+    @Test
+    public void solve_matchesAllPairsRankingInLinearLight() {
+        SplittableRandom random = new SplittableRandom(19);
+        int count = 150;
+        int maxResults = 20;
+        int[] colors = new int[count];
+        HintSolver solver = new HintSolver(count, maxResults);
+
+        for (int board = 0; board < 50; board++) {
+            for (int i = 0; i < count; i++) {
+                colors[i] = 0xFF000000 | random.nextInt(0x1000000);
+            }
+            int target = 0xFF000000 | random.nextInt(0x1000000);
+            assertEquals(maxResults, solver.solve(colors, count, target, maxResults, true));
+
+            float[] expected = allPairDistances(colors, target, true);
+            for (int rank = 0; rank < maxResults; rank++) {
+                assertEquals("board " + board + " rank " + rank, expected[rank], solver.getDeltaE(rank), 1e-3);
+            }
+        }
+    }
+
+    @Test
+    public void solve_returnsEveryPairOnTinyBoard() {
+        int[] colors = {0xFF000000, 0xFFFFFFFF, 0xFF0000FF};
+        HintSolver solver = new HintSolver(3, 10);
+        assertEquals(3, solver.solve(colors, 3, 0xFF808080, 10));
+        assertEquals(0, solver.getFirstCell(0));
+        assertEquals(1, solver.getSecondCell(0));
+        assertTrue(solver.getDeltaE(0) <= solver.getDeltaE(1));
+        assertTrue(solver.getDeltaE(1) <= solver.getDeltaE(2));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void solve_rejectsGamesThatBlendMoreThanTwo() {
+        ColorMatchGame game = new ColorMatchGame(6, 6, 18L);
+        game.setBlendSize(3);
+        game.newGame();
+        new HintSolver(game.getNumCells(), 5).solve(game, 5);
+    }
+
+    private static float[] allPairDistances(int[] colors, int target, boolean linear) {
+        float[] lab = new float[6];
+        CieLab.toLab(target, lab, 0);
+        float[] distances = new float[colors.length * (colors.length - 1) / 2];
+        int pair = 0;
+        for (int i = 0; i < colors.length; i++) {
+            for (int j = i + 1; j < colors.length; j++) {
+                CieLab.toLab(ColorUtilities.blend(colors[i], colors[j], linear), lab, 3);
+                distances[pair++] = CieLab.deltaE(lab, 0, lab, 3);
+            }
+        }
+        Arrays.sort(distances);
+        return distances;
+    }
+}
@@ -0,0 +1,97 @@
+package com.dgl114.colormatch;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link Histogram}.
+ */
+public class HistogramTest {
+
+    @Test
+    public void buckets_coverEveryValueWithinAnEighth() {
+        SplittableRandom random = new SplittableRandom(13);
+        for (int i = 0; i < 1_000_000; i++) {
+            long value = random.nextLong(Long.MAX_VALUE) >>> random.nextInt(63);
+            int bucket = Histogram.bucketOf(value);
+            long lower = Histogram.getLowerBound(bucket);
+            long upper = Histogram.getUpperBound(bucket);
+            assertTrue(value + " in [" + lower + ", " + upper + "]", lower <= value && value <= upper);
+            assertTrue(upper - lower <= lower / 8);
+        }
+        assertEquals(Histogram.BUCKET_COUNT - 1, Histogram.bucketOf(Long.MAX_VALUE));
+        for (int bucket = 1; bucket < Histogram.BUCKET_COUNT; bucket++) {
+            assertEquals(Histogram.getUpperBound(bucket - 1) + 1, Histogram.getLowerBound(bucket));
+        }
+    }
+
+    @Test
+    public void percentiles_matchRecordedValues() {
+        Histogram histogram = new Histogram("test");
+        assertEquals(0, histogram.getPercentile(99));
+        for (long value = 1; value <= 10_000; value++) {
+            histogram.record(value * 1000);
+        }
+        assertEquals(10_000, histogram.getCount());
+        assertEquals(10_000_000, histogram.getMax());
+        assertEquals(5_000_500, histogram.getMean(), 1e-6);
+        assertEquals(5_000_000, histogram.getPercentile(50), 5_000_000 / 8);
+        assertEquals(9_900_000, histogram.getPercentile(99), 9_900_000 / 8);
+        assertEquals(10_000_000, histogram.getPercentile(100));
+
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+
+    @Test
+    public void record_isSafeFromManyThreads() throws InterruptedException {
+        final Histogram histogram = new Histogram("test");
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            final long value = 100 * (t + 1);
+            threads[t] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    for (int i = 0; i < 100_000; i++) {
+                        histogram.record(value);
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertEquals(400_000, histogram.getCount());
+        assertEquals(400, histogram.getMax());
+        assertEquals(250, histogram.getMean(), 1e-9);
+    }
+
+    @Test
+    public void readFrom_restoresWhatWriteToWrote() {
+        Histogram histogram = new Histogram("test");
+        SplittableRandom random = new SplittableRandom(5);
+        for (int i = 0; i < 10_000; i++) {
+            histogram.record(random.nextLong(1_000_000));
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(Histogram.SERIALIZED_SIZE);
+        histogram.writeTo(buffer);
+        assertFalse(buffer.hasRemaining());
+        buffer.flip();
+
+        Histogram restored = new Histogram("restored");
+        restored.record(42);
+        restored.readFrom(buffer);
+        assertEquals(histogram.getCount(), restored.getCount());
+        assertEquals(histogram.getMax(), restored.getMax());
+        assertEquals(histogram.getMean(), restored.getMean(), 1e-9);
+        for (int bucket = 0; bucket < Histogram.BUCKET_COUNT; bucket++) {
+            assertEquals(histogram.getBucketCount(bucket), restored.getBucketCount(bucket));
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.dgl114.colormatch;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link LinearLight}. The tables are checked against the sRGB
+ * transfer function in double precision.
+ */
+public class LinearLightTest {
+
+    @Test
+    public void toLinear_matchesReferenceWithinHalfAUnit() {
+        assertEquals(0, LinearLight.toLinear(0));
+        assertEquals(LinearLight.ONE, LinearLight.toLinear(255));
+        for (int value = 0; value < 256; value++) {
+            double expected = LinearLight.ONE * referenceToLinear(value / 255.0);
+            assertEquals("value " + value, expected, LinearLight.toLinear(value), 0.5);
+            if (value > 0) {
+                assertTrue(LinearLight.toLinear(value) > LinearLight.toLinear(value - 1));
+            }
+        }
+    }
+
+    @Test
+    public void toEncoded_isNearestForEveryLinearValue() {
+        for (int linear = 0; linear <= LinearLight.ONE; linear++) {
+            long expected = Math.round(255.0 * referenceToEncoded((double) linear / LinearLight.ONE));
+            assertEquals("linear " + linear, expected, LinearLight.toEncoded(linear));
+        }
+        for (int value = 0; value < 256; value++) {
+            assertEquals(value, LinearLight.toEncoded(LinearLight.toLinear(value)));
+        }
+    }
+
+    @Test
+    public void floorAndCeilEncoded_bracketEveryLinearValue() {
+        for (int linear = -100; linear <= LinearLight.ONE + 100; linear++) {
+            int floor = LinearLight.floorEncoded(linear);
+            int ceil = LinearLight.ceilEncoded(linear);
+            if (floor >= 0) {
+                assertTrue(LinearLight.toLinear(floor) <= linear);
+            }
+            if (floor < 255) {
+                assertTrue(linear < 0 || LinearLight.toLinear(floor + 1) > linear);
+            }
+            if (ceil < 256) {
+                assertTrue(LinearLight.toLinear(ceil) >= linear);
+            }
+            if (ceil > 0) {
+                assertTrue(linear > LinearLight.ONE || LinearLight.toLinear(ceil - 1) < linear);
+            }
+        }
+        assertEquals(-1, LinearLight.floorEncoded(-1));
+        assertEquals(256, LinearLight.ceilEncoded(LinearLight.ONE + 1));
+    }
+
+    static double referenceToLinear(double encoded) {
+        return encoded <= 0.04045 ? encoded / 12.92 : Math.pow((encoded + 0.055) / 1.055, 2.4);
+    }
+
+    static double referenceToEncoded(double linear) {
+        return linear <= 0.0031308 ? linear * 12.92 : 1.055 * Math.pow(linear, 1 / 2.4) - 0.055;
+    }
+}
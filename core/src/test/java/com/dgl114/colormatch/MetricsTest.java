@@ -0,0 +1,82 @@
+package com.dgl114.colormatch;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link Metrics}.
+ */
+public class MetricsTest {
+
+    @Test
+    public void disabled_recordsNothing() {
+        Metrics.setEnabled(false);
+        Metrics.reset();
+        ColorMatchGame game = new ColorMatchGame();
+        for (int round = 0; round < 100; round++) {
+            game.newGame();
+        }
+        assertEquals(0, Metrics.getCounter(Metrics.ROUNDS));
+        assertEquals(0, Metrics.getCounter(Metrics.BLENDS));
+        assertEquals(0, Metrics.getHistogram(Metrics.NEW_GAME).getCount());
+    }
+
+    @Test
+    public void enabled_recordsRoundsBlendsAndLatency() throws Exception {
+        Metrics.reset();
+        Metrics.setEnabled(true);
+        try {
+            ColorMatchGame game = new ColorMatchGame(8, 8);
+            for (int round = 0; round < 100; round++) {
+                game.newGame();
+            }
+            int[] colors = game.getState();
+            ColorUtilities.blend(colors, colors, new int[colors.length], colors.length);
+        }
+        finally {
+            Metrics.setEnabled(false);
+        }
+        assertEquals(100, Metrics.getCounter(Metrics.ROUNDS));
+        assertTrue(Metrics.getCounter(Metrics.BLENDS) >= 100);
+        assertEquals(100, Metrics.getHistogram(Metrics.NEW_GAME).getCount());
+        assertTrue(Metrics.getHistogram(Metrics.NEW_GAME).getPercentile(50) > 0);
+        assertEquals(1, Metrics.getHistogram(Metrics.BULK_BLEND).getCount());
+
+        StringBuilder dump = new StringBuilder();
+        Metrics.dump(dump);
+        assertTrue(dump.toString(), dump.toString().contains("newGame"));
+
+        StringWriter json = new StringWriter();
+        Metrics.writeJson(json);
+        String text = json.toString();
+        assertTrue(text, text.startsWith("{\"counters\":{\"rounds\":100,"));
+        assertTrue(text, text.contains("\"newGame\":{\"count\":100,"));
+        assertTrue(text, text.contains("\"tapToRender\":{\"count\":0,"));
+        assertTrue(text.endsWith("]}}}"));
+        Metrics.reset();
+    }
+
+    @Test
+    public void enabled_countsRoundsThatRanOutOfRerolls() {
+        Metrics.reset();
+        Metrics.setEnabled(true);
+        try {
+            ColorMatchGame game = new ColorMatchGame(4, 4, 7L);
+            game.newGame();
+            assertEquals(0, Metrics.getCounter(Metrics.UNIQUE_GIVE_UPS));
+            //Every pair on the board blends to within this of any target.
+            game.setUniquenessThreshold(500.0f);
+            game.newGame();
+            game.newGame();
+        }
+        finally {
+            Metrics.setEnabled(false);
+        }
+        assertEquals(2, Metrics.getCounter(Metrics.UNIQUE_GIVE_UPS));
+        assertTrue(Metrics.getCounter(Metrics.REROLLS) >= 2 * (8 * 16 + 64));
+        Metrics.reset();
+    }
+}
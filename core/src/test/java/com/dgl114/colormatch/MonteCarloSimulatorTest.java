@@ -0,0 +1,77 @@
+package com.dgl114.colormatch;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link MonteCarloSimulator}.
+ */
+public class MonteCarloSimulatorTest {
+
+    private static final long ROUNDS = 200_000L;
+
+    @Test
+    public void run_talliesEveryRound() {
+        MonteCarloSimulator.Result result = new MonteCarloSimulator(3, 3).run(ROUNDS, 42L);
+        assertEquals(ROUNDS, result.getRounds());
+
+        long cellTotal = 0;
+        for (int row = 0; row < 3; row++) {
+            for (int col = 0; col < 3; col++) {
+                cellTotal += result.getCellCount(row, col);
+            }
+        }
+        assertEquals(2 * ROUNDS, cellTotal);
+
+        long pairTotal = 0;
+        for (int cell1 = 0; cell1 < 9; cell1++) {
+            assertEquals(0, result.getPairCount(cell1, cell1));
+            for (int cell2 = cell1 + 1; cell2 < 9; cell2++) {
+                pairTotal += result.getPairCount(cell1, cell2);
+            }
+        }
+        assertEquals(ROUNDS, pairTotal);
+    }
+
+    @Test
+    public void run_randomGuessWinsOncePerPair() {
+        MonteCarloSimulator.Result result = new MonteCarloSimulator(3, 3).run(ROUNDS, 7L);
+        assertEquals(1.0 / 36, result.getFairWinRate(), 1e-12);
+        assertEquals(result.getFairWinRate(), result.getWinRate(), 0.001);
+    }
+
+    @Test
+    public void run_isReproducibleFromSeed() {
+        MonteCarloSimulator simulator = new MonteCarloSimulator(4, 5);
+        MonteCarloSimulator.Result first = simulator.run(ROUNDS, 114L);
+        MonteCarloSimulator.Result second = simulator.run(ROUNDS, 114L);
+        assertEquals(first.getWins(), second.getWins());
+        for (int row = 0; row < 4; row++) {
+            for (int col = 0; col < 5; col++) {
+                assertEquals(first.getCellCount(row, col), second.getCellCount(row, col));
+            }
+        }
+    }
+
+    @Test
+    public void run_fullRoundsPickTheSameWinningPairs() {
+        MonteCarloSimulator simulator = new MonteCarloSimulator(3, 4);
+        MonteCarloSimulator.Result pairsOnly = simulator.run(20_000, 5L);
+        simulator.setFullRounds(true);
+        MonteCarloSimulator.Result full = simulator.run(20_000, 5L);
+        assertEquals(pairsOnly.getWins(), full.getWins());
+        for (int cell1 = 0; cell1 < 12; cell1++) {
+            for (int cell2 = cell1 + 1; cell2 < 12; cell2++) {
+                assertEquals(pairsOnly.getPairCount(cell1, cell2), full.getPairCount(cell1, cell2));
+            }
+        }
+    }
+
+    @Test
+    public void run_skipsPairTableOnLargeBoards() {
+        MonteCarloSimulator.Result result = new MonteCarloSimulator(32, 32).run(1000, 1L);
+        assertFalse(result.hasPairCounts());
+        assertEquals(1000, result.getRounds());
+    }
+}
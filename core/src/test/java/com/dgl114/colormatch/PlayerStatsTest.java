@@ -0,0 +1,122 @@
+package com.dgl114.colormatch;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link PlayerStats} and {@link PlayerStatsStore}.
+ */
+public class PlayerStatsTest {
+
+    @Rule
+    public TemporaryFolder mFolder = new TemporaryFolder();
+
+    @Test
+    public void levelOf_roundsToTheNearestQuarter() {
+        assertEquals(0, PlayerStats.levelOf(0.0f));
+        assertEquals(0, PlayerStats.levelOf(0.1f));
+        assertEquals(1, PlayerStats.levelOf(0.2f));
+        assertEquals(2, PlayerStats.levelOf(0.5f));
+        assertEquals(4, PlayerStats.levelOf(1.0f));
+    }
+
+    @Test
+    public void record_countsRoundsPerLevelAndOverall() {
+        PlayerStats stats = new PlayerStats();
+        stats.recordSolved(0.0f, 4000, 1);
+        stats.recordSolved(1.0f, 9000, 3);
+        stats.recordUnsolved(1.0f, 2);
+
+        assertEquals(1, stats.getRoundCount(0));
+        assertEquals(1, stats.getSolvedCount(0));
+        assertEquals(2, stats.getRoundCount(4));
+        assertEquals(1, stats.getSolvedCount(4));
+        assertEquals(0, stats.getRoundCount(2));
+        assertEquals(3, stats.getRoundCount(PlayerStats.ALL_LEVELS));
+        assertEquals(2, stats.getSolvedCount(PlayerStats.ALL_LEVELS));
+        assertEquals(2, stats.getSolveTimes(PlayerStats.ALL_LEVELS).getCount());
+        assertEquals(1, stats.getSolveTimes(4).getCount());
+        assertEquals(3, stats.getAttempts(PlayerStats.ALL_LEVELS).getCount());
+        assertEquals(9000, stats.getSolveTimes(PlayerStats.ALL_LEVELS).getMax());
+    }
+
+    @Test
+    public void solveTimes_percentilesAreWithinAnEighth() {
+        PlayerStats stats = new PlayerStats();
+        for (long millis = 1; millis <= 100_000; millis++) {
+            stats.recordSolved(0.5f, millis, 1);
+        }
+        Histogram times = stats.getSolveTimes(PlayerStats.ALL_LEVELS);
+        assertEquals(50_000, times.getPercentile(50), 50_000 / 8);
+        assertEquals(95_000, times.getPercentile(95), 95_000 / 8);
+    }
+
+    @Test
+    public void store_savesAndLoadsInAFixedSize() throws Exception {
+        File file = new File(mFolder.getRoot(), "player.stats");
+        PlayerStatsStore store = new PlayerStatsStore(file);
+        PlayerStats stats = new PlayerStats();
+        SplittableRandom random = new SplittableRandom(3);
+        for (int round = 0; round < 10_000; round++) {
+            float difficulty = random.nextInt(101) / 100.0f;
+            if (random.nextInt(4) == 0) {
+                stats.recordUnsolved(difficulty, random.nextInt(5));
+            }
+            else {
+                stats.recordSolved(difficulty, random.nextLong(60_000), 1 + random.nextInt(5));
+            }
+        }
+        store.save(stats);
+        assertEquals(PlayerStatsStore.SIZE, file.length());
+
+        PlayerStats loaded = new PlayerStats();
+        loaded.recordSolved(0, 1, 1);
+        assertTrue(new PlayerStatsStore(file).load(loaded));
+        for (int level = 0; level <= PlayerStats.ALL_LEVELS; level++) {
+            assertEquals(stats.getRoundCount(level), loaded.getRoundCount(level));
+            assertEquals(stats.getSolvedCount(level), loaded.getSolvedCount(level));
+            assertEquals(stats.getSolveTimes(level).getPercentile(50), loaded.getSolveTimes(level).getPercentile(50));
+            assertEquals(stats.getSolveTimes(level).getPercentile(95), loaded.getSolveTimes(level).getPercentile(95));
+            assertEquals(stats.getAttempts(level).getMean(), loaded.getAttempts(level).getMean(), 1e-9);
+        }
+
+        stats.recordSolved(0.5f, 100, 1);
+        store.save(stats);
+        assertEquals(PlayerStatsStore.SIZE, file.length());
+
+        //Stats encoded before more rounds were recorded save as they were when encoded.
+        ByteBuffer encoded = ByteBuffer.allocate(PlayerStatsStore.SIZE);
+        PlayerStatsStore.encode(stats, encoded);
+        encoded.flip();
+        stats.recordSolved(0.5f, 200, 1);
+        store.save(encoded);
+        assertTrue(store.load(loaded));
+        assertEquals(stats.getRoundCount(PlayerStats.ALL_LEVELS) - 1, loaded.getRoundCount(PlayerStats.ALL_LEVELS));
+    }
+
+    @Test
+    public void load_resetsWhenTheFileIsMissingOrCutShort() throws Exception {
+        File file = new File(mFolder.getRoot(), "player.stats");
+        PlayerStatsStore store = new PlayerStatsStore(file);
+        PlayerStats stats = new PlayerStats();
+        stats.recordSolved(0, 1000, 1);
+        assertFalse(store.load(stats));
+        assertEquals(0, stats.getRoundCount(PlayerStats.ALL_LEVELS));
+
+        stats.recordSolved(0, 1000, 1);
+        store.save(stats);
+        try (RandomAccessFile out = new RandomAccessFile(file, "rw")) {
+            out.setLength(PlayerStatsStore.SIZE - 1);
+        }
+        assertFalse(store.load(stats));
+        assertEquals(0, stats.getRoundCount(PlayerStats.ALL_LEVELS));
+    }
+}
@@ -0,0 +1,132 @@
+package com.dgl114.colormatch;
+
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link RoundProducer}.
+ */
+public class RoundProducerTest {
+
+    private static final int ROUNDS = 20_000;
+
+    @Test
+    public void takeRound_returnsRoundsInGeneratedOrder() {
+        RoundProducer producer = new RoundProducer(4, 4, 8, new SplittableRandom(114));
+        ColorMatchGame reference = new ColorMatchGame(4, 4, new SplittableRandom(114));
+        ColorMatchGame game = new ColorMatchGame(4, 4);
+        producer.start();
+        try {
+            for (int round = 0; round < ROUNDS; round++) {
+                while (!producer.takeRound(game)) {
+                    Thread.yield();
+                }
+                reference.newGame();
+                assertArrayEquals(reference.getState(), game.getState());
+                assertEquals(reference.getWinRow1(), game.getWinRow1());
+                assertEquals(reference.getWinCol1(), game.getWinCol1());
+                assertEquals(reference.getWinRow2(), game.getWinRow2());
+                assertEquals(reference.getWinCol2(), game.getWinCol2());
+                assertEquals(reference.getBlendedColor(), game.getBlendedColor());
+                assertEquals(reference.getRoundKey(), game.getRoundKey());
+                assertEquals(0, game.getSelectedCount());
+            }
+        }
+        finally {
+            producer.stop();
+        }
+    }
+
+    @Test
+    public void takeRound_honoursTheGamesSettings() {
+        RoundProducer producer = new RoundProducer(6, 6, 4);
+        ColorMatchGame game = new ColorMatchGame(6, 6, 6L);
+        producer.start();
+        try {
+            //Let the ring fill with rounds made on the default settings first.
+            waitForRounds(producer, 4);
+            game.setBlendSize(4);
+            game.setDifficulty(1.0f);
+            game.setLinearBlend(true);
+            game.setUniquenessThreshold(6.0f);
+            for (int round = 0; round < 20; round++) {
+                while (!producer.takeRound(game)) {
+                    Thread.yield();
+                }
+                assertEquals(4, game.getWinCount());
+                //The same round key on a game with the same settings gives the same board.
+                ColorMatchGame reference = new ColorMatchGame(6, 6, 6L);
+                reference.setBlendSize(4);
+                reference.setDifficulty(1.0f);
+                reference.setLinearBlend(true);
+                reference.setUniquenessThreshold(6.0f);
+                reference.newGame(game.getRoundKey());
+                assertArrayEquals(reference.getState(), game.getState());
+                assertEquals(reference.getBlendedColor(), game.getBlendedColor());
+                for (int i = 0; i < 4; i++) {
+                    assertEquals(reference.getWinIndex(i), game.getWinIndex(i));
+                }
+            }
+        }
+        finally {
+            producer.stop();
+        }
+    }
+
+    @Test
+    public void producer_fillsRingAndStops() throws InterruptedException {
+        RoundProducer producer = new RoundProducer(3, 3, 4);
+        assertEquals(0, producer.getReadyCount());
+        assertFalse(producer.takeRound(new ColorMatchGame()));
+
+        producer.start();
+        waitForRounds(producer, 4);
+        Thread.sleep(20);
+        assertEquals(4, producer.getReadyCount());
+
+        producer.stop();
+        assertTrue(producer.takeRound(new ColorMatchGame()));
+        assertEquals(3, producer.getReadyCount());
+    }
+
+    @Test
+    public void takeRound_dropsRoundsForAnotherBoardSize() {
+        RoundProducer producer = new RoundProducer(4, 4, 4);
+        producer.start();
+        waitForRounds(producer, 4);
+        producer.stop();
+        ColorMatchGame game = new ColorMatchGame(4, 5, 9L);
+        game.newGame();
+        int[] before = game.getState();
+        long roundKey = game.getRoundKey();
+
+        assertFalse(producer.takeRound(game));
+        assertArrayEquals(before, game.getState());
+        assertEquals(roundKey, game.getRoundKey());
+        assertEquals(3, producer.getReadyCount());
+        assertTrue(producer.takeRound(new ColorMatchGame(4, 4)));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void start_afterStopIsRejected() {
+        RoundProducer producer = new RoundProducer(3, 3);
+        producer.start();
+        producer.stop();
+        producer.start();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_rejectsNonPowerOfTwoCapacity() {
+        new RoundProducer(3, 3, 3);
+    }
+
+    private static void waitForRounds(RoundProducer producer, int rounds) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (producer.getReadyCount() < rounds && System.currentTimeMillis() < deadline) {
+            Thread.yield();
+        }
+    }
+}
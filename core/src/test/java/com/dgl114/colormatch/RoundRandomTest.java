@@ -0,0 +1,77 @@
+package com.dgl114.colormatch;
+
+import org.junit.Test;
+
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link RoundRandom}.
+ */
+public class RoundRandomTest {
+
+    @Test
+    public void nextLong_matchesSplittableRandom() {
+        RoundRandom random = new RoundRandom();
+        for (long key : new long[] {0L, 1L, -1L, 114L, 0x123456789ABCDEFL}) {
+            random.reset(key);
+            SplittableRandom reference = new SplittableRandom(key);
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(reference.nextLong(), random.nextLong());
+            }
+        }
+    }
+
+    @Test
+    public void roundKey_jumpsStraightToAnyRound() {
+        SplittableRandom reference = new SplittableRandom(26);
+        for (long round = 0; round < 1000; round++) {
+            assertEquals(reference.nextLong(), RoundRandom.roundKey(26, round));
+        }
+        SplittableRandom far = new SplittableRandom(26 + 1_000_000_000L * RoundRandom.GOLDEN_GAMMA);
+        assertEquals(far.nextLong(), RoundRandom.roundKey(26, 1_000_000_000L));
+    }
+
+    @Test
+    public void reset_replaysTheSameNumbers() {
+        RoundRandom random = new RoundRandom();
+        random.reset(7);
+        long first = random.nextLong();
+        int second = random.nextInt(1000);
+        random.reset(7);
+        assertEquals(7, random.getKey());
+        assertEquals(first, random.nextLong());
+        assertEquals(second, random.nextInt(1000));
+    }
+
+    @Test
+    public void nextInt_isUniformInRange() {
+        RoundRandom random = new RoundRandom();
+        random.reset(3);
+        int bound = 9;
+        int draws = 900_000;
+        long[] counts = new long[bound];
+        for (int i = 0; i < draws; i++) {
+            int value = random.nextInt(bound);
+            assertTrue(value >= 0 && value < bound);
+            counts[value]++;
+        }
+        double expected = (double) draws / bound;
+        double chiSquare = 0;
+        for (long count : counts) {
+            chiSquare += (count - expected) * (count - expected) / expected;
+        }
+        //8 degrees of freedom; 30 is far in the tail for a uniform generator.
+        assertTrue("chi-square " + chiSquare, chiSquare < 30);
+
+        assertEquals(0, random.nextInt(1));
+        int large = random.nextInt(Integer.MAX_VALUE);
+        assertTrue(large >= 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nextInt_rejectsNonPositiveBound() {
+        new RoundRandom().nextInt(0);
+    }
+}
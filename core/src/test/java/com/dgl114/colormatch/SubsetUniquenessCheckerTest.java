@@ -0,0 +1,143 @@
+package com.dgl114.colormatch;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link SubsetUniquenessChecker}. The meet-in-the-middle search is
+ * checked against trying every subset, with both ways of blending.
+ */
+public class SubsetUniquenessCheckerTest {
+
+    @Test
+    public void findRivals_matchesEverySubsetScan() {
+        SplittableRandom random = new SplittableRandom(18);
+        SubsetUniquenessChecker checker = new SubsetUniquenessChecker();
+        int[] colors = new int[30];
+        int[] winCells = new int[SubsetUniquenessChecker.MAX_SUBSET_SIZE];
+        int[] rivals = new int[1 << 16];
+        float[] lab = new float[6];
+        int total = 0;
+
+        for (int board = 0; board < 80; board++) {
+            boolean linear = board % 2 == 1;
+            int count = random.nextInt(9, colors.length + 1);
+            int size = random.nextInt(3, count >= 20 ? 5 : SubsetUniquenessChecker.MAX_SUBSET_SIZE + 1);
+            float threshold = random.nextInt(5, 16);
+            for (int i = 0; i < count; i++) {
+                colors[i] = 0xFF000000 | random.nextInt(0x1000000);
+            }
+            for (int i = 0; i < size; i++) {
+                winCells[i] = i * count / size;
+            }
+            int target = ColorUtilities.blend(colors, winCells, size, linear);
+            checker.setThreshold(threshold);
+            checker.setLinear(linear);
+            checker.reset(colors, count, winCells, 0, size, target);
+
+            int found = checker.findRivals(rivals, rivals.length / size);
+            Set<String> fast = new HashSet<>();
+            for (int rival = 0; rival < found; rival++) {
+                int[] cells = Arrays.copyOfRange(rivals, rival * size, (rival + 1) * size);
+                for (int i = 1; i < size; i++) {
+                    assertTrue(cells[i - 1] < cells[i]);
+                }
+                assertTrue("listed twice: " + Arrays.toString(cells), fast.add(Arrays.toString(cells)));
+            }
+
+            Set<String> slow = new HashSet<>();
+            CieLab.toLab(target, lab, 0);
+            int[] cells = new int[size];
+            for (int i = 0; i < size; i++) {
+                cells[i] = i;
+            }
+            do {
+                CieLab.toLab(ColorUtilities.blend(colors, cells, size, linear), lab, 3);
+                if (!isWinning(cells, winCells, size) && CieLab.deltaE(lab, 0, lab, 3) < threshold) {
+                    slow.add(Arrays.toString(cells));
+                }
+            } while (next(cells, size, count));
+            assertEquals("linear " + linear, slow, fast);
+            total += found;
+        }
+        //Make sure the boards were crowded enough to have rivals to find.
+        assertTrue("only " + total + " rivals", total > 100);
+    }
+
+    @Test
+    public void findRivals_stopsAtMaxRivals() {
+        int[] colors = new int[12];
+        Arrays.fill(colors, 0xFF808080);
+        int[] winCells = {0, 1, 2, 3};
+        SubsetUniquenessChecker checker = new SubsetUniquenessChecker();
+        checker.reset(colors, colors.length, winCells, 0, 4, 0xFF808080);
+        int[] rivals = new int[4 * 5];
+        assertEquals(5, checker.findRivals(rivals, 5));
+        assertTrue(checker.isWinningCell(3));
+        assertFalse(checker.isWinningCell(4));
+    }
+
+    @Test
+    public void canCheck_boundsTheHalfLists() {
+        assertTrue(SubsetUniquenessChecker.canCheck(64, 4));
+        assertTrue(SubsetUniquenessChecker.canCheck(36, 6));
+        assertFalse(SubsetUniquenessChecker.canCheck(64, 6));
+        assertFalse(SubsetUniquenessChecker.canCheck(256, 3));
+        assertFalse(SubsetUniquenessChecker.canCheck(9, 7));
+        assertFalse(SubsetUniquenessChecker.canCheck(3, 4));
+        assertEquals(635_376, SubsetUniquenessChecker.combinations(64, 4));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void reset_rejectsBoardItCantCheck() {
+        new SubsetUniquenessChecker().reset(new int[256], 256, new int[6], 0, 6, 0xFF000000);
+    }
+
+    @Test
+    public void newGame_leavesNoRivalsOnAFourCellEightByEightBoard() {
+        ColorMatchGame game = new ColorMatchGame(8, 8, 64L);
+        game.setBlendSize(4);
+        SubsetUniquenessChecker checker = new SubsetUniquenessChecker();
+        checker.setThreshold(game.getUniquenessThreshold());
+        int[] winCells = new int[4];
+        int[] rivals = new int[4];
+        for (int round = 0; round < 20; round++) {
+            game.newGame();
+            for (int i = 0; i < 4; i++) {
+                winCells[i] = game.getWinIndex(i);
+            }
+            checker.reset(game.getState(), game.getNumCells(), winCells, 0, 4, game.getBlendedColor());
+            assertEquals("round " + round, 0, checker.findRivals(rivals, 1));
+        }
+    }
+
+    private static boolean isWinning(int[] cells, int[] winCells, int size) {
+        for (int i = 0; i < size; i++) {
+            if (cells[i] != winCells[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean next(int[] cells, int size, int count) {
+        int i = size - 1;
+        while (i >= 0 && cells[i] == count - size + i) {
+            i--;
+        }
+        if (i < 0) {
+            return false;
+        }
+        cells[i]++;
+        for (int j = i + 1; j < size; j++) {
+            cells[j] = cells[j - 1] + 1;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,157 @@
+package com.dgl114.colormatch;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local unit tests for {@link TimeAttack}, including that a time attack driven the way
+ * MainActivity drives it allocates nothing per frame.
+ */
+public class TimeAttackTest {
+
+    private static final long SECOND = 1_000_000_000L;
+    private static final long FRAME_120_FPS = SECOND / 120;
+
+    @Test
+    public void onFrame_countsDownInTenthsAndEnds() {
+        TimeAttack attack = new TimeAttack("Solved: ");
+        long start = 5 * SECOND;
+        attack.start(start, TimeAttack.DEFAULT_DURATION_NANOS);
+
+        assertTrue(attack.onFrame(start));
+        assertText("1:00.0  Solved: 0", attack);
+        assertFalse(attack.onFrame(start + SECOND / 20));
+        assertTrue(attack.onFrame(start + SECOND / 20 * 3));
+        assertText("0:59.9  Solved: 0", attack);
+        assertTrue(attack.onFrame(start + 50 * SECOND + SECOND / 10));
+        assertText("0:09.9  Solved: 0", attack);
+        assertTrue(attack.onFrame(start + 60 * SECOND - 1));
+        assertText("0:00.1  Solved: 0", attack);
+        assertTrue(attack.isRunning());
+
+        assertTrue(attack.onFrame(start + 61 * SECOND));
+        assertText("0:00.0  Solved: 0", attack);
+        assertFalse(attack.isRunning());
+        assertEquals(0, attack.getRemainingNanos());
+        assertFalse(attack.onFrame(start + 62 * SECOND));
+    }
+
+    @Test
+    public void recordSolved_showsOnTheNextFrameUntilTimeIsUp() {
+        TimeAttack attack = new TimeAttack("Solved: ");
+        attack.start(0, 2 * SECOND);
+        attack.onFrame(0);
+        for (int i = 0; i < 123; i++) {
+            attack.recordSolved();
+        }
+        assertTrue(attack.onFrame(1));
+        assertText("0:02.0  Solved: 123", attack);
+
+        attack.onFrame(2 * SECOND);
+        attack.recordSolved();
+        assertEquals(123, attack.getSolved());
+        assertText("0:00.0  Solved: 123", attack);
+    }
+
+    @Test
+    public void resume_carriesOnWhereItWas() {
+        TimeAttack attack = new TimeAttack("");
+        attack.resume(100, TimeAttack.MAX_DURATION_NANOS, 7);
+        attack.onFrame(100);
+        assertText("10:00.0  7", attack);
+        attack.onFrame(100 + TimeAttack.MAX_DURATION_NANOS - 61 * SECOND);
+        assertText("1:01.0  7", attack);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void resume_rejectsNoTimeLeft() {
+        new TimeAttack("").resume(0, 0, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void resume_rejectsTooMuchTime() {
+        new TimeAttack("").resume(0, TimeAttack.MAX_DURATION_NANOS + 1, 0);
+    }
+
+    //****************************************************************************************
+    //Plays whole time attacks at 120 fps the way MainActivity does: every frame goes through
+    //onFrame() and copies the text when it changed, and every 90th frame a round is solved and
+    //the next one taken from a RoundProducer. After a warm up attack, the frames (round
+    //changes included) must allocate nothing. What a frame costs is measured by
+    //TimeAttackBenchmark.
+    //****************************************************************************************
+    @Test
+    public void frames_allocateNothing() {
+        ColorMatchGame game = new ColorMatchGame(ColorMatchGame.NUM_ROWS, ColorMatchGame.NUM_COLS, 22L);
+        RoundProducer producer = new RoundProducer(game.getNumRows(), game.getNumCols());
+        producer.start();
+        TimeAttack attack = new TimeAttack("Solved: ");
+        char[] shown = new char[64];
+        try {
+            playAttack(game, producer, attack, shown);
+
+            com.sun.management.ThreadMXBean threads =
+                    (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+            long threadId = Thread.currentThread().getId();
+            long before = threads.getThreadAllocatedBytes(threadId);
+            int frames = playAttack(game, producer, attack, shown);
+            long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+            assertTrue(frames + " frames", Math.abs(frames - 60 * 120) <= 2);
+            assertEquals((frames - 1) / 90 + 1, attack.getSolved());
+            assertText("0:00.0  Solved: " + attack.getSolved(), attack);
+            //Any allocation per frame would cost at least an object header (16 bytes) a frame.
+            assertTrue("allocated " + allocated + " bytes over " + frames + " frames", allocated < frames);
+        }
+        finally {
+            producer.stop();
+        }
+    }
+
+    //****************************************************************************************
+    //playAttack() plays a one minute time attack, one simulated frame at a time, and returns
+    //the number of frames.
+    //****************************************************************************************
+    private static int playAttack(ColorMatchGame game, RoundProducer producer, TimeAttack attack, char[] shown) {
+        long frameTime = 1;
+        attack.start(frameTime, TimeAttack.DEFAULT_DURATION_NANOS);
+        nextRound(game, producer);
+        int frames = 0;
+        int checksum = 0;
+        while (attack.isRunning()) {
+            if (frames % 90 == 0) {
+                for (int i = 0; i < game.getWinCount(); i++) {
+                    int cell = game.getWinIndex(i);
+                    game.toggleButtonSelection(cell / game.getNumCols(), cell % game.getNumCols());
+                }
+                if (game.isGameOver()) {
+                    attack.recordSolved();
+                    nextRound(game, producer);
+                }
+            }
+            if (attack.onFrame(frameTime)) {
+                System.arraycopy(attack.getText(), 0, shown, 0, attack.getTextLength());
+                checksum += shown[attack.getTextLength() - 1];
+            }
+            frames++;
+            frameTime += FRAME_120_FPS;
+        }
+        assertTrue(checksum > 0);
+        return frames;
+    }
+
+    private static void nextRound(ColorMatchGame game, RoundProducer producer) {
+        if (!producer.takeRound(game)) {
+            game.newGame();
+        }
+        game.resetSelection();
+        game.clearChanges();
+    }
+
+    private static void assertText(String expected, TimeAttack attack) {
+        assertEquals(expected, new String(attack.getText(), 0, attack.getTextLength()));
+    }
+}
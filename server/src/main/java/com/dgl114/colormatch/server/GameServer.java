@@ -0,0 +1,347 @@
+package com.dgl114.colormatch.server;
+
+import com.dgl114.colormatch.ColorMatchGame;
+import com.dgl114.colormatch.Score;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+//****************************************************************************************
+//GameServer.java           Author: zakacat
+//
+//This is a headless server that hosts the Color Match rules for many players at once over
+//HTTP. Each player gets a GameSession (their own board, selection and score) and plays it
+//with small JSON requests:
+// - POST   /sessions?rows=3&cols=3        Start a session and its first round; an optional
+//                                         difficulty=0..100 sets how close the other colors
+//                                         are to the answer, and blend=2..6 how many cells
+//                                         the target is a blend of (5 and 6 only on boards
+//                                         of up to 37 cells, 3 and 4 up to 128 cells)
+// - GET    /sessions/{id}                 The board, target color, blend size, selection
+//                                         and score
+// - POST   /sessions/{id}/toggle?row=&col= Toggle a cell (at most the blend size can be
+//                                         selected)
+// - POST   /sessions/{id}/check           Check the selection and add to the score
+// - POST   /sessions/{id}/round           Start a new round
+// - DELETE /sessions/{id}                 End the session
+//Colors are sent as 0xRRGGBB ints. The winning cells are never sent, so a client can't
+//cheat.
+//Requests run on virtual threads where the JVM has them (see RequestExecutors). Sessions
+//are found without locking (see SessionStore) and only a request for the same session
+//waits on another. Idle sessions are swept every minute. A request that fails with an
+//unexpected error is logged and answered with a plain 500, so no internals reach clients.
+//Run with: ./gradlew :server:run --args="8080"
+//****************************************************************************************
+
+public class GameServer {
+
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_MAX_SESSIONS = 100_000;
+    //Keeps the memory of one session (and of one response) small.
+    public static final int MAX_BOARD_SIZE = 16;
+    private static final long IDLE_TIMEOUT_MINUTES = 10;
+    private static final Logger LOG = Logger.getLogger(GameServer.class.getName());
+    private final HttpServer mServer;
+    private final ExecutorService mExecutor;
+    private final ScheduledExecutorService mSweeper;
+    private final SessionStore mSessions;
+
+    public GameServer(InetSocketAddress address, SessionStore sessions) throws IOException {
+        mSessions = sessions;
+        mExecutor = RequestExecutors.newRequestExecutor("GameServer");
+        mSweeper = Executors.newSingleThreadScheduledExecutor();
+        mServer = HttpServer.create(address, 0);
+        mServer.setExecutor(mExecutor);
+        mServer.createContext("/sessions", new SessionHandler());
+    }
+
+    public void start() {
+        mServer.start();
+        mSweeper.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                mSessions.evictIdle(System.nanoTime());
+            }
+        }, 1, 1, TimeUnit.MINUTES);
+    }
+
+    public void stop() {
+        mServer.stop(0);
+        mSweeper.shutdownNow();
+        mExecutor.shutdownNow();
+    }
+
+    public int getPort() {
+        return mServer.getAddress().getPort();
+    }
+
+    public ExecutorService getExecutor() {
+        return mExecutor;
+    }
+
+    private class SessionHandler implements HttpHandler {
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                drain(exchange.getRequestBody());
+                route(exchange);
+            }
+            catch (IllegalArgumentException e) {
+                send(exchange, 400, error(e.getMessage()));
+            }
+            catch (RuntimeException e) {
+                LOG.log(Level.SEVERE, "Request failed: " + exchange.getRequestMethod() + " "
+                        + exchange.getRequestURI(), e);
+                send(exchange, 500, error("Internal server error"));
+            }
+            finally {
+                exchange.close();
+            }
+        }
+    }
+
+    //****************************************************************************************
+    //route() splits /sessions/{id}/{action} and hands the request to the right method.
+    //****************************************************************************************
+    private void route(HttpExchange exchange) throws IOException {
+        String method = exchange.getRequestMethod();
+        String[] parts = exchange.getRequestURI().getPath().split("/");
+        String query = exchange.getRequestURI().getRawQuery();
+
+        if (parts.length == 2) {
+            if (!"POST".equals(method)) {
+                send(exchange, 405, error("Use POST to start a session"));
+                return;
+            }
+            int rows = getParameter(query, "rows", ColorMatchGame.NUM_ROWS);
+            int cols = getParameter(query, "cols", ColorMatchGame.NUM_COLS);
+            if (rows > MAX_BOARD_SIZE || cols > MAX_BOARD_SIZE) {
+                throw new IllegalArgumentException("Board can be at most " + MAX_BOARD_SIZE + "x" + MAX_BOARD_SIZE);
+            }
+            int difficulty = getParameter(query, "difficulty", 0);
+            if (difficulty < 0 || difficulty > 100) {
+                throw new IllegalArgumentException("Difficulty must be between 0 and 100: " + difficulty);
+            }
+            ColorMatchGame.checkBoardSize(rows, cols);
+            int maxBlend = ColorMatchGame.getMaxBlendSize(rows * cols);
+            int blend = getParameter(query, "blend", ColorMatchGame.MIN_BLEND_SIZE);
+            if (blend < ColorMatchGame.MIN_BLEND_SIZE || blend > maxBlend) {
+                throw new IllegalArgumentException("Blend must be between " + ColorMatchGame.MIN_BLEND_SIZE
+                        + " and " + maxBlend + " on a " + rows + "x" + cols + " board: " + blend);
+            }
+            GameSession session = mSessions.create(rows, cols, difficulty / 100.0f, blend);
+            if (session == null) {
+                send(exchange, 503, error("Too many sessions"));
+                return;
+            }
+            sendState(exchange, 201, session);
+            return;
+        }
+
+        GameSession session = parts.length >= 3 ? mSessions.get(parseId(parts[2])) : null;
+        if (session == null || parts.length > 4) {
+            send(exchange, 404, error("No such session"));
+            return;
+        }
+        String action = parts.length == 4 ? parts[3] : "";
+        if (action.isEmpty() && "GET".equals(method)) {
+            sendState(exchange, 200, session);
+        }
+        else if (action.isEmpty() && "DELETE".equals(method)) {
+            mSessions.remove(session.getId());
+            send(exchange, 204, null);
+        }
+        else if (!"POST".equals(method)) {
+            send(exchange, 405, error("Use POST for " + action));
+        }
+        else if (action.equals("toggle")) {
+            toggle(exchange, session, getParameter(query, "row", -1), getParameter(query, "col", -1));
+        }
+        else if (action.equals("check")) {
+            check(exchange, session);
+        }
+        else if (action.equals("round")) {
+            session.lock();
+            try {
+                session.getGame().newGame();
+                session.getGame().resetSelection();
+            }
+            finally {
+                session.unlock();
+            }
+            sendState(exchange, 200, session);
+        }
+        else {
+            send(exchange, 404, error("No such action: " + action));
+        }
+    }
+
+    private void toggle(HttpExchange exchange, GameSession session, int row, int col) throws IOException {
+        String body;
+        session.lock();
+        try {
+            ColorMatchGame game = session.getGame();
+            if (row < 0 || row >= game.getNumRows() || col < 0 || col >= game.getNumCols()) {
+                throw new IllegalArgumentException("No such cell: " + row + ", " + col);
+            }
+            game.toggleButtonSelection(row, col);
+            body = "{\"selected\":" + game.isButtonSelected(row, col)
+                    + ",\"selectedCount\":" + game.getSelectedCount() + "}";
+        }
+        finally {
+            session.unlock();
+        }
+        send(exchange, 200, body);
+    }
+
+    private void check(HttpExchange exchange, GameSession session) throws IOException {
+        String body;
+        session.lock();
+        try {
+            boolean correct = session.getGame().isGameOver();
+            Score score = session.getScore();
+            if (correct) {
+                score.recordCorrect();
+            }
+            else {
+                score.recordFailure();
+            }
+            body = "{\"correct\":" + correct + ",\"score\":" + scoreJson(score) + "}";
+        }
+        finally {
+            session.unlock();
+        }
+        send(exchange, 200, body);
+    }
+
+    private void sendState(HttpExchange exchange, int status, GameSession session) throws IOException {
+        String body;
+        session.lock();
+        try {
+            body = stateJson(session);
+        }
+        finally {
+            session.unlock();
+        }
+        send(exchange, status, body);
+    }
+
+    //****************************************************************************************
+    //stateJson() describes everything a player can see: the board, the target color and how
+    //many cells it blends, which cells are selected and the score.
+    //****************************************************************************************
+    static String stateJson(GameSession session) {
+        ColorMatchGame game = session.getGame();
+        StringBuilder json = new StringBuilder(64 + 12 * game.getNumCells());
+        json.append("{\"id\":\"").append(session.getId()).append('"');
+        json.append(",\"rows\":").append(game.getNumRows());
+        json.append(",\"cols\":").append(game.getNumCols());
+        json.append(",\"target\":").append(game.getBlendedColor() & 0xFFFFFF);
+        json.append(",\"blend\":").append(game.getWinCount());
+        json.append(",\"colors\":[");
+        for (int row = 0; row < game.getNumRows(); row++) {
+            for (int col = 0; col < game.getNumCols(); col++) {
+                if (row > 0 || col > 0) {
+                    json.append(',');
+                }
+                json.append(game.getColor(row, col) & 0xFFFFFF);
+            }
+        }
+        json.append("],\"selected\":[");
+        boolean first = true;
+        for (int row = 0; row < game.getNumRows(); row++) {
+            for (int col = 0; col < game.getNumCols(); col++) {
+                if (game.isButtonSelected(row, col)) {
+                    json.append(first ? "" : ",").append(row * game.getNumCols() + col);
+                    first = false;
+                }
+            }
+        }
+        json.append("],\"score\":").append(scoreJson(session.getScore())).append('}');
+        return json.toString();
+    }
+
+    private static String scoreJson(Score score) {
+        return "{\"correct\":" + score.getCorrect() + ",\"failure\":" + score.getFailure() + "}";
+    }
+
+    private static String error(String message) {
+        return "{\"error\":\"" + String.valueOf(message).replace("\\", "\\\\").replace("\"", "\\\"") + "\"}";
+    }
+
+    private static long parseId(String id) {
+        try {
+            return Long.parseLong(id);
+        }
+        catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    //****************************************************************************************
+    //getParameter() reads an int from a query string like "row=1&col=2".
+    //****************************************************************************************
+    static int getParameter(String query, String name, int defaultValue) {
+        if (query == null) {
+            return defaultValue;
+        }
+        for (String pair : query.split("&")) {
+            int equals = pair.indexOf('=');
+            if (equals > 0 && pair.substring(0, equals).equals(name)) {
+                try {
+                    return Integer.parseInt(pair.substring(equals + 1));
+                }
+                catch (NumberFormatException e) {
+                    throw new IllegalArgumentException("Not a number: " + pair);
+                }
+            }
+        }
+        return defaultValue;
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        byte[] buffer = new byte[256];
+        while (in.read(buffer) >= 0) {
+            //requests have no body; anything sent is ignored
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    //****************************************************************************************
+    //main() takes the port and, optionally, the maximum number of sessions.
+    //****************************************************************************************
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        int maxSessions = args.length > 1 ? Integer.parseInt(args[1]) : DEFAULT_MAX_SESSIONS;
+        GameServer server = new GameServer(new InetSocketAddress(port),
+                new SessionStore(maxSessions, IDLE_TIMEOUT_MINUTES, TimeUnit.MINUTES));
+        server.start();
+        System.out.println("Color Match server on port " + server.getPort() + " ("
+                + (RequestExecutors.isVirtual(server.getExecutor()) ? "virtual" : "platform") + " threads)");
+    }
+}
@@ -0,0 +1,66 @@
+package com.dgl114.colormatch.server;
+
+import com.dgl114.colormatch.ColorMatchGame;
+import com.dgl114.colormatch.Score;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+//****************************************************************************************
+//GameSession.java          Author: zakacat
+//
+//This is one player's game on the server: their own ColorMatchGame (board, selection and
+//winning cells) and Score, which on the phone live in MainActivity. Sessions share
+//nothing, so requests for different sessions never wait on each other; requests for the
+//same session take turns on the session's own lock (a ReentrantLock rather than
+//synchronized, so a virtual thread waiting on it doesn't hold on to its carrier thread).
+//A session's memory is fixed when it is created: the board arrays are sized once and
+//nothing grows as rounds are played.
+//****************************************************************************************
+
+public class GameSession {
+
+    private final long mId;
+    private final ColorMatchGame mGame;
+    private final Score mScore = new Score();
+    private final ReentrantLock mLock = new ReentrantLock();
+    private volatile long mLastAccessNanos;
+
+    GameSession(long id, int numRows, int numCols, float difficulty, int blendSize) {
+        mId = id;
+        mGame = new ColorMatchGame(numRows, numCols);
+        mGame.setDifficulty(difficulty);
+        mGame.setBlendSize(blendSize);
+        mGame.newGame();
+        mGame.resetSelection();
+        mLastAccessNanos = System.nanoTime();
+    }
+
+    //****************************************************************************************
+    //lock() must be held while the game or score is read or changed. It also marks the
+    //session as used, for SessionStore.evictIdle().
+    //****************************************************************************************
+    public void lock() {
+        mLock.lock();
+        mLastAccessNanos = System.nanoTime();
+    }
+
+    public void unlock() {
+        mLock.unlock();
+    }
+
+    public long getId() {
+        return mId;
+    }
+
+    public ColorMatchGame getGame() {
+        return mGame;
+    }
+
+    public Score getScore() {
+        return mScore;
+    }
+
+    long getLastAccessNanos() {
+        return mLastAccessNanos;
+    }
+}
@@ -0,0 +1,189 @@
+package com.dgl114.colormatch.server;
+
+import com.dgl114.colormatch.Histogram;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PrintStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+//****************************************************************************************
+//LoadGenerator.java            Author: zakacat
+//
+//This is a load test for GameServer. A number of simulated players run at once, each one
+//playing whole sessions over HTTP back to back: start a session, then for every round
+//toggle two random cells, check, and start the next round, then end the session.
+//Every request's latency goes into a Histogram, and the run reports sessions per second,
+//requests per second and the p50 / p99 / max latency.
+//Run against a server with: ./gradlew :server:loadTest --args="localhost 8080 10000 1000 5"
+//(host, port, sessions, concurrent players, rounds per session)
+//****************************************************************************************
+
+public class LoadGenerator {
+
+    private final String mBaseUrl;
+    private final int mPlayers;
+    private final int mRoundsPerSession;
+    private final Histogram mLatency = new Histogram("requestLatency");
+    private final AtomicLong mSessionsLeft = new AtomicLong();
+    private final AtomicLong mSessions = new AtomicLong();
+    private final AtomicLong mRequests = new AtomicLong();
+    private final AtomicLong mErrors = new AtomicLong();
+    private long mElapsedNanos;
+
+    public LoadGenerator(String host, int port, int players, int roundsPerSession) {
+        mBaseUrl = "http://" + host + ":" + port + "/sessions";
+        mPlayers = players;
+        mRoundsPerSession = roundsPerSession;
+    }
+
+    //****************************************************************************************
+    //run() plays the given number of sessions, spread across the players, and waits for
+    //them all to finish.
+    //****************************************************************************************
+    public void run(long sessions) throws InterruptedException {
+        mSessionsLeft.set(sessions);
+        ExecutorService executor = RequestExecutors.newRequestExecutor("LoadGenerator");
+        long start = System.nanoTime();
+        List<Future<?>> players = new ArrayList<>();
+        for (int player = 0; player < mPlayers; player++) {
+            final long seed = player;
+            players.add(executor.submit(new Runnable() {
+                @Override
+                public void run() {
+                    play(new SplittableRandom(seed));
+                }
+            }));
+        }
+        for (Future<?> player : players) {
+            try {
+                player.get();
+            }
+            catch (ExecutionException e) {
+                mErrors.incrementAndGet();
+            }
+        }
+        mElapsedNanos = System.nanoTime() - start;
+        executor.shutdown();
+    }
+
+    private void play(SplittableRandom random) {
+        while (mSessionsLeft.getAndDecrement() > 0) {
+            try {
+                String state = request("POST", "");
+                String id = state.substring(state.indexOf("\"id\":\"") + 6, state.indexOf("\",\""));
+                int rows = parseField(state, "rows");
+                int cols = parseField(state, "cols");
+                String session = "/" + id;
+                for (int round = 0; round < mRoundsPerSession; round++) {
+                    request("POST", session + "/toggle?row=" + random.nextInt(rows) + "&col=" + random.nextInt(cols));
+                    request("POST", session + "/toggle?row=" + random.nextInt(rows) + "&col=" + random.nextInt(cols));
+                    request("POST", session + "/check");
+                    request("POST", session + "/round");
+                }
+                request("DELETE", session);
+                mSessions.incrementAndGet();
+            }
+            catch (IOException | RuntimeException e) {
+                mErrors.incrementAndGet();
+            }
+        }
+    }
+
+    //****************************************************************************************
+    //request() sends one request, reads the whole response (so the connection can be kept
+    //alive and reused) and records how long it took.
+    //****************************************************************************************
+    private String request(String method, String path) throws IOException {
+        long start = System.nanoTime();
+        HttpURLConnection connection = (HttpURLConnection) new URL(mBaseUrl + path).openConnection();
+        connection.setRequestMethod(method);
+        int status = connection.getResponseCode();
+        InputStream in = status < 400 ? connection.getInputStream() : connection.getErrorStream();
+        String body = in == null ? "" : readFully(in);
+        mLatency.record(System.nanoTime() - start);
+        mRequests.incrementAndGet();
+        if (status >= 400) {
+            throw new IOException(method + " " + path + " returned " + status + ": " + body);
+        }
+        return body;
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        try {
+            byte[] buffer = new byte[1024];
+            StringBuilder text = new StringBuilder();
+            int read;
+            while ((read = in.read(buffer)) >= 0) {
+                text.append(new String(buffer, 0, read, StandardCharsets.UTF_8));
+            }
+            return text.toString();
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    private static int parseField(String json, String name) {
+        int start = json.indexOf("\"" + name + "\":") + name.length() + 3;
+        int end = start;
+        while (end < json.length() && Character.isDigit(json.charAt(end))) {
+            end++;
+        }
+        return Integer.parseInt(json.substring(start, end));
+    }
+
+    public long getSessions() {
+        return mSessions.get();
+    }
+
+    public long getRequests() {
+        return mRequests.get();
+    }
+
+    public long getErrors() {
+        return mErrors.get();
+    }
+
+    public Histogram getLatency() {
+        return mLatency;
+    }
+
+    public double getSessionsPerSecond() {
+        return mSessions.get() / Math.max(mElapsedNanos / 1e9, 1e-9);
+    }
+
+    public void printReport(PrintStream out) {
+        double seconds = mElapsedNanos / 1e9;
+        out.printf("%,d sessions (%,d requests, %,d errors) with %d players in %.2f s%n",
+                mSessions.get(), mRequests.get(), mErrors.get(), mPlayers, seconds);
+        out.printf("%,.0f sessions/s, %,.0f requests/s%n",
+                getSessionsPerSecond(), mRequests.get() / Math.max(seconds, 1e-9));
+        out.printf("Latency p50 %.3f ms, p99 %.3f ms, max %.3f ms%n",
+                mLatency.getPercentile(50) / 1e6, mLatency.getPercentile(99) / 1e6, mLatency.getMax() / 1e6);
+    }
+
+    //****************************************************************************************
+    //main() takes host, port, sessions, players and rounds per session.
+    //****************************************************************************************
+    public static void main(String[] args) throws InterruptedException {
+        String host = args.length > 0 ? args[0] : "localhost";
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : GameServer.DEFAULT_PORT;
+        long sessions = args.length > 2 ? Long.parseLong(args[2]) : 10_000;
+        int players = args.length > 3 ? Integer.parseInt(args[3]) : 100;
+        int rounds = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+
+        LoadGenerator generator = new LoadGenerator(host, port, players, rounds);
+        generator.run(sessions);
+        generator.printReport(System.out);
+    }
+}
@@ -0,0 +1,52 @@
+package com.dgl114.colormatch.server;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//****************************************************************************************
+//RequestExecutors.java         Author: zakacat
+//
+//This class picks the executor that requests are run on. On Java 21 and up every request
+//gets its own virtual thread (Executors.newVirtualThreadPerTaskExecutor()), so thousands
+//of slow clients only cost thousands of small stacks. The module is built for Java 8 like
+//the rest of the project, so that method is looked up at run time; on older JVMs a
+//cached pool of daemon platform threads is used instead.
+//****************************************************************************************
+
+public final class RequestExecutors {
+
+    private RequestExecutors() {
+    }
+
+    public static ExecutorService newRequestExecutor(String name) {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        }
+        catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(new DaemonThreadFactory(name));
+        }
+    }
+
+    public static boolean isVirtual(ExecutorService executor) {
+        return !(executor instanceof java.util.concurrent.ThreadPoolExecutor);
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory {
+
+        private final String mName;
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        DaemonThreadFactory(String name) {
+            mName = name;
+        }
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, mName + "-" + mCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.dgl114.colormatch.server;
+
+import com.dgl114.colormatch.ColorMatchGame;
+
+import java.security.SecureRandom;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+//****************************************************************************************
+//SessionStore.java         Author: zakacat
+//
+//This class holds the live sessions of a GameServer. Lookups go through a
+//ConcurrentHashMap, so finding a session never takes a lock. Session ids come from a
+//SecureRandom, so one player can't work out another's from their own (as they could from a
+//ThreadLocalRandom, whose sequence follows from a few outputs).
+//Memory is bounded: there are at most maxSessions sessions, and sessions that haven't been
+//used for the idle timeout are evicted (by GameServer's sweeper, and whenever the store
+//is full).
+//****************************************************************************************
+
+public class SessionStore {
+
+    private final ConcurrentHashMap<Long, GameSession> mSessions = new ConcurrentHashMap<>();
+    private final SecureRandom mIds = new SecureRandom();
+    private final AtomicInteger mSize = new AtomicInteger();
+    private final int mMaxSessions;
+    private final long mIdleTimeoutNanos;
+
+    public SessionStore(int maxSessions, long idleTimeout, TimeUnit unit) {
+        mMaxSessions = maxSessions;
+        mIdleTimeoutNanos = unit.toNanos(idleTimeout);
+    }
+
+    public GameSession create(int numRows, int numCols) {
+        return create(numRows, numCols, ColorMatchGame.MIN_DIFFICULTY, ColorMatchGame.MIN_BLEND_SIZE);
+    }
+
+    //****************************************************************************************
+    //create() starts a new session with its first round, whose target is a blend of
+    //blendSize cells, or returns null if the store is full even after evicting idle sessions.
+    //****************************************************************************************
+    public GameSession create(int numRows, int numCols, float difficulty, int blendSize) {
+        if (!reserve()) {
+            evictIdle(System.nanoTime());
+            if (!reserve()) {
+                return null;
+            }
+        }
+        try {
+            while (true) {
+                long id = mIds.nextLong() & Long.MAX_VALUE;
+                GameSession session = new GameSession(id, numRows, numCols, difficulty, blendSize);
+                if (mSessions.putIfAbsent(id, session) == null) {
+                    return session;
+                }
+            }
+        }
+        catch (RuntimeException e) {
+            mSize.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private boolean reserve() {
+        while (true) {
+            int size = mSize.get();
+            if (size >= mMaxSessions) {
+                return false;
+            }
+            if (mSize.compareAndSet(size, size + 1)) {
+                return true;
+            }
+        }
+    }
+
+    public GameSession get(long id) {
+        return mSessions.get(id);
+    }
+
+    public boolean remove(long id) {
+        if (mSessions.remove(id) != null) {
+            mSize.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    //****************************************************************************************
+    //evictIdle() removes every session that hasn't been used for the idle timeout and
+    //returns how many were removed.
+    //****************************************************************************************
+    public int evictIdle(long nowNanos) {
+        int evicted = 0;
+        Iterator<GameSession> sessions = mSessions.values().iterator();
+        while (sessions.hasNext()) {
+            GameSession session = sessions.next();
+            if (nowNanos - session.getLastAccessNanos() > mIdleTimeoutNanos
+                    && mSessions.remove(session.getId(), session)) {
+                mSize.decrementAndGet();
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    public int size() {
+        return mSize.get();
+    }
+
+    public int getMaxSessions() {
+        return mMaxSessions;
+    }
+}
@@ -0,0 +1,125 @@
+package com.dgl114.colormatch.server;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.Scanner;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+/**
+ * Local tests for {@link GameServer}, {@link SessionStore} and {@link LoadGenerator}.
+ */
+public class GameServerTest {
+
+    @Test
+    public void session_playsRoundsOverHttp() throws Exception {
+        GameServer server = startServer(10);
+        try {
+            String base = "http://localhost:" + server.getPort() + "/sessions";
+            Response created = request("POST", base + "?rows=4&cols=5");
+            assertEquals(201, created.mStatus);
+            assertTrue(created.mBody, created.mBody.contains("\"rows\":4,\"cols\":5,"));
+            assertFalse(created.mBody.contains("win"));
+            String id = created.mBody.substring(7, created.mBody.indexOf("\",\""));
+            String session = base + "/" + id;
+
+            assertTrue(request("POST", session + "/toggle?row=3&col=4").mBody.contains("\"selectedCount\":1"));
+            assertTrue(request("POST", session + "/toggle?row=0&col=0").mBody.contains("\"selectedCount\":2"));
+            assertTrue(request("POST", session + "/toggle?row=1&col=1").mBody.contains("\"selected\":false"));
+            assertTrue(request("GET", session).mBody.contains("\"selected\":[0,19]"));
+            Response check = request("POST", session + "/check");
+            assertTrue(check.mBody, check.mBody.matches("\\{\"correct\":(true|false),\"score\":\\{.*\\}\\}"));
+            assertTrue(request("POST", session + "/round").mBody.contains("\"selected\":[]"));
+
+            assertEquals(400, request("POST", session + "/toggle?row=9&col=0").mStatus);
+            assertEquals(400, request("POST", base + "?rows=2").mStatus);
+            assertEquals(400, request("POST", base + "?difficulty=101").mStatus);
+            Response hard = request("POST", base + "?rows=6&cols=6&difficulty=100");
+            assertEquals(201, hard.mStatus);
+            assertTrue(hard.mBody.contains("\"rows\":6,\"cols\":6,"));
+            assertTrue(hard.mBody.contains("\"blend\":2,"));
+            assertEquals(400, request("POST", base + "?blend=7").mStatus);
+            assertEquals(400, request("POST", base + "?rows=8&cols=8&blend=5").mStatus);
+            Response blend = request("POST", base + "?rows=8&cols=8&blend=4");
+            assertEquals(201, blend.mStatus);
+            assertTrue(blend.mBody, blend.mBody.contains("\"blend\":4,"));
+            String blendSession = base + "/" + blend.mBody.substring(7, blend.mBody.indexOf("\",\""));
+            for (int col = 0; col < 5; col++) {
+                request("POST", blendSession + "/toggle?row=0&col=" + col);
+            }
+            assertTrue(request("GET", blendSession).mBody.contains("\"selected\":[0,1,2,3]"));
+            assertEquals(405, request("GET", base).mStatus);
+            assertEquals(204, request("DELETE", session).mStatus);
+            assertEquals(404, request("GET", session).mStatus);
+            assertEquals(404, request("GET", base + "/nonsense").mStatus);
+        }
+        finally {
+            server.stop();
+        }
+    }
+
+    @Test
+    public void sessions_areBoundedAndIdleOnesEvicted() throws Exception {
+        SessionStore store = new SessionStore(2, 1, TimeUnit.HOURS);
+        assertNotNull(store.create(3, 3));
+        GameSession second = store.create(3, 3);
+        assertNotNull(second);
+        assertNull(store.create(3, 3));
+        assertEquals(2, store.size());
+
+        assertEquals(0, store.evictIdle(System.nanoTime()));
+        assertEquals(2, store.evictIdle(System.nanoTime() + TimeUnit.HOURS.toNanos(2)));
+        assertEquals(0, store.size());
+        assertNull(store.get(second.getId()));
+        assertNotNull(store.create(3, 3));
+    }
+
+    @Test
+    public void loadGenerator_playsEverySession() throws Exception {
+        GameServer server = startServer(1000);
+        try {
+            LoadGenerator generator = new LoadGenerator("localhost", server.getPort(), 32, 3);
+            generator.run(500);
+            assertEquals(0, generator.getErrors());
+            assertEquals(500, generator.getSessions());
+            assertEquals(500 * (2 + 4 * 3), generator.getRequests());
+            assertEquals(generator.getRequests(), generator.getLatency().getCount());
+        }
+        finally {
+            server.stop();
+        }
+    }
+
+    private static GameServer startServer(int maxSessions) throws IOException {
+        GameServer server = new GameServer(new InetSocketAddress("localhost", 0),
+                new SessionStore(maxSessions, 10, TimeUnit.MINUTES));
+        server.start();
+        return server;
+    }
+
+    private static Response request(String method, String url) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+        Response response = new Response();
+        response.mStatus = connection.getResponseCode();
+        InputStream in = response.mStatus < 400 ? connection.getInputStream() : connection.getErrorStream();
+        if (in != null) {
+            try (Scanner scanner = new Scanner(in, StandardCharsets.UTF_8.name()).useDelimiter("\\A")) {
+                response.mBody = scanner.hasNext() ? scanner.next() : "";
+            }
+        }
+        return response;
+    }
+
+    private static class Response {
+        int mStatus;
+        String mBody = "";
+    }
+}